@@ -0,0 +1,92 @@
+package org.xbib.time.schedule;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * The expressions and times the benchmarks run over. The expressions are written in the syntax of Quartz,
+ * with a seconds field, so that both libraries parse the same strings. They are the examples of the
+ * Quartz documentation and the kind of expressions found in crontabs.
+ */
+final class Corpus {
+
+    static final CronExpression.Parser QUARTZ_LIKE = CronExpression.parser()
+            .withSecondsField(true)
+            .withOneBasedDayOfWeek(true)
+            .allowBothDayFields(false);
+
+    static final TimeZone TIME_ZONE = TimeZone.getTimeZone("UTC");
+
+    static final String[] EXPRESSIONS = {
+            "0 * * * * ?",
+            "0 0 * * * ?",
+            "0 0 12 * * ?",
+            "0 15 10 ? * *",
+            "0 0/5 14 * * ?",
+            "0 0/5 14,18 * * ?",
+            "0 0-5 14 * * ?",
+            "0 */15 9-17 ? * MON-FRI",
+            "0 10,44 14 ? 3 WED",
+            "0 15 10 15 * ?",
+            "0 15 10 L * ?",
+            "0 15 10 ? * 6L",
+            "0 15 10 ? * 6#3",
+            "0 0 12 1/5 * ?",
+            "0 11 11 11 11 ?",
+            "0 30 2 ? * SUN",
+            "0 0 0 1 1 ?",
+            "0 0 4 15W * ?",
+            "0/5 14,18,3-39,52 * ? JAN,MAR,SEP MON-FRI 2002-2030"
+    };
+
+    /**
+     * The number of expressions, a constant for {@code OperationsPerInvocation}.
+     */
+    static final int SIZE = 19;
+
+    static final int TIMES = 1024;
+
+    static {
+        if (EXPRESSIONS.length != SIZE) {
+            throw new IllegalStateException("size of corpus is " + EXPRESSIONS.length + ", not " + SIZE);
+        }
+    }
+
+    private Corpus() {
+    }
+
+    /**
+     * Returns random times over ten years, at full minutes like the ticks of a schedule, the same on every run.
+     * @return the times
+     */
+    static ZonedDateTime[] times() {
+        Random random = new Random(42L);
+        ZonedDateTime start = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        ZonedDateTime[] times = new ZonedDateTime[TIMES];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = start.plusMinutes(random.nextInt(10 * 365 * 1440));
+        }
+        return times;
+    }
+
+    static Date[] dates(ZonedDateTime[] times) {
+        Date[] dates = new Date[times.length];
+        for (int i = 0; i < times.length; i++) {
+            dates[i] = Date.from(times[i].toInstant());
+        }
+        return dates;
+    }
+
+    static org.quartz.CronExpression quartz(String string) {
+        try {
+            org.quartz.CronExpression expression = new org.quartz.CronExpression(string);
+            expression.setTimeZone(TIME_ZONE);
+            return expression;
+        } catch (java.text.ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
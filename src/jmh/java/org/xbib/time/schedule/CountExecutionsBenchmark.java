@@ -0,0 +1,62 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the execution times of an expression in a year, in closed form and by enumerating them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CountExecutionsBenchmark {
+
+    @Param({
+            "* * * * *",
+            "*/15 9-17 * * 1-5",
+            "0 12 L * *",
+            "0 0 ? * 5#3"
+    })
+    public String expression;
+
+    @Param({"UTC", "Europe/Berlin"})
+    public String zone;
+
+    private CronExpression local;
+
+    private ZonedDateTime from;
+
+    private ZonedDateTime to;
+
+    @Setup
+    public void setup() {
+        local = CronExpression.parse(expression);
+        from = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.of(zone));
+        to = from.plusYears(1);
+    }
+
+    @Benchmark
+    public long countExecutions() {
+        return local.countExecutions(from, to);
+    }
+
+    @Benchmark
+    public long enumerate() {
+        return local.executionEpochSeconds(from, to).count();
+    }
+}
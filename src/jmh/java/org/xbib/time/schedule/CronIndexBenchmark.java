@@ -0,0 +1,72 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the expressions matching a minute among many daily expressions, one minute per invocation, with a
+ * {@link CronIndex} and by matching every expression.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CronIndexBenchmark {
+
+    @Param({"10000", "200000"})
+    public int expressions;
+
+    private CronExpression[] all;
+
+    private CronIndex index;
+
+    private ZonedDateTime time;
+
+    private int matches;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        all = new CronExpression[expressions];
+        index = new CronIndex();
+        for (int i = 0; i < expressions; i++) {
+            all[i] = CronExpression.parse(random.nextInt(60) + " " + random.nextInt(24) +
+                    " * * " + (random.nextBoolean() ? "*" : "MON-FRI"));
+            index.add(all[i]);
+        }
+        time = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    }
+
+    @Benchmark
+    public int index() {
+        time = time.plusMinutes(1);
+        index.forEachMatch(time, id -> matches++);
+        return matches;
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        time = time.plusMinutes(1);
+        for (CronExpression expression : all) {
+            if (expression.matches(time)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,68 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a crontab file of millions of lines, with a comment every hundred lines. The lines repeat a few
+ * expressions, which the cache of the loader parses once, except for "H H * * *", whose values depend on
+ * the command of each line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CrontabLoaderBenchmark {
+
+    private static final String[] EXPRESSIONS = {"*/5 * * * *", "0 2 * * mon-fri", "@daily", "H H * * *",
+            "30 4 1,15 * 5", "0 0 1 jan,jul *", "15 */2 * * *", "0 9-17 * * 1-5"};
+
+    @Param({"5000000"})
+    public int lines;
+
+    private Path path;
+
+    @Setup
+    public void setup() throws IOException {
+        path = Files.createTempFile("crontab", "");
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            for (int i = 0; i < lines; i++) {
+                if (i % 100 == 0) {
+                    writer.write("# job group " + i + "\n");
+                }
+                writer.write(EXPRESSIONS[i % EXPRESSIONS.length] + " /usr/local/bin/job --id " + i + "\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public Crontab load() throws IOException {
+        Crontab crontab = new CrontabLoader().load(path);
+        if (crontab.getLines().size() != lines) {
+            throw new IllegalStateException("loaded " + crontab.getLines().size() + " of " + lines + " lines");
+        }
+        return crontab;
+    }
+}
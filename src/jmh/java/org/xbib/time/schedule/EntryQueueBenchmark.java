@@ -0,0 +1,75 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks an entry queue of many daily entries, one second per invocation. The entries are spread over a day,
+ * the fired entries are put back a day later, so the cost of a tick is the cost of polling the queue and of
+ * putting back the fired entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EntryQueueBenchmark {
+
+    private static final long START = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+
+    @Param({"wheel", "heap"})
+    public String queue;
+
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+
+    private EntryQueue<Void> entryQueue;
+
+    private List<Entry<Void>> fired;
+
+    private long time;
+
+    @Setup
+    public void setup() {
+        entryQueue = queue.equals("wheel") ? new TimingWheelEntryQueue<>(START) : new HeapEntryQueue<>();
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochSecond(START), ZoneOffset.UTC);
+        Random random = new Random(42L);
+        for (int i = 0; i < entries; i++) {
+            Entry<Void> entry = new Entry<>(Integer.toString(i), CronExpression.daily(), () -> null);
+            entry.setNextCall(start.plusSeconds(1 + random.nextInt(86400)));
+            entryQueue.add(entry);
+        }
+        fired = new ArrayList<>();
+        time = START;
+    }
+
+    @Benchmark
+    public int tick() {
+        time++;
+        entryQueue.poll(time, fired::add);
+        int n = fired.size();
+        for (Entry<Void> entry : fired) {
+            entry.setNextCall(entry.getNextCall().plusDays(1));
+            entryQueue.add(entry);
+        }
+        fired.clear();
+        return n;
+    }
+}
@@ -0,0 +1,130 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Appends the state of a million entries to a journal, and restarts from a checkpoint and a journal of
+ * a million entries, that is, opens the journal and reads back the state of every entry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JournalBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void append(Appending state) {
+        for (Entry<Void> entry : state.entries) {
+            state.journal.append(entry);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int restart(Restarting state) throws IOException {
+        try (Journal journal = new Journal(state.directory)) {
+            return journal.read().size();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Appending {
+
+        private Path directory;
+
+        private List<Entry<Void>> entries;
+
+        private Journal journal;
+
+        @Setup
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("journal");
+            entries = entries();
+            journal = new Journal(directory);
+        }
+
+        /**
+         * Starts the journal over before every invocation, so it does not outgrow its mapping.
+         */
+        @Setup(Level.Invocation)
+        public void checkpoint() throws IOException {
+            journal.checkpoint(List.of());
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Restarting {
+
+        private Path directory;
+
+        @Setup
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("journal");
+            List<Entry<Void>> entries = entries();
+            try (Journal journal = new Journal(directory)) {
+                journal.checkpoint(entries);
+                for (Entry<Void> entry : entries) {
+                    journal.append(entry);
+                }
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    private static List<Entry<Void>> entries() {
+        List<Entry<Void>> entries = new ArrayList<>(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            Entry<Void> entry = new Entry<>("entry-" + i, CronExpression.hourly(), () -> null);
+            entry.setLastCalled(START);
+            entry.setNextCall(START.plusHours(1));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches an expression against random times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MatchesBenchmark {
+
+    @Param({
+            "0 0 12 * * ?",
+            "0 */15 9-17 ? * MON-FRI",
+            "0 15 10 L * ?",
+            "0 15 10 ? * 6#3",
+            "0/5 14,18,3-39,52 * ? JAN,MAR,SEP MON-FRI 2002-2030"
+    })
+    public String expression;
+
+    private CronExpression local;
+
+    private org.quartz.CronExpression quartz;
+
+    private ZonedDateTime[] times;
+
+    private long[] epochSeconds;
+
+    private ZoneId zone;
+
+    private Date[] dates;
+
+    @Setup
+    public void setup() {
+        local = Corpus.QUARTZ_LIKE.parse(expression);
+        quartz = Corpus.quartz(expression);
+        times = Corpus.times();
+        epochSeconds = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            epochSeconds[i] = times[i].toEpochSecond();
+        }
+        zone = ZoneOffset.UTC;
+        dates = Corpus.dates(times);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.TIMES)
+    public int matches() {
+        int n = 0;
+        for (ZonedDateTime time : times) {
+            if (local.matches(time)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.TIMES)
+    public int matchesEpochSecond() {
+        int n = 0;
+        for (long epochSecond : epochSeconds) {
+            if (local.matches(epochSecond, zone)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Matches epoch seconds by way of a {@link ZonedDateTime}, for comparison with {@link #matchesEpochSecond()}.
+     * @return the number of matching times
+     */
+    @Benchmark
+    @OperationsPerInvocation(Corpus.TIMES)
+    public int matchesOfInstant() {
+        int n = 0;
+        for (long epochSecond : epochSeconds) {
+            if (local.matches(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone))) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.TIMES)
+    public int quartz() {
+        int n = 0;
+        for (Date date : dates) {
+            if (quartz.isSatisfiedBy(date)) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
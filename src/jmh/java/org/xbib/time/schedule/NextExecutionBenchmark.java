@@ -0,0 +1,77 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches the next execution time of an expression after random times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class NextExecutionBenchmark {
+
+    @Param({
+            "0 0 12 * * ?",
+            "0 */15 9-17 ? * MON-FRI",
+            "0 15 10 L * ?",
+            "0 15 10 ? * 6#3",
+            "0 11 11 11 11 ?"
+    })
+    public String expression;
+
+    private CronExpression local;
+
+    private org.quartz.CronExpression quartz;
+
+    private ZonedDateTime[] times;
+
+    private ZonedDateTime[] ends;
+
+    private Date[] dates;
+
+    @Setup
+    public void setup() {
+        local = Corpus.QUARTZ_LIKE.parse(expression);
+        quartz = Corpus.quartz(expression);
+        times = Corpus.times();
+        ends = new ZonedDateTime[times.length];
+        for (int i = 0; i < times.length; i++) {
+            ends[i] = times[i].plusYears(8);
+        }
+        dates = Corpus.dates(times);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.TIMES)
+    public void nextExecution(Blackhole blackhole) {
+        for (int i = 0; i < times.length; i++) {
+            blackhole.consume(local.nextExecution(times[i], ends[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.TIMES)
+    public void quartz(Blackhole blackhole) {
+        for (Date date : dates) {
+            blackhole.consume(quartz.getNextValidTimeAfter(date));
+        }
+    }
+}
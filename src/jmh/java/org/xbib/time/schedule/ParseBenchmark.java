@@ -0,0 +1,64 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses every expression of the corpus, without a cache, and reads every expression back from its binary form.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        buffer = ByteBuffer.allocateDirect(1 << 16);
+        for (String string : Corpus.EXPRESSIONS) {
+            ((DefaultCronExpression) Corpus.QUARTZ_LIKE.parse(string)).write(buffer);
+        }
+        buffer.flip();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void parse(Blackhole blackhole) {
+        for (String string : Corpus.EXPRESSIONS) {
+            blackhole.consume(Corpus.QUARTZ_LIKE.parse(string));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void read(Blackhole blackhole) {
+        ByteBuffer b = buffer.duplicate();
+        while (b.hasRemaining()) {
+            blackhole.consume(DefaultCronExpression.read(b));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void quartz(Blackhole blackhole) throws java.text.ParseException {
+        for (String string : Corpus.EXPRESSIONS) {
+            blackhole.consume(new org.quartz.CronExpression(string));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.xbib.time.schedule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks a schedule of many entries, one minute per invocation. The entries are the expressions of the corpus,
+ * the callables run on the ticking thread and do nothing, so the benchmark measures the scan of the entries
+ * and the firing path. The same entries in a {@link CronIndex} show the cost of the scan alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ScheduleBenchmark {
+
+    @Param({"100", "10000"})
+    public int entries;
+
+    private CronSchedule<Void> schedule;
+
+    private CronIndex index;
+
+    private ZonedDateTime time;
+
+    private int matches;
+
+    @Setup
+    public void setup() {
+        schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor(), new DirectExecutorService());
+        index = new CronIndex();
+        for (int i = 0; i < entries; i++) {
+            CronExpression expression = Corpus.QUARTZ_LIKE.parse(Corpus.EXPRESSIONS[i % Corpus.SIZE]);
+            schedule.add("entry" + i, expression, () -> null);
+            index.add(expression);
+        }
+        time = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        schedule.close();
+    }
+
+    @Benchmark
+    public void tick() {
+        time = time.plusMinutes(1);
+        schedule.run(time);
+    }
+
+    @Benchmark
+    public int index() {
+        time = time.plusMinutes(1);
+        index.forEachMatch(time, id -> matches++);
+        return matches;
+    }
+
+    /**
+     * Runs the submitted callables on the calling thread.
+     */
+    private static class DirectExecutorService extends AbstractExecutorService {
+
+        private volatile boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
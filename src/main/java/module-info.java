@@ -1,4 +1,5 @@
 module org.xbib.time {
+    requires jdk.jfr;
     exports org.xbib.time.chronic;
     exports org.xbib.time.chronic.handlers;
     exports org.xbib.time.chronic.numerizer;
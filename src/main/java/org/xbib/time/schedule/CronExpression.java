@@ -1,10 +1,14 @@
 package org.xbib.time.schedule;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public abstract class CronExpression {
 
@@ -29,11 +33,11 @@ public abstract class CronExpression {
     }
 
     public static boolean isValid(String s) {
-        return isValid(s, DEFAULT_ONE_BASED_DAY_OF_WEEK, DEFAULT_SECONDS, DEFAULT_ALLOW_BOTH_DAYS);
+        return isValid(s, DEFAULT_ONE_BASED_DAY_OF_WEEK, DEFAULT_SECONDS, DEFAULT_ALLOW_BOTH_DAYS, null);
     }
 
     public static CronExpression parse(String s) {
-        return parse(s, DEFAULT_ONE_BASED_DAY_OF_WEEK, DEFAULT_SECONDS, DEFAULT_ALLOW_BOTH_DAYS);
+        return parse(s, DEFAULT_ONE_BASED_DAY_OF_WEEK, DEFAULT_SECONDS, DEFAULT_ALLOW_BOTH_DAYS, null);
     }
 
     public static Parser parser() {
@@ -42,8 +46,136 @@ public abstract class CronExpression {
 
     public abstract boolean matches(ZonedDateTime t);
 
+    /**
+     * Returns true if the local time of an epoch second in the given zone matches this expression,
+     * like {@link #matches(ZonedDateTime)}, for callers which have no {@link ZonedDateTime} at hand.
+     * @param epochSecond the epoch second
+     * @param zone the zone
+     * @return true if the time matches
+     */
+    public boolean matches(long epochSecond, ZoneId zone) {
+        return matches(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone));
+    }
+
+    /**
+     * Returns true if the schedule of this expression runs at an epoch second, with the given policy for the
+     * transitions of the zone rules. This differs from {@link #matches(long, ZoneId)} around a transition:
+     * a local time in a gap may run after the gap, and a local time in an overlap may run only once.
+     * @param epochSecond the epoch second
+     * @param zone the zone
+     * @param policy the transition policy
+     * @return true if the schedule runs at the epoch second
+     */
+    public boolean matches(long epochSecond, ZoneId zone, TransitionPolicy policy) {
+        return matches(epochSecond, zone);
+    }
+
     public abstract ZonedDateTime nextExecution(ZonedDateTime from, ZonedDateTime to);
 
+    /**
+     * Search for the earliest execution time, with the given policy for the transitions of the zone rules.
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @param policy the transition policy
+     * @return the next execution time
+     */
+    public ZonedDateTime nextExecution(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        return nextExecution(from, to);
+    }
+
+    /**
+     * Search backwards for the latest execution time. Expressions which can not search backwards do not
+     * override this method.
+     * @param from the time to start from, exclusive
+     * @param to the earliest time to search for, inclusive
+     * @return the previous execution time
+     * @throws UnsupportedOperationException if this expression can not search backwards
+     */
+    public ZonedDateTime previousExecution(ZonedDateTime from, ZonedDateTime to) {
+        throw new UnsupportedOperationException("previous execution of " + getClass().getName());
+    }
+
+    /**
+     * Search backwards for the latest execution time, with the given policy for the transitions of the zone rules.
+     * @param from the time to start from, exclusive
+     * @param to the earliest time to search for, inclusive
+     * @param policy the transition policy
+     * @return the previous execution time
+     */
+    public ZonedDateTime previousExecution(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        return previousExecution(from, to);
+    }
+
+    /**
+     * Returns a lazy stream of execution times in ascending order.
+     * Use {@link Stream#limit(long)} to limit the number of execution times.
+     * The default implementation calls {@link #nextExecution(ZonedDateTime, ZonedDateTime)} for every element,
+     * the stream ends when it returns null or throws {@link IllegalStateException}.
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @return the execution times
+     */
+    public Stream<ZonedDateTime> executions(ZonedDateTime from, ZonedDateTime to) {
+        return Stream.iterate(nextOrNull(from, to), Objects::nonNull, t -> nextOrNull(t, to));
+    }
+
+    /**
+     * Returns a lazy stream of execution times in ascending order, as epoch seconds.
+     * Use {@link LongStream#limit(long)} to limit the number of execution times.
+     * The default implementation maps the elements of {@link #executions(ZonedDateTime, ZonedDateTime)}.
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @return the execution times as epoch seconds
+     */
+    public LongStream executionEpochSeconds(ZonedDateTime from, ZonedDateTime to) {
+        return executions(from, to).mapToLong(ZonedDateTime::toEpochSecond);
+    }
+
+    /**
+     * Returns a lazy stream of execution times in ascending order, as epoch seconds, with the given policy
+     * for the transitions of the zone rules.
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @param policy the transition policy
+     * @return the execution times as epoch seconds
+     */
+    public LongStream executionEpochSeconds(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        return executionEpochSeconds(from, to);
+    }
+
+    /**
+     * Returns the number of execution times in a range, the number of elements of
+     * {@link #executionEpochSeconds(ZonedDateTime, ZonedDateTime)}.
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @return the number of execution times
+     */
+    public long countExecutions(ZonedDateTime from, ZonedDateTime to) {
+        return executionEpochSeconds(from, to).count();
+    }
+
+    /**
+     * Returns the number of execution times in a range, with the given policy for the transitions of the zone rules.
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @param policy the transition policy
+     * @return the number of execution times
+     */
+    public long countExecutions(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        return executionEpochSeconds(from, to, policy).count();
+    }
+
+    private ZonedDateTime nextOrNull(ZonedDateTime from, ZonedDateTime to) {
+        if (!from.isBefore(to)) {
+            return null;
+        }
+        try {
+            return nextExecution(from, to);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
     private static final Pattern ALIAS_PATTERN = Pattern.compile("[a-z]+");
 
     private static final boolean DEFAULT_ONE_BASED_DAY_OF_WEEK = false;
@@ -67,10 +199,11 @@ public abstract class CronExpression {
             Map.entry("midnight", DAILY),
             Map.entry("hourly", HOURLY));
 
-    private static boolean isValid(String s, boolean oneBasedDayOfWeek, boolean seconds, boolean allowBothDays) {
+    private static boolean isValid(String s, boolean oneBasedDayOfWeek, boolean seconds, boolean allowBothDays,
+                                   String hashName) {
         boolean valid;
         try {
-            parse(s, oneBasedDayOfWeek, seconds, allowBothDays);
+            parse(s, oneBasedDayOfWeek, seconds, allowBothDays, hashName);
             valid = true;
         } catch (Exception e) {
             valid = false;
@@ -78,7 +211,36 @@ public abstract class CronExpression {
         return valid;
     }
 
-    private static CronExpression parse(String s, boolean oneBasedDayOfWeek, boolean seconds, boolean allowBothDays) {
+    private static CronExpression parse(String s, boolean oneBasedDayOfWeek, boolean seconds, boolean allowBothDays,
+                                        String hashName) {
+        return parse(s, oneBasedDayOfWeek, seconds, allowBothDays, hashName, null);
+    }
+
+    /**
+     * Parses an expression. With a result, errors are recorded there instead of thrown,
+     * and the returned expression must not be used if the result is not valid.
+     */
+    private static CronExpression parse(CharSequence s, boolean oneBasedDayOfWeek, boolean seconds,
+                                        boolean allowBothDays, String hashName, ParseResult result) {
+        ParseEvent event = new ParseEvent();
+        if (!event.isEnabled()) {
+            return parseExpression(s, oneBasedDayOfWeek, seconds, allowBothDays, hashName, result);
+        }
+        event.begin();
+        event.expression = s.toString();
+        event.hashName = hashName;
+        try {
+            CronExpression expression = parseExpression(s, oneBasedDayOfWeek, seconds, allowBothDays, hashName,
+                    result);
+            event.valid = result == null || result.isValid();
+            return expression;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static CronExpression parseExpression(CharSequence s, boolean oneBasedDayOfWeek, boolean seconds,
+                                                  boolean allowBothDays, String hashName, ParseResult result) {
         Objects.requireNonNull(s);
         if (s.charAt(0) == '@') {
             Matcher aliasMatcher = ALIAS_PATTERN.matcher(s);
@@ -92,7 +254,7 @@ public abstract class CronExpression {
                 }
             }
         }
-        return new DefaultCronExpression(s, seconds, oneBasedDayOfWeek, allowBothDays);
+        return new DefaultCronExpression(s, seconds, oneBasedDayOfWeek, allowBothDays, hashName, result);
     }
 
     public static class Parser {
@@ -103,6 +265,10 @@ public abstract class CronExpression {
 
         private boolean allowBothDays;
 
+        private CronExpressionCache cache;
+
+        private String hashName;
+
         private Parser() {
             this.oneBasedDayOfWeek = DEFAULT_ONE_BASED_DAY_OF_WEEK;
             this.seconds = DEFAULT_SECONDS;
@@ -110,11 +276,77 @@ public abstract class CronExpression {
         }
 
         public boolean isValid(String s) {
-            return CronExpression.isValid(s, oneBasedDayOfWeek, seconds, allowBothDays);
+            return CronExpression.isValid(s, oneBasedDayOfWeek, seconds, allowBothDays, hashName);
+        }
+
+        /**
+         * Validates an expression without throwing, and without creating strings
+         * for expressions which are not aliases. The result tells why an expression is not valid,
+         * it can be reused for the next expression.
+         * @param s the expression, any characters, for example a slice of a buffer
+         * @param result the result
+         * @return true if the expression is valid
+         */
+        public boolean isValid(CharSequence s, ParseResult result) {
+            return parseUncached(s, hashName, result) != null;
+        }
+
+        /**
+         * Parses an expression without throwing, through the cache of this parser, if any.
+         * @param s the expression, any characters, for example a slice of a buffer
+         * @param result the result, which tells why an expression is not valid
+         * @return the expression, or null if it is not valid
+         */
+        public CronExpression parse(CharSequence s, ParseResult result) {
+            return parse(s, hashName, result);
+        }
+
+        /**
+         * Parses an expression with the given hash name, for the entries of a crontab.
+         */
+        CronExpression parse(CharSequence s, String name, ParseResult result) {
+            if (cache != null && s != null) {
+                String string = s.toString();
+                // the values of H tokens depend on the hash name
+                String key = name != null ? string + '\u0000' + name : string;
+                CronExpression expression = cache.get(key, flags(), () -> parseUncached(string, name, result));
+                if (expression != null) {
+                    // a hit in the cache did not touch the result
+                    result.reset(s);
+                }
+                return expression;
+            }
+            return parseUncached(s, name, result);
+        }
+
+        private CronExpression parseUncached(CharSequence s, String name, ParseResult result) {
+            result.reset(s);
+            if (s == null || s.length() == 0) {
+                result.fail("empty spec not allowed");
+                return null;
+            }
+            CronExpression expression = CronExpression.parse(s, oneBasedDayOfWeek, seconds, allowBothDays, name,
+                    result);
+            return result.isValid() ? expression : null;
+        }
+
+        boolean hasSecondsField() {
+            return seconds;
+        }
+
+        int flags() {
+            return (oneBasedDayOfWeek ? 1 : 0) | (seconds ? 2 : 0) | (allowBothDays ? 4 : 0);
         }
 
         public CronExpression parse(String s) {
-            return CronExpression.parse(s, oneBasedDayOfWeek, seconds, allowBothDays);
+            if (cache != null) {
+                Objects.requireNonNull(s);
+                // the values of H tokens depend on the hash name
+                String key = hashName != null ? s + '\u0000' + hashName : s;
+                return cache.get(key, flags(), () -> CronExpression.parse(s, oneBasedDayOfWeek, seconds, allowBothDays,
+                        hashName));
+            }
+            return CronExpression.parse(s, oneBasedDayOfWeek, seconds, allowBothDays, hashName);
         }
 
         public Parser withOneBasedDayOfWeek(boolean oneBasedDayOfWeek) {
@@ -131,5 +363,28 @@ public abstract class CronExpression {
             this.allowBothDays = allowBothDayFields;
             return this;
         }
+
+        /**
+         * Sets the name which H tokens are derived from. H, H(a-b), H/n, and H(a-b)/n stand for stable
+         * pseudo-random values of a field, so that expressions like "H * * * *" written for many entries
+         * spread over the hour instead of all running at minute 0. Usually, this is the name of the entry.
+         * @param hashName the name
+         * @return this parser
+         */
+        public Parser withHashName(String hashName) {
+            this.hashName = hashName;
+            return this;
+        }
+
+        /**
+         * Parse through a cache. Parsed expressions are looked up by string and by the flags of this parser,
+         * strings which fail to parse are not cached.
+         * @param cache the cache, or null for no caching
+         * @return this parser
+         */
+        public Parser withCache(CronExpressionCache cache) {
+            this.cache = cache;
+            return this;
+        }
     }
 }
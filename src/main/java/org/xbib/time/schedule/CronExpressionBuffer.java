@@ -0,0 +1,65 @@
+package org.xbib.time.schedule;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A read-only view of expressions written one after another by {@link DefaultCronExpression#write(ByteBuffer)},
+ * usually into a file mapped into memory. The buffer is not copied, only the offsets of the records are
+ * kept on the heap, and an expression is read from the buffer when it is asked for. The view may be used
+ * by many threads, as long as the buffer is not changed.
+ */
+public final class CronExpressionBuffer {
+
+    private final ByteBuffer buffer;
+
+    private final int[] offsets;
+
+    private final int size;
+
+    /**
+     * Finds the records between the position and the limit of the buffer. A record of length zero ends the
+     * records before the limit.
+     * @param buffer the buffer
+     * @throws IllegalArgumentException if the length of a record is out of the buffer
+     */
+    public CronExpressionBuffer(ByteBuffer buffer) {
+        this.buffer = buffer.slice().order(buffer.order());
+        int[] o = new int[16];
+        int n = 0;
+        int position = 0;
+        int limit = this.buffer.limit();
+        while (position <= limit - 4) {
+            int length = this.buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 4 || length > limit - position) {
+                throw new IllegalArgumentException("corrupt record at " + position + ": length " + length);
+            }
+            if (n == o.length) {
+                o = Arrays.copyOf(o, n * 2);
+            }
+            o[n++] = position;
+            position += length;
+        }
+        this.offsets = o;
+        this.size = n;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads an expression from the buffer.
+     * @param index the index of the record
+     * @return the expression
+     */
+    public DefaultCronExpression get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return DefaultCronExpression.read(buffer.duplicate().order(buffer.order()).position(offsets[index]));
+    }
+}
@@ -0,0 +1,253 @@
+package org.xbib.time.schedule;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded concurrent cache of parsed cron expressions, keyed by the expression string and the flags of the
+ * {@link CronExpression.Parser}. Use it with {@link CronExpression.Parser#withCache(CronExpressionCache)}.
+ * <p>
+ * Lookups do not lock. When the cache is full, entries are evicted with the clock algorithm, an approximation
+ * of least recently used: an entry which was hit since the eviction pointer passed it last gets a second chance.
+ * <p>
+ * Equal expressions are interned to one shared instance. Expressions which match the same times but are
+ * written in different ways, like "*&#47;15 * * * *" and "0,15,30,45 * * * *", keep their own strings, so they
+ * are not equal, but they share their immutable field objects. The shared fields are counted by the cached
+ * strings which give them, and only dropped when the last of them is evicted, so the interned expressions
+ * are bounded by the size of the cache.
+ */
+public class CronExpressionCache {
+
+    private final int maximumSize;
+
+    private final ConcurrentMap<Key, Node> nodes;
+
+    private final Queue<Node> clock;
+
+    private final ConcurrentMap<Fields, Shared> canonical;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    private final LongAdder evictions;
+
+    public CronExpressionCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.nodes = new ConcurrentHashMap<>();
+        this.clock = new ConcurrentLinkedQueue<>();
+        this.canonical = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Returns the shared instance of an expression which is equal to the given one, if such an expression
+     * is in the cache. Only expressions parsed through the cache become shared instances.
+     * @param expression the expression
+     * @return the shared instance, or the given expression
+     */
+    public CronExpression intern(CronExpression expression) {
+        if (expression instanceof DefaultCronExpression) {
+            Shared shared = canonical.get(new Fields((DefaultCronExpression) expression));
+            if (shared != null && shared.expression.equals(expression)) {
+                return shared.expression;
+            }
+        }
+        return expression;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public void clear() {
+        nodes.clear();
+        clock.clear();
+        canonical.clear();
+    }
+
+    CronExpression get(String string, int flags, Supplier<CronExpression> parser) {
+        Key key = new Key(string, flags);
+        Node node = nodes.get(key);
+        if (node != null) {
+            hits.increment();
+            if (!node.referenced) {
+                node.referenced = true;
+            }
+            return node.expression;
+        }
+        misses.increment();
+        CronExpression expression = parser.get();
+        if (!(expression instanceof DefaultCronExpression)) {
+            // not valid, or stateful like @reboot, which must not be shared
+            return expression;
+        }
+        node = new Node(key, acquire((DefaultCronExpression) expression));
+        Node existing = nodes.putIfAbsent(key, node);
+        if (existing != null) {
+            release(node.expression);
+            return existing.expression;
+        }
+        clock.add(node);
+        if (nodes.size() > maximumSize) {
+            evict();
+        }
+        return node.expression;
+    }
+
+    private void evict() {
+        Node node;
+        while (nodes.size() > maximumSize && (node = clock.poll()) != null) {
+            if (node.referenced) {
+                node.referenced = false;
+                clock.add(node);
+            } else if (nodes.remove(node.key, node)) {
+                release(node.expression);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Returns the expression for a new node, and counts the node: the shared instance if it is equal, else
+     * the expression with the fields of the shared instance.
+     */
+    private DefaultCronExpression acquire(DefaultCronExpression expression) {
+        DefaultCronExpression shared = canonical.compute(new Fields(expression), (fields, s) -> {
+            if (s == null) {
+                return new Shared(expression);
+            }
+            s.count++;
+            return s;
+        }).expression;
+        return shared.equals(expression) ? shared : expression.withFieldsOf(shared);
+    }
+
+    /**
+     * Uncounts an evicted node, and drops the shared instance when no node gives it any more.
+     */
+    private void release(DefaultCronExpression expression) {
+        canonical.computeIfPresent(new Fields(expression), (fields, shared) -> --shared.count == 0 ? null : shared);
+    }
+
+    @Override
+    public String toString() {
+        return "CronExpressionCache[size=" + size() +
+                ",hits=" + getHitCount() +
+                ",misses=" + getMissCount() +
+                ",evictions=" + getEvictionCount() + "]";
+    }
+
+    private static final class Key {
+
+        private final String string;
+
+        private final int flags;
+
+        private Key(String string, int flags) {
+            this.string = string;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return flags == that.flags && string.equals(that.string);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * string.hashCode() + flags;
+        }
+    }
+
+    private static final class Node {
+
+        private final Key key;
+
+        private final DefaultCronExpression expression;
+
+        private volatile boolean referenced;
+
+        private Node(Key key, DefaultCronExpression expression) {
+            this.key = key;
+            this.expression = expression;
+        }
+    }
+
+    /**
+     * A shared instance and the number of nodes which give it or its fields, only changed in the atomic updates
+     * of the map.
+     */
+    private static final class Shared {
+
+        private final DefaultCronExpression expression;
+
+        private int count;
+
+        private Shared(DefaultCronExpression expression) {
+            this.expression = expression;
+            this.count = 1;
+        }
+    }
+
+    /**
+     * An expression compared by its fields only.
+     */
+    private static final class Fields {
+
+        private final DefaultCronExpression expression;
+
+        private Fields(DefaultCronExpression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fields)) {
+                return false;
+            }
+            return expression.hasSameFields(((Fields) o).expression);
+        }
+
+        @Override
+        public int hashCode() {
+            return expression.fieldsHashCode();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package org.xbib.time.schedule;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.function.IntConsumer;
+
+/**
+ * An inverted index over many cron expressions, answering which of them match a given time.
+ * <p>
+ * Every expression gets an id. For every value of the second, minute, hour and month field, the index keeps
+ * a bitmap of the ids of the expressions which contain the value, and years are kept the same way. Day rules
+ * depend on the date as a whole, so the bitmap of the expressions matching a day is computed once per date.
+ * The expressions matching a time are the AND of one bitmap per field, which is a few thousand word
+ * operations for hundreds of thousands of expressions. Expressions which are not field based, like @reboot,
+ * are matched one by one.
+ * <p>
+ * Ids of removed expressions are reused. This class is thread-safe, all methods synchronize on the index.
+ */
+public class CronIndex {
+
+    private static final int BITS = Long.SIZE;
+
+    private final List<CronExpression> expressions;
+
+    private final Bitmaps seconds;
+
+    private final Bitmaps minutes;
+
+    private final Bitmaps hours;
+
+    private final Bitmaps months;
+
+    private long[] anyYear;
+
+    private final Map<Integer, long[]> years;
+
+    private long[] free;
+
+    private long[] others;
+
+    private long[] days;
+
+    private int year;
+
+    private int month;
+
+    private int day;
+
+    private int size;
+
+    private int freeCount;
+
+    public CronIndex() {
+        this.expressions = new ArrayList<>();
+        this.seconds = new Bitmaps(0, 59);
+        this.minutes = new Bitmaps(0, 59);
+        this.hours = new Bitmaps(0, 23);
+        this.months = new Bitmaps(1, 12);
+        this.anyYear = new long[0];
+        this.years = new HashMap<>();
+        this.free = new long[0];
+        this.others = new long[0];
+        this.days = null;
+    }
+
+    /**
+     * Adds an expression to the index.
+     * @param expression the expression
+     * @return the id of the expression
+     */
+    public synchronized int add(CronExpression expression) {
+        int id = nextFreeId();
+        if (id == expressions.size()) {
+            expressions.add(expression);
+            grow(id / BITS + 1);
+        } else {
+            expressions.set(id, expression);
+            clear(free, id);
+            freeCount--;
+        }
+        size++;
+        if (expression instanceof DefaultCronExpression) {
+            DefaultCronExpression e = (DefaultCronExpression) expression;
+            seconds.add(id, e.getSecond());
+            minutes.add(id, e.getMinute());
+            hours.add(id, e.getHour());
+            months.add(id, e.getMonth());
+            TimeField yearField = e.getYear();
+            if (yearField.isFullRange()) {
+                set(anyYear, id);
+            } else {
+                NavigableSet<Integer> numbers = yearField.getNumbers();
+                for (int n : numbers) {
+                    long[] bitmap = years.computeIfAbsent(n, k -> new long[anyYear.length]);
+                    set(bitmap, id);
+                }
+            }
+            if (days != null && e.matchesDay(year, month, day)) {
+                set(days, id);
+            }
+        } else {
+            set(others, id);
+        }
+        return id;
+    }
+
+    /**
+     * Removes an expression from the index.
+     * @param id the id of the expression
+     * @return the expression, or null if there is no expression with this id
+     */
+    public synchronized CronExpression remove(int id) {
+        if (id < 0 || id >= expressions.size() || isSet(free, id)) {
+            return null;
+        }
+        CronExpression expression = expressions.set(id, null);
+        seconds.remove(id);
+        minutes.remove(id);
+        hours.remove(id);
+        months.remove(id);
+        clear(anyYear, id);
+        clear(others, id);
+        years.values().removeIf(bitmap -> {
+            clear(bitmap, id);
+            return isEmpty(bitmap);
+        });
+        if (days != null) {
+            clear(days, id);
+        }
+        set(free, id);
+        freeCount++;
+        size--;
+        return expression;
+    }
+
+    public synchronized CronExpression get(int id) {
+        return id >= 0 && id < expressions.size() ? expressions.get(id) : null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Calls the consumer with the id of every expression matching the given time, in ascending order.
+     * The result is the same as calling {@link CronExpression#matches(ZonedDateTime)} on every expression.
+     * @param time the time
+     * @param consumer the consumer of the ids
+     */
+    public synchronized void forEachMatch(ZonedDateTime time, IntConsumer consumer) {
+        long[] second = seconds.get(time.getSecond());
+        long[] minute = minutes.get(time.getMinute());
+        long[] hour = hours.get(time.getHour());
+        long[] month = months.get(time.getMonthValue());
+        long[] year = years.get(time.getYear());
+        long[] day = days(time.getYear(), time.getMonthValue(), time.getDayOfMonth());
+        for (int i = 0; i < anyYear.length; i++) {
+            long word = second[i] & minute[i] & hour[i] & month[i] & day[i];
+            if (word != 0L) {
+                word &= year != null ? anyYear[i] | year[i] : anyYear[i];
+            }
+            long other = others[i];
+            while (other != 0L) {
+                int id = i * BITS + Long.numberOfTrailingZeros(other);
+                if (expressions.get(id).matches(time)) {
+                    word |= 1L << id;
+                }
+                other &= other - 1;
+            }
+            while (word != 0L) {
+                consumer.accept(i * BITS + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of all expressions matching the given time, in ascending order.
+     * @param time the time
+     * @return the ids
+     */
+    public int[] matches(ZonedDateTime time) {
+        IntList ids = new IntList();
+        forEachMatch(time, ids);
+        return Arrays.copyOf(ids.values, ids.size);
+    }
+
+    private long[] days(int year, int month, int day) {
+        if (days != null && this.year == year && this.month == month && this.day == day) {
+            return days;
+        }
+        long[] bitmap = new long[anyYear.length];
+        for (int id = 0; id < expressions.size(); id++) {
+            CronExpression expression = expressions.get(id);
+            if (expression instanceof DefaultCronExpression &&
+                    ((DefaultCronExpression) expression).matchesDay(year, month, day)) {
+                set(bitmap, id);
+            }
+        }
+        this.days = bitmap;
+        this.year = year;
+        this.month = month;
+        this.day = day;
+        return bitmap;
+    }
+
+    private int nextFreeId() {
+        if (freeCount == 0) {
+            return expressions.size();
+        }
+        for (int i = 0; i < free.length; i++) {
+            if (free[i] != 0L) {
+                return i * BITS + Long.numberOfTrailingZeros(free[i]);
+            }
+        }
+        return expressions.size();
+    }
+
+    private void grow(int length) {
+        if (length <= anyYear.length) {
+            return;
+        }
+        int newLength = Math.max(length, anyYear.length * 3 / 2 + 1);
+        seconds.grow(newLength);
+        minutes.grow(newLength);
+        hours.grow(newLength);
+        months.grow(newLength);
+        anyYear = Arrays.copyOf(anyYear, newLength);
+        years.replaceAll((k, bitmap) -> Arrays.copyOf(bitmap, newLength));
+        free = Arrays.copyOf(free, newLength);
+        others = Arrays.copyOf(others, newLength);
+        if (days != null) {
+            days = Arrays.copyOf(days, newLength);
+        }
+    }
+
+    private static void set(long[] bitmap, int id) {
+        bitmap[id / BITS] |= 1L << id;
+    }
+
+    private static void clear(long[] bitmap, int id) {
+        bitmap[id / BITS] &= ~(1L << id);
+    }
+
+    private static boolean isSet(long[] bitmap, int id) {
+        return (bitmap[id / BITS] & (1L << id)) != 0L;
+    }
+
+    private static boolean isEmpty(long[] bitmap) {
+        for (long word : bitmap) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The bitmaps of one field, one for each value.
+     */
+    private static final class Bitmaps {
+
+        private final int min;
+
+        private final long[][] bitmaps;
+
+        private Bitmaps(int min, int max) {
+            this.min = min;
+            this.bitmaps = new long[max - min + 1][0];
+        }
+
+        private long[] get(int value) {
+            return bitmaps[value - min];
+        }
+
+        private void add(int id, TimeField field) {
+            for (int i = 0; i < bitmaps.length; i++) {
+                if (field.contains(min + i)) {
+                    set(bitmaps[i], id);
+                }
+            }
+        }
+
+        private void remove(int id) {
+            for (long[] bitmap : bitmaps) {
+                clear(bitmap, id);
+            }
+        }
+
+        private void grow(int length) {
+            for (int i = 0; i < bitmaps.length; i++) {
+                bitmaps[i] = Arrays.copyOf(bitmaps[i], length);
+            }
+        }
+    }
+
+    private static final class IntList implements IntConsumer {
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        @Override
+        public void accept(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
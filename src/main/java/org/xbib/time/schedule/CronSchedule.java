@@ -3,23 +3,103 @@ package org.xbib.time.schedule;
 import java.io.Closeable;
 import java.io.IOException;
 import java.time.Clock;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * A schedule of named entries. Entries may be added and removed by any thread at any time,
+ * the tick path never waits for a lock. Entries are kept in a concurrent map by name, which gives
+ * lookup by name in O(1) and weakly consistent iteration. In queued mode, added and removed entries are
+ * handed over to the tick through a lock-free queue, so the {@link EntryQueue} is only ever touched
+ * by one thread at a time.
+ * <p>
+ * The callables of fired entries run on a job executor. By default, this is the scheduled executor service
+ * which also drives the ticks. Long or blocking callables should get their own job executor, for example
+ * {@link java.util.concurrent.Executors#newVirtualThreadPerTaskExecutor()}, so that the scheduled executor
+ * service stays dedicated to timing.
+ * <p>
+ * An entry misfires if the schedule did not get to run it at its next call within the misfire threshold,
+ * for example because the JVM was paused. A tick later than the execution time, but within the threshold, calls
+ * the entry as usual. The {@link MisfirePolicy} of the entry decides whether the missed execution times are
+ * skipped or called now. Misfires are detected from the second an entry has been called for the first time.
+ * <p>
+ * The {@link TransitionPolicy} of the schedule decides what happens to the execution times of the entries
+ * at the transitions of the zone rules of the clock, in both modes.
+ * <p>
+ * With a {@link Partition}, the schedule is one node of a cluster: every node has the same entries,
+ * but only matches and calls the entries assigned to it. An entry taken over from another node starts with
+ * its next execution time, the execution times before were handled by the other node.
+ * <p>
+ * With a {@link Journal}, every call is recorded durably, and {@link #restore()} brings back when the entries
+ * were called last and when they are called next after a restart. Calls missed while the schedule was down
+ * are then handled as misfires.
+ * <p>
+ * The schedule keeps {@link ScheduleMetrics} of its ticks and firings. Callables the job executor rejects
+ * are counted there and not retried. Ticks and the runs of the callables are also recorded as flight recorder
+ * events, when a recording is running.
+ *
+ * @param <T> the result type of the callables
+ */
 public class CronSchedule<T> implements Closeable {
 
     private final ScheduledExecutorService executor;
 
-    private final List<Entry<T>> entries;
+    private final ExecutorService jobExecutor;
+
+    private final ConcurrentMap<String, Entry<T>> entries;
 
     private final int periodInMilliseconds;
 
-    private ScheduledFuture<?> future;
+    private final Mode mode;
+
+    private final Clock clock;
+
+    private final EntryQueue<T> queue;
+
+    private final Queue<Entry<T>> changes;
+
+    private final AtomicInteger work;
+
+    private final List<Entry<T>> fired;
+
+    private final Partition partition;
+
+    private final ScheduleMetrics metrics;
+
+    private volatile int misfireLimit;
+
+    private volatile long misfireThreshold;
+
+    private volatile TransitionPolicy transitionPolicy;
+
+    private volatile Journal journal;
+
+    private volatile ScheduledFuture<?> future;
+
+    private volatile ScheduledFuture<?> heartbeat;
+
+    private volatile boolean started;
+
+    /**
+     * The version of the partition the queue was filled for, only used by the drain loop.
+     */
+    private int queuedVersion;
 
     public CronSchedule(ScheduledExecutorService scheduledExecutorServices) {
         this(scheduledExecutorServices, 60000);
@@ -27,46 +107,314 @@ public class CronSchedule<T> implements Closeable {
 
     public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
                         int periodInMilliseconds) {
+        this(scheduledExecutorServices, periodInMilliseconds, Mode.PERIODIC, Clock.systemDefaultZone());
+    }
+
+    public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
+                        ExecutorService jobExecutor) {
+        this(scheduledExecutorServices, 60000, Mode.PERIODIC, Clock.systemDefaultZone(),
+                new HeapEntryQueue<>(), jobExecutor);
+    }
+
+    public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
+                        Mode mode) {
+        this(scheduledExecutorServices, 60000, mode, Clock.systemDefaultZone());
+    }
+
+    public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
+                        EntryQueue<T> queue) {
+        this(scheduledExecutorServices, 60000, Mode.QUEUED, Clock.systemDefaultZone(), queue);
+    }
+
+    public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
+                        int periodInMilliseconds,
+                        Mode mode,
+                        Clock clock) {
+        this(scheduledExecutorServices, periodInMilliseconds, mode, clock, new HeapEntryQueue<>());
+    }
+
+    public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
+                        int periodInMilliseconds,
+                        Mode mode,
+                        Clock clock,
+                        EntryQueue<T> queue) {
+        this(scheduledExecutorServices, periodInMilliseconds, mode, clock, queue, scheduledExecutorServices);
+    }
+
+    public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
+                        int periodInMilliseconds,
+                        Mode mode,
+                        Clock clock,
+                        EntryQueue<T> queue,
+                        ExecutorService jobExecutor) {
+        this(scheduledExecutorServices, periodInMilliseconds, mode, clock, queue, jobExecutor, null);
+    }
+
+    public CronSchedule(ScheduledExecutorService scheduledExecutorServices,
+                        int periodInMilliseconds,
+                        Mode mode,
+                        Clock clock,
+                        EntryQueue<T> queue,
+                        ExecutorService jobExecutor,
+                        Partition partition) {
         this.executor = scheduledExecutorServices;
-        this.entries = new ArrayList<>();
+        this.jobExecutor = jobExecutor;
+        this.entries = new ConcurrentHashMap<>();
         this.periodInMilliseconds = periodInMilliseconds;
+        this.mode = mode;
+        this.clock = clock;
+        this.queue = queue;
+        this.changes = new ConcurrentLinkedQueue<>();
+        this.work = new AtomicInteger();
+        this.fired = new ArrayList<>();
+        this.partition = partition;
+        this.metrics = new ScheduleMetrics();
+        this.misfireLimit = 100;
+        this.misfireThreshold = 60000L;
+        this.transitionPolicy = TransitionPolicy.DEFAULT;
     }
 
+    /**
+     * Adds an entry. An entry with the same name is replaced.
+     * @param name the name of the entry
+     * @param expression the cron expression
+     * @param callable the callable
+     */
     public void add(String name, CronExpression expression, Callable<T> callable) {
-        entries.add(new Entry<T>(name, expression, callable));
+        add(name, expression, callable, MisfirePolicy.SKIP);
+    }
+
+    /**
+     * Adds an entry with a misfire policy. An entry with the same name is replaced.
+     * @param name the name of the entry
+     * @param expression the cron expression
+     * @param callable the callable
+     * @param misfirePolicy what to do with missed execution times
+     */
+    public void add(String name, CronExpression expression, Callable<T> callable, MisfirePolicy misfirePolicy) {
+        Entry<T> entry = new Entry<T>(name, expression, callable, misfirePolicy, transitionPolicy);
+        Entry<T> replaced = entries.put(name, entry);
+        if (replaced != null) {
+            replaced.cancel();
+            changed(replaced);
+        }
+        changed(entry);
     }
 
     public void remove(String name) {
-        entries.removeIf(entry -> name.equals(entry.getName()));
+        Entry<T> entry = entries.remove(name);
+        if (entry != null) {
+            entry.cancel();
+            changed(entry);
+        }
+    }
+
+    public Entry<T> getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Returns a snapshot of the entries.
+     * @return the entries
+     */
+    public List<Entry<T>> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Returns the upcoming firings of the entries in ascending order of time, for example to show the next
+     * firings of the schedule. The execution times of the entries are merged lazily, every entry is searched
+     * only as far as the firings are read. The entries are taken when the iterator is created, the partition
+     * and misfires are not considered.
+     * @param from the time to start from, exclusive, the firings are in its zone
+     * @param to the time to end with, inclusive
+     * @return the firings
+     */
+    public Iterator<Firing<T>> upcoming(ZonedDateTime from, ZonedDateTime to) {
+        return new FiringIterator<>(entries.values(), from, to);
+    }
+
+    /**
+     * Sets the maximum number of missed execution times an entry with {@link MisfirePolicy#FIRE_ALL}
+     * is called for at once. The default is 100.
+     * @param misfireLimit the misfire limit
+     */
+    public void setMisfireLimit(int misfireLimit) {
+        if (misfireLimit < 0) {
+            throw new IllegalArgumentException("misfire limit must not be negative: " + misfireLimit);
+        }
+        this.misfireLimit = misfireLimit;
+    }
+
+    public int getMisfireLimit() {
+        return misfireLimit;
+    }
+
+    /**
+     * Sets how late after its second an execution time may still be called as usual, for example after a
+     * garbage collection pause or a busy tick thread. Later than that, the entry misfires. The default is
+     * 60 seconds.
+     * @param misfireThresholdInMilliseconds the misfire threshold
+     */
+    public void setMisfireThreshold(long misfireThresholdInMilliseconds) {
+        if (misfireThresholdInMilliseconds < 0L) {
+            throw new IllegalArgumentException("misfire threshold must not be negative: " +
+                    misfireThresholdInMilliseconds);
+        }
+        this.misfireThreshold = misfireThresholdInMilliseconds;
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    /**
+     * Sets the transition policy of the entries added afterwards. The default is {@link TransitionPolicy#DEFAULT}.
+     * @param transitionPolicy the transition policy
+     */
+    public void setTransitionPolicy(TransitionPolicy transitionPolicy) {
+        this.transitionPolicy = Objects.requireNonNull(transitionPolicy);
     }
 
-    public  List<Entry<T>> getEntries() {
-        return entries;
+    public TransitionPolicy getTransitionPolicy() {
+        return transitionPolicy;
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Restores the last and the next call of the entries from the journal. Should be called after adding
+     * the entries and before starting the schedule.
+     * @throws IOException if the journal can not be read
+     */
+    public void restore() throws IOException {
+        Journal j = journal;
+        if (j == null) {
+            throw new IllegalStateException("no journal");
+        }
+        Map<String, long[]> state = j.read();
+        for (Entry<T> entry : entries.values()) {
+            long[] calls = state.get(entry.getName());
+            if (calls != null) {
+                // an entry which was never called keeps no last call, only its next call
+                if (calls[0] != Journal.NONE) {
+                    entry.setLastCalled(toTime(calls[0]));
+                }
+                entry.setNextCall(toTime(calls[1]));
+            }
+        }
+    }
+
+    /**
+     * Writes the state of all entries to the checkpoint of the journal.
+     * @throws IOException if the checkpoint can not be written
+     */
+    public void checkpoint() throws IOException {
+        Journal j = journal;
+        if (j == null) {
+            throw new IllegalStateException("no journal");
+        }
+        j.checkpoint(entries.values());
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Partition getPartition() {
+        return partition;
+    }
+
+    public ScheduleMetrics getMetrics() {
+        return metrics;
     }
 
     public void start() {
-        long initialDelay = periodInMilliseconds - (Clock.systemDefaultZone().millis() % periodInMilliseconds);
+        if (partition != null) {
+            partition.heartbeat();
+            long period = partition.getLeaseMillis() / 3L;
+            this.heartbeat = executor.scheduleAtFixedRate(CronSchedule.this::heartbeat, period, period,
+                    TimeUnit.MILLISECONDS);
+        }
+        if (mode == Mode.QUEUED) {
+            started = true;
+            changes.addAll(entries.values());
+            submitWork();
+            return;
+        }
+        long initialDelay = periodInMilliseconds - (clock.millis() % periodInMilliseconds);
         this.future = executor.scheduleAtFixedRate(CronSchedule.this::run,
                 initialDelay, periodInMilliseconds, TimeUnit.MILLISECONDS);
     }
 
     public void run() {
-        run(ZonedDateTime.now());
+        run(ZonedDateTime.now(clock));
     }
 
     public void run(ZonedDateTime time) {
-        for (Entry<T> entry : entries) {
-            if (entry.getCronExpression().matches(time)) {
+        TickEvent event = new TickEvent();
+        boolean recording = event.isEnabled();
+        if (recording) {
+            event.begin();
+        }
+        int matched = 0;
+        long epochSecond = time.toEpochSecond();
+        long millis = time.toInstant().toEpochMilli();
+        // the start of the period, the same on all nodes of a cluster
+        long firing = Math.floorDiv(millis, periodInMilliseconds) * periodInMilliseconds / 1000L;
+        int scanned = 0;
+        for (Entry<T> entry : entries.values()) {
+            if (partition != null && !owns(entry, time)) {
+                continue;
+            }
+            scanned++;
+            boolean matches = entry.matches(time);
+            ZonedDateTime nextCall = entry.getNextCall();
+            if (nextCall != null && nextCall.toEpochSecond() < epochSecond) {
+                if (isMisfire(nextCall.toEpochSecond(), millis)) {
+                    misfire(entry, time, matches);
+                } else {
+                    // late, but within the misfire threshold, the execution time is called as usual,
+                    // the current time only if it is a later execution time
+                    matched++;
+                    entry.setLastCalled(nextCall);
+                    call(entry, nextCall.toEpochSecond(), 1L);
+                    ZonedDateTime next = entry.getNextCall();
+                    matches = matches && next != null && next.toEpochSecond() <= epochSecond;
+                }
+            }
+            if (matches) {
+                matched++;
                 entry.setLastCalled(time);
-                executor.submit(entry.getCallable());
+                call(entry, firing, 1L);
             }
         }
+        metrics.tick(scanned);
+        if (recording) {
+            commit(event, scanned, matched);
+        }
     }
 
     @Override
     public void close() throws IOException {
-        if (future != null) {
-            future.cancel(true);
+        started = false;
+        ScheduledFuture<?> h = heartbeat;
+        if (h != null) {
+            h.cancel(true);
+            heartbeat = null;
+        }
+        if (partition != null) {
+            partition.leave();
+        }
+        ScheduledFuture<?> f = future;
+        if (f != null) {
+            f.cancel(true);
             future = null;
         }
         if (executor != null) {
@@ -77,10 +425,327 @@ public class CronSchedule<T> implements Closeable {
                 throw new IOException(e);
             }
         }
+        if (jobExecutor != null && jobExecutor != executor) {
+            jobExecutor.shutdownNow();
+            try {
+                jobExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
     }
 
     @Override
     public String toString() {
-        return entries.toString();
+        return entries.values().toString();
+    }
+
+    /**
+     * Renews the lease of this node. In queued mode, a change of the partition wakes up the drain loop,
+     * which puts the entries assigned to this node into the queue.
+     */
+    private void heartbeat() {
+        int version = partition.getVersion();
+        partition.heartbeat();
+        if (mode == Mode.QUEUED && started && partition.getVersion() != version) {
+            submitWork();
+        }
+    }
+
+    /**
+     * Returns true if this node of the cluster calls an entry. The assignment is only looked up again when
+     * the version of the partition has changed. An entry taken over from another node starts over with its
+     * next execution time from the given time on, since the other node has handled the execution times before.
+     *
+     * @param entry the entry
+     * @param time the current time
+     * @return true if this node calls the entry
+     */
+    private boolean owns(Entry<T> entry, ZonedDateTime time) {
+        int version = partition.getVersion();
+        if (entry.partitionVersion != version) {
+            boolean owned = partition.owns(entry.getName());
+            if (owned && !entry.owned) {
+                entry.setNextCall(entry.nextExecution(time.minusSeconds(1L)));
+            }
+            entry.owned = owned;
+            entry.partitionVersion = version;
+        }
+        return entry.owned;
+    }
+
+    private void changed(Entry<T> entry) {
+        if (mode == Mode.QUEUED && started) {
+            changes.add(entry);
+            submitWork();
+        }
+    }
+
+    private void submitWork() {
+        if (work.getAndIncrement() == 0) {
+            executor.execute(CronSchedule.this::drain);
+        }
+    }
+
+    private void tick() {
+        if (work.getAndIncrement() == 0) {
+            drain();
+        }
+    }
+
+    /**
+     * Runs the work of the queued mode in a drain loop. Only the thread which moved the work counter
+     * away from zero runs the loop, a thread which finds the work in progress only increments the counter,
+     * so the running loop takes another round instead of waiting for a lock.
+     */
+    private void drain() {
+        int missed = 1;
+        do {
+            if (started) {
+                if (partition != null && partition.getVersion() != queuedVersion) {
+                    // the assignment of the entries has changed, put the entries of this node into the queue
+                    queuedVersion = partition.getVersion();
+                    changes.addAll(entries.values());
+                }
+                applyChanges();
+                fire();
+                scheduleNext();
+            }
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void applyChanges() {
+        Entry<T> entry;
+        ZonedDateTime now = null;
+        while ((entry = changes.poll()) != null) {
+            if (entry.isCancelled()) {
+                queue.remove(entry);
+            } else {
+                if (now == null) {
+                    now = ZonedDateTime.now(clock);
+                }
+                queue.remove(entry);
+                enqueue(entry, now);
+            }
+        }
+    }
+
+    /**
+     * Fires all queued entries which are due and puts them back with their next execution time.
+     */
+    private void fire() {
+        TickEvent event = new TickEvent();
+        boolean recording = event.isEnabled();
+        if (recording) {
+            event.begin();
+        }
+        long millis = clock.millis();
+        long epochSecond = millis / 1000L;
+        queue.poll(epochSecond, fired::add);
+        metrics.tick(fired.size());
+        if (recording) {
+            commit(event, fired.size(), fired.size());
+        }
+        ZonedDateTime now = null;
+        for (Entry<T> entry : fired) {
+            if (entry.isCancelled()) {
+                continue;
+            }
+            long firing = entry.getNextCall().toEpochSecond();
+            if (isMisfire(firing, millis)) {
+                if (now == null) {
+                    now = ZonedDateTime.now(clock);
+                }
+                boolean matches = entry.matches(now);
+                misfire(entry, now, matches);
+                if (matches) {
+                    entry.setLastCalled(now);
+                    call(entry, now.toEpochSecond(), 1L);
+                }
+            } else {
+                entry.setLastCalled(entry.getNextCall());
+                call(entry, firing, 1L);
+            }
+            if (entry.getNextCall() != null) {
+                queue.add(entry);
+            }
+        }
+        fired.clear();
+    }
+
+    /**
+     * Returns true if an execution time is reached later than the misfire threshold after the end of its second.
+     *
+     * @param firing the execution time, in epoch seconds
+     * @param millis the current time, in epoch milliseconds
+     * @return true if the execution time is missed
+     */
+    private boolean isMisfire(long firing, long millis) {
+        return (firing + 1L) * 1000L + misfireThreshold <= millis;
+    }
+
+    /**
+     * Applies the misfire policy of an entry whose next call is missed. The missed execution times are counted
+     * with a forward search from the next call, the execution time matching the given time, if any, is not
+     * missed. Afterwards, the next call of the entry is after the given time. The misfire counts as skipped
+     * if the entry is not called at all.
+     *
+     * @param entry the entry
+     * @param time the current time
+     * @param matches true if the entry matches the current time and is called anyway
+     */
+    private void misfire(Entry<T> entry, ZonedDateTime time, boolean matches) {
+        MisfirePolicy misfirePolicy = entry.getMisfirePolicy();
+        if (misfirePolicy != MisfirePolicy.SKIP) {
+            int limit = misfireLimit;
+            ZonedDateTime nextCall = entry.getNextCall();
+            long missed = entry.getCronExpression()
+                    .executionEpochSeconds(nextCall.minusSeconds(1L), time, entry.getTransitionPolicy())
+                    .limit(limit + 1L)
+                    .count();
+            if (matches) {
+                missed--;
+            }
+            missed = misfirePolicy == MisfirePolicy.FIRE_ONCE ?
+                    Math.min(missed, matches ? 0L : 1L) : Math.min(missed, limit);
+            if (missed > 0) {
+                metrics.misfired(false);
+                // the caught up state is recorded, so the missed calls are not made again after a restart
+                entry.setLastCalled(time);
+                call(entry, nextCall.toEpochSecond(), missed);
+                return;
+            }
+        }
+        metrics.misfired(!matches);
+        entry.setNextCall(entry.nextExecution(time));
+        record(entry);
+    }
+
+    /**
+     * Records the state of an entry and submits its callable to the job executor, if this node of the cluster,
+     * if any, calls the entry for the firing.
+     *
+     * @param entry the entry
+     * @param firing the execution time identifying the firing in the cluster, in epoch seconds
+     * @param times the number of times to call the entry
+     */
+    private void call(Entry<T> entry, long firing, long times) {
+        record(entry);
+        if (partition == null || partition.acquire(entry.getName(), firing, misfireThreshold)) {
+            for (long i = 0; i < times; i++) {
+                submit(entry, firing);
+            }
+        }
+    }
+
+    /**
+     * Submits the callable of an entry to the job executor, measuring its lag and its run time.
+     *
+     * @param entry the entry
+     * @param firing the execution time, in epoch seconds
+     */
+    private void submit(Entry<T> entry, long firing) {
+        Callable<T> callable = entry.getCallable();
+        metrics.submitted();
+        try {
+            jobExecutor.submit(() -> {
+                long lag = clock.millis() - firing * 1000L;
+                metrics.started(lag);
+                FiringEvent event = new FiringEvent();
+                boolean recording = event.isEnabled();
+                if (recording) {
+                    event.begin();
+                }
+                long start = System.nanoTime();
+                boolean success = false;
+                try {
+                    T result = callable.call();
+                    success = true;
+                    return result;
+                } finally {
+                    metrics.completed(entry, System.nanoTime() - start, success);
+                    if (recording && event.shouldCommit()) {
+                        event.entry = entry.getName();
+                        CronExpression expression = entry.getCronExpression();
+                        event.expression = expression instanceof DefaultCronExpression ?
+                                ((DefaultCronExpression) expression).getString() : expression.toString();
+                        event.executionTime = firing * 1000L;
+                        event.lag = lag;
+                        event.success = success;
+                        event.commit();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.rejected();
+        }
+    }
+
+    private void commit(TickEvent event, int scanned, int fired) {
+        if (event.shouldCommit()) {
+            event.mode = mode.name();
+            event.scanned = scanned;
+            event.fired = fired;
+            event.commit();
+        }
+    }
+
+    private void record(Entry<T> entry) {
+        Journal j = journal;
+        if (j != null) {
+            j.append(entry);
+        }
+    }
+
+    private ZonedDateTime toTime(long epochSecond) {
+        return epochSecond != Journal.NONE ?
+                ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), clock.getZone()) : null;
+    }
+
+    private void enqueue(Entry<T> entry, ZonedDateTime now) {
+        if (partition != null && !owns(entry, now)) {
+            return;
+        }
+        // keep a restored next call, if it has passed, the entry misfires
+        ZonedDateTime nextCall = entry.getNextCall() != null ? entry.getNextCall() : entry.nextExecution(now);
+        if (nextCall == null) {
+            // entries without execution times, like @reboot, only get a chance to run now
+            if (entry.getCronExpression().matches(now)) {
+                entry.setLastCalled(now);
+                call(entry, now.toEpochSecond(), 1L);
+            }
+            return;
+        }
+        entry.setNextCall(nextCall);
+        queue.add(entry);
+    }
+
+    private void scheduleNext() {
+        ScheduledFuture<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+            future = null;
+        }
+        long nextTime = queue.nextTime();
+        if (nextTime != Long.MAX_VALUE) {
+            long delay = nextTime * 1000L - clock.millis();
+            future = executor.schedule(CronSchedule.this::tick, Math.max(0L, delay), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * The ways a schedule finds the entries to fire.
+     */
+    public enum Mode {
+        /**
+         * Wake up periodically and check every entry if it matches the current time.
+         */
+        PERIODIC,
+        /**
+         * Keep the entries in an {@link EntryQueue} ordered by their next execution time,
+         * wake up when the earliest entry is due, and only put back the entries which fired.
+         */
+        QUEUED
     }
 }
@@ -0,0 +1,186 @@
+package org.xbib.time.schedule;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * The entries of a crontab, as loaded by a {@link CrontabLoader}, and the diagnostics of the lines
+ * which could not be loaded.
+ */
+public class Crontab {
+
+    private final String source;
+
+    private final List<Line> lines;
+
+    private final List<Diagnostic> diagnostics;
+
+    private final int lineCount;
+
+    Crontab(String source, List<Line> lines, List<Diagnostic> diagnostics, int lineCount) {
+        this.source = source;
+        this.lines = lines;
+        this.diagnostics = diagnostics;
+        this.lineCount = lineCount;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the lines with a cron expression and a command, in the order of the crontab.
+     * @return the lines
+     */
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the diagnostics of the lines which could not be loaded, in the order of the crontab.
+     * @return the diagnostics
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Returns the number of lines of the crontab, including comments, blank lines, and environment lines.
+     * @return the line count
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public boolean isValid() {
+        return diagnostics.isEmpty();
+    }
+
+    /**
+     * Adds an entry to a schedule for each line, named by {@link Line#getName()}.
+     * @param schedule the schedule
+     * @param callables creates the callable of a line, which usually runs its command
+     * @param <T> the result type of the callables
+     */
+    public <T> void addTo(CronSchedule<T> schedule, Function<Line, Callable<T>> callables) {
+        for (Line line : lines) {
+            schedule.add(line.getName(), line.getExpression(), callables.apply(line));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Crontab[source=" + source + ",lines=" + lineCount + ",entries=" + lines.size() +
+                ",diagnostics=" + diagnostics.size() + "]";
+    }
+
+    /**
+     * A line of a crontab with a cron expression and a command.
+     */
+    public static final class Line {
+
+        private final String source;
+
+        private final CronExpression expression;
+
+        private final String command;
+
+        // assigned when the chunks of the crontab are put together, before the crontab is returned
+
+        int number;
+
+        Map<String, String> environment;
+
+        Line(String source, int number, CronExpression expression, String command) {
+            this.source = source;
+            this.number = number;
+            this.expression = expression;
+            this.command = command;
+        }
+
+        /**
+         * Returns the name of the line, the source of the crontab and the line number, like "crontab:12".
+         * @return the name
+         */
+        public String getName() {
+            return source + ":" + number;
+        }
+
+        /**
+         * Returns the line number, starting at 1.
+         * @return the line number
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        public CronExpression getExpression() {
+            return expression;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        /**
+         * Returns the variables set by the environment lines before this line.
+         * @return the environment
+         */
+        public Map<String, String> getEnvironment() {
+            return environment;
+        }
+
+        @Override
+        public String toString() {
+            return getName() + " " + expression + " " + command;
+        }
+    }
+
+    /**
+     * The reason why a line of a crontab could not be loaded.
+     */
+    public static final class Diagnostic {
+
+        private final String source;
+
+        private final int column;
+
+        private final String message;
+
+        int number;
+
+        Diagnostic(String source, int number, int column, String message) {
+            this.source = source;
+            this.number = number;
+            this.column = column;
+            this.message = message;
+        }
+
+        /**
+         * Returns the line number, starting at 1.
+         * @return the line number
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the column of the error, starting at 1.
+         * @return the column
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return source + ":" + number + ":" + column + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package org.xbib.time.schedule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads crontabs. A file is memory-mapped and split into chunks at line boundaries, the chunks are parsed
+ * in parallel on a fork-join pool and put together in order.
+ * <p>
+ * A line of a crontab is blank, a comment starting with '#', an environment line "NAME=value", or an entry:
+ * the fields of a cron expression, or an alias like "@daily", followed by the command. The number of fields
+ * is given by the parser, 5, or 6 with a seconds field. H tokens are derived from the command of the line.
+ * Lines which can not be parsed are reported as {@link Crontab.Diagnostic}s, and do not stop the loading.
+ * <p>
+ * Use a parser with a {@link CronExpressionCache}, so that the many equal expressions of a large crontab
+ * are parsed once and shared. Files are read as UTF-8.
+ */
+public class CrontabLoader {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+
+    private final CronExpression.Parser parser;
+
+    private final int fields;
+
+    private ForkJoinPool pool;
+
+    private int chunkSize;
+
+    public CrontabLoader() {
+        this(CronExpression.parser().withCache(new CronExpressionCache(4096)));
+    }
+
+    /**
+     * Creates a loader. The parser must not be changed while the loader is used.
+     * @param parser the parser for the cron expressions
+     */
+    public CrontabLoader(CronExpression.Parser parser) {
+        this.parser = parser;
+        this.fields = parser.hasSecondsField() ? 6 : 5;
+        this.pool = ForkJoinPool.commonPool();
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    public CrontabLoader withPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Sets the size of the chunks which are parsed in parallel. The default is 4 MB.
+     * @param chunkSize the chunk size in bytes or characters
+     * @return this loader
+     */
+    public CrontabLoader withChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Loads a crontab file.
+     * @param path the path of the file
+     * @return the crontab, with the file name as source
+     * @throws IOException if the file can not be read
+     */
+    public Crontab load(Path path) throws IOException {
+        String source = String.valueOf(path.getFileName());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Chunk> chunks = new ArrayList<>();
+            long start = 0L;
+            while (start < size) {
+                long end = start + chunkSize < size ? nextLine(channel, start + chunkSize - 1L, size) : size;
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("line too long at byte " + start + " in " + path);
+                }
+                chunks.add(new Chunk(source, channel, start, (int) (end - start)));
+                start = end;
+            }
+            try {
+                return join(source, chunks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Loads a crontab from characters.
+     * @param source the name of the crontab, for the names of the lines and for the diagnostics
+     * @param text the crontab
+     * @return the crontab
+     */
+    public Crontab load(String source, CharSequence text) {
+        List<Chunk> chunks = new ArrayList<>();
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            if (length - start > chunkSize) {
+                end = start + chunkSize - 1;
+                while (end < length && text.charAt(end) != '\n') {
+                    end++;
+                }
+            }
+            end = end < length && end > start ? end + 1 : length;
+            chunks.add(new Chunk(source, CharBuffer.wrap(text, start, end)));
+            start = end;
+        }
+        return join(source, chunks);
+    }
+
+    private Crontab join(String source, List<Chunk> chunks) {
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            tasks.add(pool.submit(chunk::parse));
+        }
+        List<Crontab.Line> lines = new ArrayList<>();
+        List<Crontab.Diagnostic> diagnostics = new ArrayList<>();
+        Map<String, String> environment = Collections.emptyMap();
+        int base = 0;
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            int e = 0;
+            for (Crontab.Line line : chunk.lines) {
+                while (e < chunk.variables.size() && chunk.variables.get(e).number < line.number) {
+                    environment = set(environment, chunk.variables.get(e++));
+                }
+                line.number += base;
+                line.environment = environment;
+                lines.add(line);
+            }
+            while (e < chunk.variables.size()) {
+                environment = set(environment, chunk.variables.get(e++));
+            }
+            for (Crontab.Diagnostic diagnostic : chunk.diagnostics) {
+                diagnostic.number += base;
+                diagnostics.add(diagnostic);
+            }
+            base += chunk.lineCount;
+        }
+        return new Crontab(source, Collections.unmodifiableList(lines), Collections.unmodifiableList(diagnostics),
+                base);
+    }
+
+    private static Map<String, String> set(Map<String, String> environment, Variable variable) {
+        Map<String, String> map = new HashMap<>(environment);
+        map.put(variable.name, variable.value);
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns the position after the next line feed at or after the given position.
+     */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long p = position;
+        while (p < size) {
+            buffer.clear();
+            int n = channel.read(buffer, p);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isNameStart(char c) {
+        return ('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z') || c == '_';
+    }
+
+    private static boolean isNamePart(char c) {
+        return isNameStart(c) || ('0' <= c && c <= '9');
+    }
+
+    /**
+     * The lines of a part of a crontab, numbered from 1 within the part.
+     */
+    private final class Chunk {
+
+        private final String source;
+
+        private final FileChannel channel;
+
+        private final long position;
+
+        private final int size;
+
+        private CharSequence text;
+
+        private final List<Crontab.Line> lines;
+
+        private final List<Crontab.Diagnostic> diagnostics;
+
+        private final List<Variable> variables;
+
+        private final ParseResult result;
+
+        private int lineCount;
+
+        private Chunk(String source, FileChannel channel, long position, int size) {
+            this.source = source;
+            this.channel = channel;
+            this.position = position;
+            this.size = size;
+            this.lines = new ArrayList<>();
+            this.diagnostics = new ArrayList<>();
+            this.variables = new ArrayList<>();
+            this.result = new ParseResult();
+        }
+
+        private Chunk(String source, CharSequence text) {
+            this(source, null, 0L, text.length());
+            this.text = text;
+        }
+
+        private Chunk parse() {
+            if (text == null) {
+                try {
+                    text = new ByteSequence(channel.map(FileChannel.MapMode.READ_ONLY, position, size), 0, size);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int length = text.length();
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && text.charAt(end) != '\n') {
+                    end++;
+                }
+                int next = end + 1;
+                if (end > start && text.charAt(end - 1) == '\r') {
+                    end--;
+                }
+                parseLine(++lineCount, start, end);
+                start = next;
+            }
+            text = null;
+            return this;
+        }
+
+        private void parseLine(int number, int start, int end) {
+            int i = skipBlank(start, end);
+            if (i == end || text.charAt(i) == '#') {
+                return;
+            }
+            int j;
+            char c = text.charAt(i);
+            if (c == '@') {
+                j = skipWord(i, end);
+            } else if (isNameStart(c) && parseVariable(number, i, end)) {
+                return;
+            } else {
+                j = i;
+                for (int field = 0; field < fields; field++) {
+                    if (j == end) {
+                        diagnostics.add(new Crontab.Diagnostic(source, number, j - start + 1,
+                                "Expected " + fields + " fields and a command"));
+                        return;
+                    }
+                    j = skipBlank(skipWord(j, end), end);
+                }
+                while (j > i && isBlank(text.charAt(j - 1))) {
+                    j--;
+                }
+            }
+            int k = skipBlank(j, end);
+            if (k == end) {
+                diagnostics.add(new Crontab.Diagnostic(source, number, k - start + 1, "Missing command"));
+                return;
+            }
+            int e = end;
+            while (isBlank(text.charAt(e - 1))) {
+                e--;
+            }
+            String command = text.subSequence(k, e).toString();
+            CharSequence string = text.subSequence(i, j);
+            CronExpression expression = parser.parse(string, hasHash(string) ? command : null, result);
+            if (expression == null) {
+                int column = (result.getPosition() >= 0 ? i + result.getPosition() : i) - start + 1;
+                diagnostics.add(new Crontab.Diagnostic(source, number, column, result.getMessage()));
+                return;
+            }
+            lines.add(new Crontab.Line(source, number, expression, command));
+        }
+
+        /**
+         * Parses "NAME=value" or "NAME = value", where the value may be quoted.
+         * @return false if the line is not an environment line
+         */
+        private boolean parseVariable(int number, int start, int end) {
+            int i = start + 1;
+            while (i < end && isNamePart(text.charAt(i))) {
+                i++;
+            }
+            int j = skipBlank(i, end);
+            if (j == end || text.charAt(j) != '=') {
+                return false;
+            }
+            int k = skipBlank(j + 1, end);
+            int e = end;
+            while (e > k && isBlank(text.charAt(e - 1))) {
+                e--;
+            }
+            if (e - k >= 2 && (text.charAt(k) == '"' || text.charAt(k) == '\'') && text.charAt(e - 1) == text.charAt(k)) {
+                k++;
+                e--;
+            }
+            variables.add(new Variable(number, text.subSequence(start, i).toString(), text.subSequence(k, e).toString()));
+            return true;
+        }
+
+        private boolean hasHash(CharSequence s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == 'H' || c == 'h') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int skipBlank(int i, int end) {
+            int j = i;
+            while (j < end && isBlank(text.charAt(j))) {
+                j++;
+            }
+            return j;
+        }
+
+        private int skipWord(int i, int end) {
+            int j = i;
+            while (j < end && !isBlank(text.charAt(j))) {
+                j++;
+            }
+            return j;
+        }
+    }
+
+    private static final class Variable {
+
+        private final int number;
+
+        private final String name;
+
+        private final String value;
+
+        private Variable(int number, String name, String value) {
+            this.number = number;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The bytes of a buffer as characters. Bytes of ASCII characters, which make up cron expressions,
+     * are read one by one, {@link #toString()} decodes UTF-8.
+     */
+    private static final class ByteSequence implements CharSequence {
+
+        private final ByteBuffer buffer;
+
+        private final int offset;
+
+        private final int length;
+
+        private ByteSequence(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteSequence(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
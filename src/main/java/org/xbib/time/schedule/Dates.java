@@ -0,0 +1,129 @@
+package org.xbib.time.schedule;
+
+/**
+ * Calendar arithmetic on primitive year, month, and day values of the ISO calendar.
+ */
+final class Dates {
+
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
+    private Dates() {
+    }
+
+    static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the epoch day of a date, computed like {@link java.time.LocalDate#toEpochDay()}.
+     * @param year the year
+     * @param month the month, from 1 to 12
+     * @param day the day of month, from 1 to 31
+     * @return the epoch day
+     */
+    static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Returns the date of an epoch day, computed like {@link java.time.LocalDate#ofEpochDay(long)}, packed
+     * into an int as year, month, and day, which are taken apart by {@link #year(int)}, {@link #month(int)},
+     * and {@link #day(int)}.
+     * @param epochDay the epoch day
+     * @return the packed date
+     */
+    static int ofEpochDay(long epochDay) {
+        long zeroDay = epochDay + DAYS_0000_TO_1970 - 60L;
+        long adjust = 0L;
+        if (zeroDay < 0L) {
+            long cycles = (zeroDay + 1L) / 146097L - 1L;
+            adjust = cycles * 400L;
+            zeroDay += -cycles * 146097L;
+        }
+        long yearEstimate = (400L * zeroDay + 591L) / 146097L;
+        long dayOfYearEstimate = zeroDay - (365L * yearEstimate + yearEstimate / 4L - yearEstimate / 100L +
+                yearEstimate / 400L);
+        if (dayOfYearEstimate < 0L) {
+            yearEstimate--;
+            dayOfYearEstimate = zeroDay - (365L * yearEstimate + yearEstimate / 4L - yearEstimate / 100L +
+                    yearEstimate / 400L);
+        }
+        // the estimated year starts in March
+        int marchDayOfYear = (int) dayOfYearEstimate;
+        int marchMonth = (marchDayOfYear * 5 + 2) / 153;
+        int month = (marchMonth + 2) % 12 + 1;
+        int day = marchDayOfYear - (marchMonth * 306 + 5) / 10 + 1;
+        int year = (int) (yearEstimate + adjust + marchMonth / 10);
+        return year << 9 | month << 5 | day;
+    }
+
+    static int year(int date) {
+        return date >> 9;
+    }
+
+    static int month(int date) {
+        return (date >>> 5) & 15;
+    }
+
+    static int day(int date) {
+        return date & 31;
+    }
+
+    /**
+     * Returns the day of year of a date.
+     * @param year the year
+     * @param month the month, from 1 to 12
+     * @param day the day of month, from 1 to 31
+     * @return the day of year, from 1 to 366
+     */
+    static int dayOfYear(int year, int month, int day) {
+        int dayOfYear = (367 * month - 362) / 12 + day;
+        if (month > 2) {
+            dayOfYear--;
+            if (!isLeapYear(year)) {
+                dayOfYear--;
+            }
+        }
+        return dayOfYear;
+    }
+
+    /**
+     * Returns the ISO day of week of a date.
+     * @param year the year
+     * @param month the month, from 1 to 12
+     * @param day the day of month, from 1 to 31
+     * @return the day of week, from 1 (Monday) to 7 (Sunday)
+     */
+    static int dayOfWeek(int year, int month, int day) {
+        return (int) Math.floorMod(epochDay(year, month, day) + 3, 7L) + 1;
+    }
+}
@@ -0,0 +1,101 @@
+package org.xbib.time.schedule;
+
+/**
+ * The days of one year which match both the day of month and the day of week field of an expression,
+ * as a bitmap indexed by day of year minus one. All day rules, including L, W and #, are evaluated once
+ * when the calendar is built, so matching a day is a single bit test, and the next or previous matching day
+ * is found by a bit scan. Instances are immutable.
+ */
+final class DayCalendar {
+
+    private final int year;
+
+    private final long[] bits;
+
+    DayCalendar(int year, DayOfMonthField dayOfMonth, DayOfWeekField dayOfWeek) {
+        this.year = year;
+        this.bits = new long[6];
+        int index = 0;
+        for (int month = 1; month <= 12; month++) {
+            int length = Dates.lengthOfMonth(year, month);
+            for (int day = 1; day <= length; day++) {
+                if (dayOfMonth.matches(year, month, day) && dayOfWeek.matches(year, month, day)) {
+                    bits[index >>> 6] |= 1L << index;
+                }
+                index++;
+            }
+        }
+    }
+
+    int getYear() {
+        return year;
+    }
+
+    boolean contains(int month, int day) {
+        int index = Dates.dayOfYear(year, month, day) - 1;
+        return (bits[index >>> 6] & (1L << index)) != 0L;
+    }
+
+    /**
+     * Returns the number of matching days in a range of days of the year.
+     * @param from the day of year minus one to start from, inclusive
+     * @param to the day of year minus one to end with, exclusive
+     * @return the number of matching days
+     */
+    int count(int from, int to) {
+        int count = 0;
+        for (int i = from >>> 6; from < to; i++) {
+            long word = bits[i] & (-1L << from);
+            int end = (i + 1) << 6;
+            if (to < end) {
+                word &= (1L << to) - 1L;
+            }
+            count += Long.bitCount(word);
+            from = end;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first matching day of the month on or after the given day.
+     * @param month the month
+     * @param day the day of month
+     * @return the day of month, or -1 if there is no matching day left in the month
+     */
+    int next(int month, int day) {
+        int first = Dates.dayOfYear(year, month, 1) - 1;
+        int last = first + Dates.lengthOfMonth(year, month) - 1;
+        int index = first + day - 1;
+        int i = index >>> 6;
+        long word = bits[i] & (-1L << index);
+        while (word == 0L) {
+            if (++i == bits.length || i << 6 > last) {
+                return -1;
+            }
+            word = bits[i];
+        }
+        int found = (i << 6) + Long.numberOfTrailingZeros(word);
+        return found <= last ? found - first + 1 : -1;
+    }
+
+    /**
+     * Returns the last matching day of the month on or before the given day.
+     * @param month the month
+     * @param day the day of month
+     * @return the day of month, or -1 if there is no matching day left in the month
+     */
+    int previous(int month, int day) {
+        int first = Dates.dayOfYear(year, month, 1) - 1;
+        int index = first + day - 1;
+        int i = index >>> 6;
+        long word = bits[i] & (-1L >>> (63 - (index & 63)));
+        while (word == 0L) {
+            if (--i < 0 || (i << 6) + 63 < first) {
+                return -1;
+            }
+            word = bits[i];
+        }
+        int found = (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+        return found >= first ? found - first + 1 : -1;
+    }
+}
@@ -1,11 +1,17 @@
 package org.xbib.time.schedule;
 
+import java.nio.ByteBuffer;
 import java.time.DayOfWeek;
 import java.time.ZonedDateTime;
-import java.time.temporal.TemporalAdjusters;
 
 public class DayOfMonthField extends DefaultField {
 
+    private static final int LAST_DAY = 2;
+
+    private static final int NEAREST_WEEKDAY = 4;
+
+    private static final int UNSPECIFIED = 8;
+
     private final boolean lastDay;
 
     private final boolean nearestWeekday;
@@ -19,22 +25,40 @@ public class DayOfMonthField extends DefaultField {
         this.unspecified = b.unspecified;
     }
 
+    private DayOfMonthField(int flags, ByteBuffer buffer) {
+        super(flags, buffer);
+        this.lastDay = (flags & LAST_DAY) != 0;
+        this.nearestWeekday = (flags & NEAREST_WEEKDAY) != 0;
+        this.unspecified = (flags & UNSPECIFIED) != 0;
+    }
+
     public boolean isUnspecified() {
         return unspecified;
     }
 
     public boolean matches(ZonedDateTime time) {
+        return matches(time.getYear(), time.getMonthValue(), time.getDayOfMonth());
+    }
+
+    public boolean matches(int year, int month, int dayOfMonth) {
         if (unspecified) {
             return true;
         }
-        final int dayOfMonth = time.getDayOfMonth();
         if (lastDay) {
-            return dayOfMonth == time.with(TemporalAdjusters.lastDayOfMonth()).getDayOfMonth();
+            return dayOfMonth == Dates.lengthOfMonth(year, month);
         } else if (nearestWeekday) {
-            DayOfWeek dayOfWeek = time.getDayOfWeek();
-            if ((dayOfWeek == DayOfWeek.MONDAY && contains(time.minusDays(1).getDayOfMonth()))
-                    || (dayOfWeek == DayOfWeek.FRIDAY && contains(time.plusDays(1).getDayOfMonth()))) {
-                return true;
+            int dayOfWeek = Dates.dayOfWeek(year, month, dayOfMonth);
+            if (dayOfWeek == DayOfWeek.MONDAY.getValue()) {
+                int previous = dayOfMonth > 1 ? dayOfMonth - 1 :
+                        Dates.lengthOfMonth(month > 1 ? year : year - 1, month > 1 ? month - 1 : 12);
+                if (contains(previous)) {
+                    return true;
+                }
+            } else if (dayOfWeek == DayOfWeek.FRIDAY.getValue()) {
+                int next = dayOfMonth < Dates.lengthOfMonth(year, month) ? dayOfMonth + 1 : 1;
+                if (contains(next)) {
+                    return true;
+                }
             }
         }
         return contains(dayOfMonth);
@@ -44,6 +68,16 @@ public class DayOfMonthField extends DefaultField {
         return new Builder().parse(s).build();
     }
 
+    @Override
+    int flags() {
+        return super.flags() | (lastDay ? LAST_DAY : 0) | (nearestWeekday ? NEAREST_WEEKDAY : 0) |
+                (unspecified ? UNSPECIFIED : 0);
+    }
+
+    static DayOfMonthField read(ByteBuffer buffer) {
+        return new DayOfMonthField(buffer.get(), buffer);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -114,6 +148,14 @@ public class DayOfMonthField extends DefaultField {
             }
         }
 
+        /**
+         * H stands for a day from 1 to 28, which exists in every month.
+         */
+        @Override
+        protected int hashLast(int last) {
+            return Math.min(last, 28);
+        }
+
         @Override
         protected DayOfMonthField build() {
             return new DayOfMonthField(this);
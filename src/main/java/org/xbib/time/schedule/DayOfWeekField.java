@@ -2,14 +2,15 @@ package org.xbib.time.schedule;
 
 import org.xbib.time.util.LinkedHashSetMultiMap;
 import org.xbib.time.util.MultiMap;
-import java.time.DayOfWeek;
+import java.nio.ByteBuffer;
 import java.time.ZonedDateTime;
-import java.time.temporal.TemporalAdjusters;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class DayOfWeekField extends DefaultField {
 
+    private static final int UNSPECIFIED = 8;
+
     private final MultiMap<Integer, Integer> nth;
 
     private final Set<Integer> last;
@@ -29,26 +30,49 @@ public class DayOfWeekField extends DefaultField {
         unspecified = b.unspecified;
     }
 
+    /**
+     * Reads a field written by {@link #write(ByteBuffer)}. The days of week of L are followed by the
+     * pairs of day of week and n of #.
+     */
+    private DayOfWeekField(int flags, ByteBuffer buffer) {
+        super(flags, buffer);
+        this.unspecified = (flags & UNSPECIFIED) != 0;
+        this.last = new LinkedHashSet<>();
+        int[] days = readInts(buffer);
+        if (days != null) {
+            for (int day : days) {
+                last.add(day);
+            }
+        }
+        this.nth = new LinkedHashSetMultiMap<>();
+        int[] pairs = readInts(buffer);
+        if (pairs != null) {
+            for (int i = 0; i + 1 < pairs.length; i += 2) {
+                nth.put(pairs[i], pairs[i + 1]);
+            }
+        }
+        hasNth = !nth.isEmpty();
+        hasLast = !last.isEmpty();
+    }
+
     public boolean isUnspecified() {
         return unspecified;
     }
 
     public boolean matches(ZonedDateTime time) {
+        return matches(time.getYear(), time.getMonthValue(), time.getDayOfMonth());
+    }
+
+    public boolean matches(int year, int month, int dayOfMonth) {
         if (unspecified) {
             return true;
         }
-        final DayOfWeek dayOfWeek = time.getDayOfWeek();
-        int number = dayOfWeek.getValue();
+        int number = Dates.dayOfWeek(year, month, dayOfMonth);
         if (hasLast) {
-            return last.contains(number) && time.getMonth() != time.plusWeeks(1).getMonth();
+            return last.contains(number) && dayOfMonth + 7 > Dates.lengthOfMonth(year, month);
         } else if (hasNth) {
-            int dayOfYear = time.getDayOfYear();
-            if (nth.containsKey(number)) {
-                for (int possibleMatch : nth.get(number)) {
-                    if (dayOfYear == time.with(TemporalAdjusters.dayOfWeekInMonth(possibleMatch, dayOfWeek)).getDayOfYear()) {
-                        return true;
-                    }
-                }
+            if (nth.containsKey(number) && nth.get(number).contains((dayOfMonth - 1) / 7 + 1)) {
+                return true;
             }
         }
         return contains(number);
@@ -92,6 +116,34 @@ public class DayOfWeekField extends DefaultField {
         return new Builder(oneBased).parse(s).build();
     }
 
+    @Override
+    void write(ByteBuffer buffer) {
+        super.write(buffer);
+        writeInts(buffer, last.stream().mapToInt(Integer::intValue).toArray());
+        int size = 0;
+        for (Integer day : nth.keySet()) {
+            size += nth.get(day).size();
+        }
+        int[] pairs = new int[2 * size];
+        int i = 0;
+        for (Integer day : nth.keySet()) {
+            for (Integer n : nth.get(day)) {
+                pairs[i++] = day;
+                pairs[i++] = n;
+            }
+        }
+        writeInts(buffer, pairs);
+    }
+
+    @Override
+    int flags() {
+        return super.flags() | (unspecified ? UNSPECIFIED : 0);
+    }
+
+    static DayOfWeekField read(ByteBuffer buffer) {
+        return new DayOfWeekField(buffer.get(), buffer);
+    }
+
     public static class Builder extends DefaultField.Builder {
 
         protected static final Keywords KEYWORDS = new Keywords();
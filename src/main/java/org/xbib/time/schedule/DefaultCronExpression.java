@@ -1,14 +1,25 @@
 package org.xbib.time.schedule;
 
-import java.time.DayOfWeek;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
+import java.util.Comparator;
 import java.util.Objects;
-import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class DefaultCronExpression extends CronExpression {
 
+    private static final int SECONDS = 1;
+
+    private static final int YEAR = 2;
+
     private final String string;
 
     private final TimeField second;
@@ -25,13 +36,42 @@ public class DefaultCronExpression extends CronExpression {
 
     private final DayOfMonthField dayOfMonth;
 
+    /**
+     * The state kept from one search to the next, allocated by the first search, so that an expression which
+     * is only parsed, compared, indexed or stored holds a single null reference besides its fields.
+     */
+    private volatile SearchState state;
+
     public DefaultCronExpression(String string, boolean seconds, boolean oneBasedDayOfWeek, boolean allowBothDayFields) {
-        this.string = string;
-        if (string.isEmpty()) {
+        this(string, seconds, oneBasedDayOfWeek, allowBothDayFields, null);
+    }
+
+    /**
+     * Parses an expression which may contain H tokens, which stand for stable pseudo-random values
+     * derived from the given hash name.
+     * @param string the expression
+     * @param seconds true if the expression has a seconds field
+     * @param oneBasedDayOfWeek true if the day of week 1 is Sunday
+     * @param allowBothDayFields true if both day of month and day of week may be specified
+     * @param hashName the name to derive the values of H tokens from, usually the name of the schedule entry
+     */
+    public DefaultCronExpression(String string, boolean seconds, boolean oneBasedDayOfWeek, boolean allowBothDayFields,
+                                 String hashName) {
+        this(string, seconds, oneBasedDayOfWeek, allowBothDayFields, hashName, null);
+    }
+
+    /**
+     * Parses an expression from any characters. With a result, errors are recorded there instead of thrown,
+     * and the expression must not be used if the result is not valid.
+     */
+    DefaultCronExpression(CharSequence string, boolean seconds, boolean oneBasedDayOfWeek, boolean allowBothDayFields,
+                          String hashName, ParseResult result) {
+        this.string = string.toString();
+        if (string.length() == 0) {
             throw new IllegalArgumentException("empty spec not allowed");
         }
-        String s = string.toUpperCase();
-        Tokens tokens = new Tokens(s);
+        Tokens tokens = new Tokens(string, result);
+        tokens.hashName(hashName);
         if (seconds) {
             second = DefaultField.parse(tokens, 0, 59);
         } else {
@@ -48,8 +88,96 @@ public class DefaultCronExpression extends CronExpression {
             year = MatchAllField.instance;
         }
         if (!allowBothDayFields && !dayOfMonth.isUnspecified() && !dayOfWeek.isUnspecified()) {
-            throw new IllegalArgumentException("Day of month and day of week may not both be specified");
+            String message = "Day of month and day of week may not both be specified";
+            if (result == null) {
+                throw new IllegalArgumentException(message);
+            }
+            result.fail(message);
+        }
+    }
+
+    private DefaultCronExpression(String string, TimeField second, TimeField minute, TimeField hour,
+                                  DayOfMonthField dayOfMonth, TimeField month, DayOfWeekField dayOfWeek, TimeField year) {
+        this.string = string;
+        this.second = second;
+        this.minute = minute;
+        this.hour = hour;
+        this.dayOfMonth = dayOfMonth;
+        this.month = month;
+        this.dayOfWeek = dayOfWeek;
+        this.year = year;
+    }
+
+    /**
+     * Returns an expression with the string of this expression and the field objects of an expression with
+     * the same fields, so that expressions written in different ways share their fields.
+     * @param that an expression with the same fields
+     * @return the expression
+     */
+    DefaultCronExpression withFieldsOf(DefaultCronExpression that) {
+        return new DefaultCronExpression(string, that.second, that.minute, that.hour, that.dayOfMonth, that.month,
+                that.dayOfWeek, that.year);
+    }
+
+    /**
+     * Writes this expression in a compact binary form at the position of the buffer. A record is its length,
+     * flags for a seconds field and a year field, the fields, each as flags for a full range, L, W and ?,
+     * a bit mask and the numbers outside of the bit mask, the days of L and #, and the UTF-8 encoded string
+     * of the expression. The fields are written as parsed, with H resolved and the days of week numbered
+     * after the one-based setting, so the settings of the parser are not needed to read them back.
+     * @param buffer the buffer
+     * @throws java.nio.BufferOverflowException if the record does not fit into the buffer
+     */
+    public void write(ByteBuffer buffer) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("expression too long: " + bytes.length + " bytes");
+        }
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put((byte) ((second instanceof DefaultField ? SECONDS : 0) | (year instanceof DefaultField ? YEAR : 0)));
+        if (second instanceof DefaultField field) {
+            field.write(buffer);
+        }
+        ((DefaultField) minute).write(buffer);
+        ((DefaultField) hour).write(buffer);
+        dayOfMonth.write(buffer);
+        ((DefaultField) month).write(buffer);
+        dayOfWeek.write(buffer);
+        if (year instanceof DefaultField field) {
+            field.write(buffer);
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+        buffer.putInt(start, buffer.position() - start);
+    }
+
+    /**
+     * Reads an expression written by {@link #write(ByteBuffer)} from the position of the buffer, without
+     * parsing it again.
+     * @param buffer the buffer
+     * @return the expression
+     * @throws IllegalArgumentException if the record is corrupt
+     */
+    public static DefaultCronExpression read(ByteBuffer buffer) {
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int flags = buffer.get();
+        TimeField second = (flags & SECONDS) != 0 ? DefaultField.read(buffer) : MatchAllField.instance;
+        TimeField minute = DefaultField.read(buffer);
+        TimeField hour = DefaultField.read(buffer);
+        DayOfMonthField dayOfMonth = DayOfMonthField.read(buffer);
+        TimeField month = MonthField.read(buffer);
+        DayOfWeekField dayOfWeek = DayOfWeekField.read(buffer);
+        TimeField year = (flags & YEAR) != 0 ? DefaultField.read(buffer) : MatchAllField.instance;
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        if (buffer.position() - start != length) {
+            throw new IllegalArgumentException("corrupt record at " + start + ": length " + length +
+                    ", read " + (buffer.position() - start));
         }
+        return new DefaultCronExpression(new String(bytes, StandardCharsets.UTF_8), second, minute, hour,
+                dayOfMonth, month, dayOfWeek, year);
     }
 
     @Override
@@ -59,112 +187,616 @@ public class DefaultCronExpression extends CronExpression {
                 hour.contains(t.getHour()) &&
                 month.contains(t.getMonthValue()) &&
                 year.contains(t.getYear()) &&
-                dayOfWeek.matches(t) &&
-                dayOfMonth.matches(t);
+                days(t.getYear()).contains(t.getMonthValue(), t.getDayOfMonth());
+    }
+
+    /**
+     * Matches the local time of an epoch second without a {@link ZonedDateTime}. The offset is taken from
+     * the range between two transitions of the zone rules found last, so the zone rules are only queried
+     * again when a transition is crossed, and the local fields are computed with integer arithmetic.
+     * The time fields are checked before the date is computed.
+     *
+     * @param epochSecond the epoch second
+     * @param zone the zone
+     * @return true if the time matches
+     */
+    @Override
+    public boolean matches(long epochSecond, ZoneId zone) {
+        SearchState s = state();
+        OffsetRange range = s.offsets;
+        if (range == null || !range.contains(zone, epochSecond)) {
+            range = OffsetRange.of(zone, epochSecond);
+            s.offsets = range;
+        }
+        return matchesLocal(epochSecond + range.getOffset());
     }
 
+    /**
+     * Returns true if the schedule runs at an epoch second. In the time after a gap as long as the gap,
+     * the local time shifted back into the gap also matches if the gap policy shifts forward. In the time of
+     * the second pass through an overlap, nothing matches if the overlap policy runs once.
+     *
+     * @param epochSecond the epoch second
+     * @param zone the zone
+     * @param policy the transition policy
+     * @return true if the schedule runs at the epoch second
+     */
+    @Override
+    public boolean matches(long epochSecond, ZoneId zone, TransitionPolicy policy) {
+        ZoneTransitions transitions = zoneTransitions(zone, epochSecond);
+        int i = transitions.previous(epochSecond);
+        long local = epochSecond + transitions.offset(i);
+        if (i >= 0 && epochSecond - transitions.epochSecond(i) < transitions.localEnd(i) - transitions.localStart(i)) {
+            // within the length of the gap or overlap after the transition
+            if (transitions.isGap(i)) {
+                return matchesLocal(local) || (policy.getGap() == TransitionPolicy.Gap.SHIFT_FORWARD &&
+                        matchesLocal(local - transitions.offsetAfter(i) + transitions.offsetBefore(i)));
+            }
+            if (policy.getOverlap() == TransitionPolicy.Overlap.ONCE) {
+                return false;
+            }
+        }
+        return matchesLocal(local);
+    }
+
+    private ZoneTransitions zoneTransitions(ZoneId zone, long localSecond) {
+        SearchState s = state();
+        ZoneTransitions t = s.transitions;
+        if (t == null || !t.covers(zone, localSecond)) {
+            t = ZoneTransitions.of(zone, localSecond);
+            s.transitions = t;
+        }
+        return t;
+    }
+
+    /**
+     * Returns the local time of a time as seconds since 1970-01-01T00:00 local time, without the nanos.
+     */
+    private static long localSecond(ZonedDateTime t) {
+        return Dates.epochDay(t.getYear(), t.getMonthValue(), t.getDayOfMonth()) * 86400L +
+                t.getHour() * 3600L + t.getMinute() * 60L + t.getSecond();
+    }
+
+    private boolean matchesLocal(long local) {
+        long epochDay = Math.floorDiv(local, 86400L);
+        int secondOfDay = (int) (local - epochDay * 86400L);
+        if (!second.contains(secondOfDay % 60) ||
+                !minute.contains(secondOfDay / 60 % 60) ||
+                !hour.contains(secondOfDay / 3600)) {
+            return false;
+        }
+        int date = Dates.ofEpochDay(epochDay);
+        int y = Dates.year(date);
+        int m = Dates.month(date);
+        return month.contains(m) &&
+                year.contains(y) &&
+                days(y).contains(m, Dates.day(date));
+    }
+
+    /**
+     * Returns the earliest time after {@code from} and not after {@code to} matching this expression,
+     * with the {@link TransitionPolicy#DEFAULT default} transition policy.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @return the next execution time
+     * @throws IllegalStateException if there is no execution time in the given range
+     */
     @Override
     public ZonedDateTime nextExecution(ZonedDateTime from,
                                        ZonedDateTime to) {
-        ZonedDateTime next = second instanceof MatchAllField ?
-                from.plusMinutes(1).truncatedTo(ChronoUnit.MINUTES) : from.plusSeconds(1).truncatedTo(ChronoUnit.SECONDS);
-        while (true) {
-            if (next.isBefore(from) || next.isAfter(to)) {
-                throw new IllegalStateException("out of range: " + from + " < " + next + " < " + to + " -> " + this);
-            }
-            SortedSet<Integer> set;
-            if (!year.contains(next.getYear())) {
-                if (!year.isFullRange()) {
-                    set = year.getNumbers().tailSet(next.getYear());
-                    if (set.isEmpty()) {
-                        next = next.plusYears(1);
-                        continue;
-                    } else {
-                        next = next.plusYears(set.first() - next.getYear());
-                    }
+        return nextExecution(from, to, TransitionPolicy.DEFAULT);
+    }
+
+    /**
+     * Returns the earliest time after {@code from} and not after {@code to} matching this expression.
+     * The search runs on the local date and time fields in the zone of {@code from}, local times are
+     * resolved against the cached transitions of the zone with the given policy.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @param policy the transition policy
+     * @return the next execution time
+     * @throws IllegalStateException if there is no execution time in the given range
+     */
+    @Override
+    public ZonedDateTime nextExecution(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        NextExecutionEvent event = new NextExecutionEvent();
+        boolean recording = event.isEnabled();
+        if (recording) {
+            event.begin();
+        }
+        Executions executions = new Executions(from, to, policy);
+        long epochSecond = executions.next();
+        ZonedDateTime next = epochSecond != Long.MIN_VALUE ?
+                ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), from.getZone()) : null;
+        if (recording && event.shouldCommit()) {
+            event.expression = string;
+            event.from = from.toInstant().toEpochMilli();
+            event.next = next != null ? next.toInstant().toEpochMilli() : 0L;
+            event.iterations = executions.cursor.iterations;
+            event.commit();
+        }
+        if (next != null) {
+            return next;
+        }
+        throw new IllegalStateException("out of range: " + from + " < " + to + " -> " + this);
+    }
+
+    /**
+     * Returns the latest time before {@code from} and not before {@code to} matching this expression,
+     * with the {@link TransitionPolicy#DEFAULT default} transition policy.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the earliest time to search for, inclusive
+     * @return the previous execution time
+     * @throws IllegalStateException if there is no execution time in the given range
+     */
+    @Override
+    public ZonedDateTime previousExecution(ZonedDateTime from,
+                                           ZonedDateTime to) {
+        return previousExecution(from, to, TransitionPolicy.DEFAULT);
+    }
+
+    /**
+     * Returns the latest time before {@code from} and not before {@code to} matching this expression.
+     * The search runs backwards on the local date and time fields in the zone of {@code from}, local times
+     * are resolved like in {@link #nextExecution(ZonedDateTime, ZonedDateTime, TransitionPolicy)}.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the earliest time to search for, inclusive
+     * @param policy the transition policy
+     * @return the previous execution time
+     * @throws IllegalStateException if there is no execution time in the given range
+     */
+    @Override
+    public ZonedDateTime previousExecution(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        ZoneId zone = from.getZone();
+        boolean seconds = !(second instanceof MatchAllField);
+        long unit = seconds ? 1L : 60L;
+        long local = localSecond(from);
+        long start = Math.floorDiv(local, unit) * unit;
+        if (start == local && from.getNano() == 0) {
+            start -= unit;
+        }
+        Cursor cursor = new Cursor(start, seconds);
+        // the execution times are before the bound and not before the minimum
+        long fromEpochSecond = local - from.getOffset().getTotalSeconds();
+        long bound = from.getNano() > 0 ? fromEpochSecond + 1L : fromEpochSecond;
+        long min = to.getNano() > 0 ? to.toEpochSecond() + 1L : to.toEpochSecond();
+        boolean both = policy.getOverlap() == TransitionPolicy.Overlap.BOTH;
+        boolean shift = policy.getGap() == TransitionPolicy.Gap.SHIFT_FORWARD;
+        ZoneTransitions transitions = zoneTransitions(zone, cursor.toLocalSecond());
+        ShiftedGap gap = null;
+        long replayStart = Long.MIN_VALUE;
+        long replayEnd = Long.MIN_VALUE;
+        int i = transitions.previous(bound);
+        if (i >= 0 && bound - transitions.epochSecond(i) <= transitions.localEnd(i) - transitions.localStart(i)) {
+            if (transitions.isGap(i)) {
+                if (shift) {
+                    gap = new ShiftedGap(transitions, i);
                 }
+            } else if (both) {
+                // from in or at the end of the second pass through an overlap, search the first pass
+                // when leaving the overlap
+                replayStart = transitions.localStart(i);
+                replayEnd = transitions.localEnd(i);
+            } else {
+                // from in or at the end of the second pass through an overlap, the whole overlap ran
+                // in the first pass
+                cursor.set(transitions.localEnd(i) - unit);
             }
-            if (!month.contains(next.getMonthValue())) {
-                if (!month.isFullRange()) {
-                    set = month.getNumbers().tailSet(next.getMonthValue());
-                    if (set.isEmpty()) {
-                        next = next.plusMonths(1);
-                        continue;
-                    } else {
-                        next = next.plusMonths(set.first() - next.getMonthValue());
+        }
+        int minYear = zone.equals(to.getZone()) ? to.getYear() : to.withZoneSameInstant(zone).getYear();
+        while (true) {
+            if (gap != null) {
+                long epochSecond = gap.last(bound, unit);
+                if (epochSecond != Long.MIN_VALUE) {
+                    if (epochSecond < min) {
+                        break;
                     }
+                    return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
                 }
+                cursor.set(gap.localStart() - unit);
+                gap = null;
             }
-            if (!dayOfMonth.isUnspecified()) {
-                if (!dayOfMonth.contains(next.getDayOfMonth())) {
-                    if (!dayOfMonth.isFullRange()) {
-                        set = dayOfMonth.getNumbers().tailSet(next.getDayOfMonth());
-                        if (set.isEmpty()) {
-                            next = next.plusDays(1).truncatedTo(ChronoUnit.DAYS);
-                            continue;
-                        } else {
-                            next = next.plusDays(set.first() - next.getDayOfMonth())
-                                    .truncatedTo(ChronoUnit.DAYS);
-                        }
-                    }
-                }
+            if (!backward(cursor, minYear)) {
+                break;
             }
-            if (!dayOfWeek.isUnspecified()) {
-                if (!dayOfWeek.contains(next.getDayOfWeek().getValue())) {
-                    if (!dayOfWeek.isFullRange()) {
-                        set = dayOfWeek.getNumbers().tailSet(next.getDayOfWeek().getValue());
-                        if (set.isEmpty()) {
-                            next = next.plusDays(1).truncatedTo(ChronoUnit.DAYS);
-                            continue;
-                        } else {
-                            DayOfWeek dayOfWeek = DayOfWeek.of(set.first());
-                            next = next.with(TemporalAdjusters.next(dayOfWeek));
+            long l = cursor.toLocalSecond();
+            if (!transitions.covers(l)) {
+                transitions = zoneTransitions(zone, l);
+            }
+            if (l < replayStart) {
+                cursor.set(replayEnd - unit);
+                replayStart = Long.MIN_VALUE;
+                continue;
+            }
+            int j = transitions.find(l);
+            if (shift && j >= 0 && transitions.isGap(j) && l < 2L * transitions.localEnd(j) - transitions.localStart(j)) {
+                // in the gap or in the time after it
+                gap = new ShiftedGap(transitions, j);
+                continue;
+            }
+            long epochSecond;
+            if (j < 0 || l >= transitions.localEnd(j)) {
+                epochSecond = l - transitions.offset(j);
+            } else if (transitions.isGap(j)) {
+                cursor.previous();
+                continue;
+            } else {
+                long later = l - transitions.offsetAfter(j);
+                epochSecond = both && later < bound ? later : l - transitions.offsetBefore(j);
+            }
+            if (epochSecond >= bound) {
+                cursor.previous();
+                continue;
+            }
+            if (epochSecond < min) {
+                break;
+            }
+            return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+        }
+        throw new IllegalStateException("out of range: " + to + " < " + from + " -> " + this);
+    }
 
-                        }
-                    }
+    /**
+     * Returns the execution times after {@code from} and not after {@code to}, in ascending order.
+     * The stream is lazy, each element continues the search where the previous one stopped.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @return the execution times
+     */
+    @Override
+    public Stream<ZonedDateTime> executions(ZonedDateTime from, ZonedDateTime to) {
+        ZoneId zone = from.getZone();
+        return executionEpochSeconds(from, to)
+                .mapToObj(epochSecond -> ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone));
+    }
+
+    /**
+     * Returns the execution times after {@code from} and not after {@code to} as epoch seconds,
+     * in ascending order. The stream is lazy and does not allocate per element.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @return the execution times as epoch seconds
+     */
+    @Override
+    public LongStream executionEpochSeconds(ZonedDateTime from, ZonedDateTime to) {
+        return executionEpochSeconds(from, to, TransitionPolicy.DEFAULT);
+    }
+
+    @Override
+    public LongStream executionEpochSeconds(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        return StreamSupport.longStream(new Executions(from, to, policy), false);
+    }
+
+    /**
+     * Returns the number of execution times after {@code from} and not after {@code to}, with the
+     * {@link TransitionPolicy#DEFAULT default} transition policy.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @return the number of execution times
+     */
+    @Override
+    public long countExecutions(ZonedDateTime from, ZonedDateTime to) {
+        return countExecutions(from, to, TransitionPolicy.DEFAULT);
+    }
+
+    /**
+     * Returns the number of execution times after {@code from} and not after {@code to}, without searching them.
+     * The range is split at the transitions of the zone. Between two transitions, the offset is fixed, and
+     * the whole days are counted from the matching days of the years times the number of matching times of
+     * day, the days at both ends from the matching times of day before the start and the end. Only the time
+     * after a transition where the policy shifts local times of a gap, or skips the second pass through an
+     * overlap, is searched.
+     *
+     * @param from the time to start from, exclusive
+     * @param to the time to end with, inclusive
+     * @param policy the transition policy
+     * @return the number of execution times
+     */
+    @Override
+    public long countExecutions(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+        ZoneId zone = from.getZone();
+        long start = from.toEpochSecond() + 1L;
+        long end = to.toEpochSecond() + 1L;
+        long count = 0L;
+        while (start < end) {
+            ZoneTransitions transitions = zoneTransitions(zone, start);
+            int i = transitions.previous(start);
+            long limit = Math.min(end, i + 1 < transitions.size() ?
+                    transitions.epochSecond(i + 1) : transitions.end());
+            if (i >= 0 && (transitions.isGap(i) ? policy.getGap() == TransitionPolicy.Gap.SHIFT_FORWARD :
+                    policy.getOverlap() == TransitionPolicy.Overlap.ONCE)) {
+                long window = transitions.epochSecond(i) + transitions.localEnd(i) - transitions.localStart(i);
+                if (start < window) {
+                    long stop = Math.min(limit, window);
+                    count += executionEpochSeconds(ZonedDateTime.ofInstant(Instant.ofEpochSecond(start - 1L), zone),
+                            ZonedDateTime.ofInstant(Instant.ofEpochSecond(stop - 1L), zone), policy).count();
+                    start = stop;
                 }
             }
-            if (!hour.contains(next.getHour())) {
-                if (!hour.isFullRange()) {
-                    set = hour.getNumbers().tailSet(next.getHour());
-                    if (set.isEmpty()) {
-                        next = next.plusHours(1).truncatedTo(ChronoUnit.HOURS);
-                        continue;
-                    } else {
-                        next = next.plusHours(set.first() - next.getHour())
-                                .truncatedTo(ChronoUnit.HOURS);
+            int offset = transitions.offset(i);
+            count += countLocal(start + offset, limit + offset);
+            start = limit;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of matching local times from one local time, inclusive, to another, exclusive.
+     */
+    private long countLocal(long from, long to) {
+        if (from >= to) {
+            return 0L;
+        }
+        TimesOfDay t = timesOfDay();
+        if (t.perDay() == 0L) {
+            return 0L;
+        }
+        long fromDay = Math.floorDiv(from, 86400L);
+        long toDay = Math.floorDiv(to, 86400L);
+        int fromSecond = (int) (from - fromDay * 86400L);
+        int toSecond = (int) (to - toDay * 86400L);
+        if (fromDay == toDay) {
+            return matchesDate(fromDay) ? t.before(toSecond) - t.before(fromSecond) : 0L;
+        }
+        long first = t.perDay() - t.before(fromSecond);
+        long count = first > 0L && matchesDate(fromDay) ? first : 0L;
+        count += countDays(fromDay + 1L, toDay) * t.perDay();
+        long last = t.before(toSecond);
+        if (last > 0L && matchesDate(toDay)) {
+            count += last;
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if a single day matches, from the fields instead of the day calendar of its year.
+     */
+    private boolean matchesDate(long epochDay) {
+        int date = Dates.ofEpochDay(epochDay);
+        int y = Dates.year(date);
+        int m = Dates.month(date);
+        int d = Dates.day(date);
+        return month.contains(m) &&
+                year.contains(y) &&
+                dayOfMonth.matches(y, m, d) &&
+                dayOfWeek.matches(y, m, d);
+    }
+
+    /**
+     * Returns the number of matching days from one epoch day, inclusive, to another, exclusive, by counting
+     * the bits of the day calendars month by month.
+     */
+    private long countDays(long fromDay, long toDay) {
+        long count = 0L;
+        long day = fromDay;
+        while (day < toDay) {
+            int y = Dates.year(Dates.ofEpochDay(day));
+            long first = Dates.epochDay(y, 1, 1);
+            long next = Math.min(toDay, Dates.epochDay(y + 1, 1, 1));
+            if (year.contains(y)) {
+                DayCalendar calendar = days(y);
+                int from = (int) (day - first);
+                int to = (int) (next - first);
+                for (int m = 1; m <= 12; m++) {
+                    if (month.contains(m)) {
+                        int start = Dates.dayOfYear(y, m, 1) - 1;
+                        count += calendar.count(Math.max(from, start),
+                                Math.min(to, start + Dates.lengthOfMonth(y, m)));
                     }
                 }
             }
-            if (!minute.contains(next.getMinute())) {
-                if (!minute.isFullRange()) {
-                    set = minute.getNumbers().tailSet(next.getMinute());
-                    if (set.isEmpty()) {
-                        next = next.plusMinutes(1).truncatedTo(ChronoUnit.MINUTES);
-                        continue;
-                    } else {
-                        next = next.plusMinutes(set.first() - next.getMinute())
-                                .truncatedTo(ChronoUnit.MINUTES);
-                    }
-                }
+            day = next;
+        }
+        return count;
+    }
+
+    private TimesOfDay timesOfDay() {
+        SearchState s = state();
+        TimesOfDay t = s.times;
+        if (t == null) {
+            t = new TimesOfDay(hour, minute, second);
+            s.times = t;
+        }
+        return t;
+    }
+
+    /**
+     * Moves the cursor forward to the earliest local date and time at or after its current position
+     * matching this expression. Each field jumps straight to its next allowed value, and lower fields
+     * are reset when a higher field changes.
+     *
+     * @param cursor the cursor
+     * @param maxYear the last year to search in
+     * @return true if a matching date and time was found, false if the cursor passed the last year
+     */
+    private boolean forward(Cursor cursor, int maxYear) {
+        int n;
+        while (cursor.year <= maxYear) {
+            cursor.iterations++;
+            n = year.next(cursor.year);
+            if (n == -1) {
+                return false;
             }
-            if (!(second instanceof MatchAllField)) {
-                if (!second.contains(next.getSecond())) {
-                    if (!second.isFullRange()) {
-                        set = second.getNumbers().tailSet(next.getSecond());
-                        if (set.isEmpty()) {
-                            next = next.plusSeconds(1).truncatedTo(ChronoUnit.SECONDS);
-                            continue;
-                        } else {
-                            next = next.plusSeconds(set.first() - next.getSecond())
-                                    .truncatedTo(ChronoUnit.SECONDS);
-                        }
-                    }
-                }
+            if (n != cursor.year) {
+                cursor.year = n;
+                cursor.startOfYear();
+                continue;
+            }
+            n = month.next(cursor.month);
+            if (n == -1 || n > 12) {
+                cursor.nextYear();
+                continue;
+            }
+            if (n != cursor.month) {
+                cursor.month = n;
+                cursor.startOfMonth();
+            }
+            n = nextDay(cursor.year, cursor.month, cursor.day);
+            if (n == -1) {
+                cursor.nextMonth();
+                continue;
+            }
+            if (n != cursor.day) {
+                cursor.day = n;
+                cursor.startOfDay();
+            }
+            n = hour.next(cursor.hour);
+            if (n == -1 || n > 23) {
+                cursor.nextDay();
+                continue;
             }
-            break;
+            if (n != cursor.hour) {
+                cursor.hour = n;
+                cursor.startOfHour();
+            }
+            n = minute.next(cursor.minute);
+            if (n == -1 || n > 59) {
+                cursor.nextHour();
+                continue;
+            }
+            if (n != cursor.minute) {
+                cursor.minute = n;
+                cursor.startOfMinute();
+            }
+            n = second.next(cursor.second);
+            if (n == -1 || n > 59) {
+                cursor.nextMinute();
+                continue;
+            }
+            cursor.second = n;
+            return true;
         }
-        return next;
+        return false;
+    }
+
+    /**
+     * Moves the cursor backward to the latest local date and time at or before its current position
+     * matching this expression. This is the mirror image of {@link #forward(Cursor, int)}, lower fields
+     * are set to their end when a higher field changes.
+     *
+     * @param cursor the cursor
+     * @param minYear the first year to search in
+     * @return true if a matching date and time was found, false if the cursor passed the first year
+     */
+    private boolean backward(Cursor cursor, int minYear) {
+        int n;
+        while (cursor.year >= minYear) {
+            n = year.previous(cursor.year);
+            if (n == -1) {
+                return false;
+            }
+            if (n != cursor.year) {
+                cursor.year = n;
+                cursor.endOfYear();
+                continue;
+            }
+            n = month.previous(cursor.month);
+            if (n < 1) {
+                cursor.previousYear();
+                continue;
+            }
+            if (n != cursor.month) {
+                cursor.month = n;
+                cursor.endOfMonth();
+            }
+            n = previousDay(cursor.year, cursor.month, cursor.day);
+            if (n == -1) {
+                cursor.previousMonth();
+                continue;
+            }
+            if (n != cursor.day) {
+                cursor.day = n;
+                cursor.endOfDay();
+            }
+            n = hour.previous(cursor.hour);
+            if (n == -1) {
+                cursor.previousDay();
+                continue;
+            }
+            if (n != cursor.hour) {
+                cursor.hour = n;
+                cursor.endOfHour();
+            }
+            n = minute.previous(cursor.minute);
+            if (n == -1) {
+                cursor.previousHour();
+                continue;
+            }
+            if (n != cursor.minute) {
+                cursor.minute = n;
+                cursor.endOfMinute();
+            }
+            n = second.previous(cursor.second);
+            if (n == -1) {
+                cursor.previousMinute();
+                continue;
+            }
+            cursor.second = n;
+            return true;
+        }
+        return false;
+    }
+
+    TimeField getSecond() {
+        return second;
+    }
+
+    TimeField getMinute() {
+        return minute;
+    }
+
+    TimeField getHour() {
+        return hour;
+    }
+
+    TimeField getMonth() {
+        return month;
+    }
+
+    TimeField getYear() {
+        return year;
+    }
+
+    String getString() {
+        return string;
+    }
+
+    boolean matchesDay(int year, int month, int day) {
+        return days(year).contains(month, day);
+    }
+
+    private int nextDay(int year, int month, int day) {
+        return days(year).next(month, day);
+    }
+
+    private int previousDay(int year, int month, int day) {
+        return days(year).previous(month, day);
+    }
+
+    private DayCalendar days(int year) {
+        SearchState s = state();
+        DayCalendar calendar = s.days;
+        if (calendar == null || calendar.getYear() != year) {
+            calendar = new DayCalendar(year, dayOfMonth, dayOfWeek);
+            s.days = calendar;
+        }
+        return calendar;
+    }
+
+    private SearchState state() {
+        SearchState s = state;
+        if (s == null) {
+            s = new SearchState();
+            state = s;
+        }
+        return s;
     }
 
     @Override
@@ -176,34 +808,31 @@ public class DefaultCronExpression extends CronExpression {
             return false;
         }
         DefaultCronExpression that = (DefaultCronExpression) o;
-        if (!Objects.equals(dayOfMonth, that.dayOfMonth)) {
-            return false;
-        }
-        if (!Objects.equals(dayOfWeek, that.dayOfWeek)) {
-            return false;
-        }
-        if (!Objects.equals(hour, that.hour)) {
-            return false;
-        }
-        if (!Objects.equals(minute, that.minute)) {
-            return false;
-        }
-        if (!Objects.equals(month, that.month)) {
-            return false;
-        }
-        if (!Objects.equals(second, that.second)) {
-            return false;
-        }
-        if (!string.equals(that.string)) {
-            return false;
-        }
-        return Objects.equals(year, that.year);
+        return string.equals(that.string) && hasSameFields(that);
     }
 
     @Override
     public int hashCode() {
-        int result = string.hashCode();
-        result = 31 * result + (second != null ? second.hashCode() : 0);
+        return 31 * string.hashCode() + fieldsHashCode();
+    }
+
+    /**
+     * Returns true if the given expression matches the same times, regardless of how it was written.
+     * @param that the other expression
+     * @return true if the fields are equal
+     */
+    boolean hasSameFields(DefaultCronExpression that) {
+        return Objects.equals(dayOfMonth, that.dayOfMonth) &&
+                Objects.equals(dayOfWeek, that.dayOfWeek) &&
+                Objects.equals(hour, that.hour) &&
+                Objects.equals(minute, that.minute) &&
+                Objects.equals(month, that.month) &&
+                Objects.equals(second, that.second) &&
+                Objects.equals(year, that.year);
+    }
+
+    int fieldsHashCode() {
+        int result = second != null ? second.hashCode() : 0;
         result = 31 * result + (minute != null ? minute.hashCode() : 0);
         result = 31 * result + (hour != null ? hour.hashCode() : 0);
         result = 31 * result + (month != null ? month.hashCode() : 0);
@@ -224,4 +853,493 @@ public class DefaultCronExpression extends CronExpression {
                 ",yrs=" + year +
                 "]";
     }
+
+    /**
+     * The immutable helpers built by the searches. Each is replaced as a whole when it does not fit the next
+     * search, so concurrent searches see either the old or the new helper.
+     */
+    private static final class SearchState {
+
+        /**
+         * The matching days of the year searched last, replaced when another year is searched.
+         */
+        private volatile DayCalendar days;
+
+        /**
+         * The offset range of the zone matched last, replaced when a transition is crossed or another zone is
+         * matched.
+         */
+        private volatile OffsetRange offsets;
+
+        /**
+         * The number of matching times of day, built when executions are counted for the first time.
+         */
+        private volatile TimesOfDay times;
+
+        /**
+         * The transitions of the zone searched last, replaced when another zone or another range of years is
+         * searched.
+         */
+        private volatile ZoneTransitions transitions;
+    }
+
+    /**
+     * The execution times of a range, searched one after another with the same cursor. Local times are
+     * resolved against the cached transitions of the zone. With {@link TransitionPolicy.Overlap#BOTH},
+     * the cursor goes back to the start of an overlap once it has passed the overlap in the first pass.
+     */
+    private final class Executions implements Spliterator.OfLong {
+
+        private final Cursor cursor;
+
+        private final ZoneId zone;
+
+        private final TransitionPolicy policy;
+
+        private final long unit;
+
+        private final int maxYear;
+
+        private final long end;
+
+        private ZoneTransitions transitions;
+
+        /**
+         * The last execution time, or the start of the range.
+         */
+        private long last;
+
+        /**
+         * The epoch second of the last overlap searched twice.
+         */
+        private long replayed;
+
+        private ShiftedGap gap;
+
+        private boolean done;
+
+        private Executions(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+            boolean seconds = !(second instanceof MatchAllField);
+            long local = localSecond(from);
+            this.unit = seconds ? 1L : 60L;
+            this.cursor = new Cursor(Math.floorDiv(local, unit) * unit + unit, seconds);
+            this.zone = from.getZone();
+            this.policy = policy;
+            this.maxYear = zone.equals(to.getZone()) ? to.getYear() : to.withZoneSameInstant(zone).getYear();
+            this.end = to.toEpochSecond();
+            this.last = local - from.getOffset().getTotalSeconds();
+            this.replayed = last;
+            this.transitions = zoneTransitions(zone, cursor.toLocalSecond());
+            int i = transitions.previous(last);
+            if (policy.getGap() == TransitionPolicy.Gap.SHIFT_FORWARD && i >= 0 && transitions.isGap(i) &&
+                    last - transitions.epochSecond(i) < transitions.localEnd(i) - transitions.localStart(i)) {
+                // from in the time after a gap
+                gap = new ShiftedGap(transitions, i);
+            }
+        }
+
+        /**
+         * Returns the next execution time.
+         * @return the epoch second, or {@link Long#MIN_VALUE} if there is none left in the range
+         */
+        private long next() {
+            boolean both = policy.getOverlap() == TransitionPolicy.Overlap.BOTH;
+            boolean shift = policy.getGap() == TransitionPolicy.Gap.SHIFT_FORWARD;
+            while (!done) {
+                if (gap != null) {
+                    long epochSecond = gap.first(last, unit);
+                    if (epochSecond != Long.MIN_VALUE) {
+                        if (epochSecond > end) {
+                            break;
+                        }
+                        last = epochSecond;
+                        return epochSecond;
+                    }
+                    cursor.set(gap.localEnd());
+                    gap = null;
+                }
+                if (!forward(cursor, maxYear)) {
+                    break;
+                }
+                long local = cursor.toLocalSecond();
+                if (!transitions.covers(local)) {
+                    transitions = zoneTransitions(zone, local);
+                }
+                if (both) {
+                    int overlap = transitions.nextOverlap(Math.max(last, replayed));
+                    if (overlap < transitions.size() && local >= transitions.localEnd(overlap)) {
+                        // after the first pass, search the second pass
+                        replayed = transitions.epochSecond(overlap);
+                        cursor.set(transitions.localStart(overlap));
+                        continue;
+                    }
+                }
+                int i = transitions.find(local);
+                if (shift && i >= 0 && transitions.isGap(i) &&
+                        local < 2L * transitions.localEnd(i) - transitions.localStart(i)) {
+                    // in the gap or in the time after it
+                    gap = new ShiftedGap(transitions, i);
+                    continue;
+                }
+                long epochSecond;
+                if (i < 0 || local >= transitions.localEnd(i)) {
+                    epochSecond = local - transitions.offset(i);
+                } else if (transitions.isGap(i)) {
+                    cursor.next();
+                    continue;
+                } else {
+                    epochSecond = local - transitions.offsetBefore(i);
+                    if (epochSecond <= last && both) {
+                        epochSecond = local - transitions.offsetAfter(i);
+                    }
+                }
+                if (epochSecond <= last) {
+                    cursor.next();
+                    continue;
+                }
+                if (epochSecond > end) {
+                    break;
+                }
+                cursor.next();
+                last = epochSecond;
+                return epochSecond;
+            }
+            done = true;
+            return Long.MIN_VALUE;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            long epochSecond = next();
+            if (epochSecond == Long.MIN_VALUE) {
+                return false;
+            }
+            action.accept(epochSecond);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * The time after a gap of the zone rules as long as the gap. An epoch second in this time runs if its
+     * local time matches, or its local time shifted back into the gap.
+     */
+    private final class ShiftedGap {
+
+        private final long start;
+
+        private final long end;
+
+        private final int offset;
+
+        private final int length;
+
+        private ShiftedGap(ZoneTransitions transitions, int i) {
+            this.length = (int) (transitions.localEnd(i) - transitions.localStart(i));
+            this.start = transitions.epochSecond(i);
+            this.end = start + length;
+            this.offset = transitions.offsetAfter(i);
+        }
+
+        /**
+         * Returns the first local time of the gap.
+         */
+        private long localStart() {
+            return start + offset - length;
+        }
+
+        /**
+         * Returns the first local time after this time.
+         */
+        private long localEnd() {
+            return end + offset;
+        }
+
+        /**
+         * Returns the first matching epoch second after the given one.
+         * @return the epoch second, or {@link Long#MIN_VALUE} if there is none
+         */
+        private long first(long after, long unit) {
+            long local = Math.max(start, after + 1L) + offset;
+            local += Math.floorMod(-local, unit);
+            for (; local < localEnd(); local += unit) {
+                if (matchesLocal(local) || matchesLocal(local - length)) {
+                    return local - offset;
+                }
+            }
+            return Long.MIN_VALUE;
+        }
+
+        /**
+         * Returns the last matching epoch second before the given one.
+         * @return the epoch second, or {@link Long#MIN_VALUE} if there is none
+         */
+        private long last(long before, long unit) {
+            long local = Math.min(end, before) - 1L + offset;
+            local -= Math.floorMod(local, unit);
+            for (; local >= start + offset; local -= unit) {
+                if (matchesLocal(local) || matchesLocal(local - length)) {
+                    return local - offset;
+                }
+            }
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Mutable local date and time fields of a search.
+     */
+    private static final class Cursor {
+
+        private final boolean seconds;
+
+        private int year;
+
+        private int month;
+
+        private int day;
+
+        private int hour;
+
+        private int minute;
+
+        private int second;
+
+        /**
+         * The number of rounds of the forward search, for the flight recorder.
+         */
+        private int iterations;
+
+        private Cursor(long localSecond, boolean seconds) {
+            this.seconds = seconds;
+            set(localSecond);
+        }
+
+        private void set(long localSecond) {
+            long epochDay = Math.floorDiv(localSecond, 86400L);
+            int secondOfDay = (int) (localSecond - epochDay * 86400L);
+            int date = Dates.ofEpochDay(epochDay);
+            this.year = Dates.year(date);
+            this.month = Dates.month(date);
+            this.day = Dates.day(date);
+            this.hour = secondOfDay / 3600;
+            this.minute = secondOfDay / 60 % 60;
+            this.second = seconds ? secondOfDay % 60 : 0;
+        }
+
+        private long toLocalSecond() {
+            return Dates.epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second;
+        }
+
+        private void startOfYear() {
+            month = 1;
+            startOfMonth();
+        }
+
+        private void startOfMonth() {
+            day = 1;
+            startOfDay();
+        }
+
+        private void startOfDay() {
+            hour = 0;
+            startOfHour();
+        }
+
+        private void startOfHour() {
+            minute = 0;
+            startOfMinute();
+        }
+
+        private void startOfMinute() {
+            second = 0;
+        }
+
+        private void nextYear() {
+            year++;
+            startOfYear();
+        }
+
+        private void nextMonth() {
+            if (month == 12) {
+                nextYear();
+            } else {
+                month++;
+                startOfMonth();
+            }
+        }
+
+        private void nextDay() {
+            if (day == Dates.lengthOfMonth(year, month)) {
+                nextMonth();
+            } else {
+                day++;
+                startOfDay();
+            }
+        }
+
+        private void nextHour() {
+            if (hour == 23) {
+                nextDay();
+            } else {
+                hour++;
+                startOfHour();
+            }
+        }
+
+        private void nextMinute() {
+            if (minute == 59) {
+                nextHour();
+            } else {
+                minute++;
+                startOfMinute();
+            }
+        }
+        private void endOfYear() {
+            month = 12;
+            endOfMonth();
+        }
+
+        private void endOfMonth() {
+            day = Dates.lengthOfMonth(year, month);
+            endOfDay();
+        }
+
+        private void endOfDay() {
+            hour = 23;
+            endOfHour();
+        }
+
+        private void endOfHour() {
+            minute = 59;
+            endOfMinute();
+        }
+
+        private void endOfMinute() {
+            second = seconds ? 59 : 0;
+        }
+
+        private void previousYear() {
+            year--;
+            endOfYear();
+        }
+
+        private void previousMonth() {
+            if (month == 1) {
+                previousYear();
+            } else {
+                month--;
+                endOfMonth();
+            }
+        }
+
+        private void previousDay() {
+            if (day == 1) {
+                previousMonth();
+            } else {
+                day--;
+                endOfDay();
+            }
+        }
+
+        private void previousHour() {
+            if (hour == 0) {
+                previousDay();
+            } else {
+                hour--;
+                endOfHour();
+            }
+        }
+
+        private void previousMinute() {
+            if (minute == 0) {
+                previousHour();
+            } else {
+                minute--;
+                endOfMinute();
+            }
+        }
+
+        private void next() {
+            if (seconds && second < 59) {
+                second++;
+            } else {
+                nextMinute();
+            }
+        }
+
+        private void previous() {
+            if (seconds && second > 0) {
+                second--;
+            } else {
+                previousMinute();
+            }
+        }
+    }
+
+    /**
+     * The number of matching times of day before every hour, minute and second, so that the matching times of
+     * a part of a day are counted without searching them. Without a seconds field, only second 0 matches.
+     */
+    private static final class TimesOfDay {
+
+        private final int[] hours;
+
+        private final int[] minutes;
+
+        private final int[] seconds;
+
+        private TimesOfDay(TimeField hour, TimeField minute, TimeField second) {
+            this.hours = counts(hour::contains, 24);
+            this.minutes = counts(minute::contains, 60);
+            this.seconds = counts(second instanceof MatchAllField ? n -> n == 0 : second::contains, 60);
+        }
+
+        private static int[] counts(IntPredicate field, int length) {
+            int[] counts = new int[length + 1];
+            for (int n = 0; n < length; n++) {
+                counts[n + 1] = counts[n] + (field.test(n) ? 1 : 0);
+            }
+            return counts;
+        }
+
+        private long perDay() {
+            return (long) hours[24] * minutes[60] * seconds[60];
+        }
+
+        /**
+         * Returns the number of matching times of day before a second of the day.
+         */
+        private long before(int secondOfDay) {
+            int h = secondOfDay / 3600;
+            int m = secondOfDay / 60 % 60;
+            long count = (long) hours[h] * minutes[60] * seconds[60];
+            if (hours[h + 1] > hours[h]) {
+                count += (long) minutes[m] * seconds[60];
+                if (minutes[m + 1] > minutes[m]) {
+                    count += seconds[secondOfDay % 60];
+                }
+            }
+            return count;
+        }
+    }
 }
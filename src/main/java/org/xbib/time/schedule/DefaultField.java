@@ -1,27 +1,129 @@
 package org.xbib.time.schedule;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.NavigableSet;
-import java.util.Objects;
 import java.util.TreeSet;
 
+/**
+ * A field of a cron expression. Numbers between 0 and 63, which covers seconds, minutes, hours, days of month,
+ * months, and days of week, are kept in a single bit mask, so that {@link #contains(int)} and {@link #next(int)}
+ * are answered by bit operations without boxing or allocation. Numbers outside of this range, e.g. years,
+ * are kept in a sorted array.
+ */
 public class DefaultField implements TimeField {
 
+    private static final int BITS = Long.SIZE;
+
+    static final int FULL_RANGE = 1;
+
     private final boolean fullRange;
 
-    private final NavigableSet<Integer> numbers;
+    private final long bits;
+
+    private final int[] overflow;
 
     protected DefaultField(Builder b) {
         fullRange = b.fullRange;
-        numbers = fullRange ? null : b.numbers;
+        bits = fullRange ? 0L : b.bits;
+        overflow = fullRange || b.overflow == null ? null : b.overflow.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Reads a field written by {@link #write(ByteBuffer)} after its flags.
+     */
+    DefaultField(int flags, ByteBuffer buffer) {
+        fullRange = (flags & FULL_RANGE) != 0;
+        if (fullRange) {
+            bits = 0L;
+            overflow = null;
+        } else {
+            bits = buffer.getLong();
+            overflow = readInts(buffer);
+        }
     }
 
     @Override
     public boolean contains(int number) {
-        return fullRange || numbers.contains(number);
+        if (fullRange) {
+            return true;
+        }
+        if (number >= 0 && number < BITS) {
+            return (bits & (1L << number)) != 0L;
+        }
+        return overflow != null && Arrays.binarySearch(overflow, number) >= 0;
+    }
+
+    @Override
+    public int next(int number) {
+        if (fullRange) {
+            return number;
+        }
+        int next = -1;
+        if (number < BITS) {
+            long masked = number <= 0 ? bits : bits & (-1L << number);
+            if (masked != 0L) {
+                next = Long.numberOfTrailingZeros(masked);
+            }
+        }
+        if (overflow != null && (next == -1 || number < 0)) {
+            int i = Arrays.binarySearch(overflow, number);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i < overflow.length && (next == -1 || overflow[i] < next)) {
+                next = overflow[i];
+            }
+        }
+        return next;
     }
 
+    @Override
+    public int previous(int number) {
+        if (fullRange) {
+            return number;
+        }
+        int previous = -1;
+        if (number >= 0) {
+            long masked = number >= BITS - 1 ? bits : bits & ((1L << (number + 1)) - 1L);
+            if (masked != 0L) {
+                previous = BITS - 1 - Long.numberOfLeadingZeros(masked);
+            }
+        }
+        if (overflow != null) {
+            int i = Arrays.binarySearch(overflow, number);
+            if (i < 0) {
+                i = -i - 2;
+            }
+            if (i >= 0 && (previous == -1 || overflow[i] > previous)) {
+                previous = overflow[i];
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the numbers of this field as a new sorted set, or null if this field is a full range. The set
+     * is built from the bit mask on every call and not kept, the searches use {@link #next(int)} and
+     * {@link #previous(int)} instead.
+     * @return the numbers
+     */
     @Override
     public NavigableSet<Integer> getNumbers() {
+        if (fullRange) {
+            return null;
+        }
+        NavigableSet<Integer> numbers = new TreeSet<>();
+        long b = bits;
+        while (b != 0L) {
+            numbers.add(Long.numberOfTrailingZeros(b));
+            b &= b - 1;
+        }
+        if (overflow != null) {
+            for (int number : overflow) {
+                numbers.add(number);
+            }
+        }
         return numbers;
     }
 
@@ -30,6 +132,50 @@ public class DefaultField implements TimeField {
         return fullRange;
     }
 
+    /**
+     * Writes the flags of this field, the bit mask, and the numbers outside of the bit mask. A full range is
+     * written as the flags alone.
+     * @param buffer the buffer
+     */
+    void write(ByteBuffer buffer) {
+        buffer.put((byte) flags());
+        if (!fullRange) {
+            buffer.putLong(bits);
+            writeInts(buffer, overflow);
+        }
+    }
+
+    int flags() {
+        return fullRange ? FULL_RANGE : 0;
+    }
+
+    static DefaultField read(ByteBuffer buffer) {
+        return new DefaultField(buffer.get(), buffer);
+    }
+
+    static void writeInts(ByteBuffer buffer, int[] ints) {
+        int length = ints != null ? ints.length : 0;
+        if (length > 0xffff) {
+            throw new IllegalArgumentException("too many numbers in a field: " + length);
+        }
+        buffer.putShort((short) length);
+        for (int i = 0; i < length; i++) {
+            buffer.putInt(ints[i]);
+        }
+    }
+
+    static int[] readInts(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        if (length == 0) {
+            return null;
+        }
+        int[] ints = new int[length];
+        for (int i = 0; i < length; i++) {
+            ints[i] = buffer.getInt();
+        }
+        return ints;
+    }
+
     public static DefaultField parse(Tokens s, int min, int max) {
         return new Builder(min, max).parse(s).build();
     }
@@ -46,13 +192,17 @@ public class DefaultField implements TimeField {
         if (fullRange != that.fullRange) {
             return false;
         }
-        return Objects.equals(numbers, that.numbers);
+        if (bits != that.bits) {
+            return false;
+        }
+        return Arrays.equals(overflow, that.overflow);
     }
 
     @Override
     public int hashCode() {
         int result = (fullRange ? 1 : 0);
-        result = 31 * result + (numbers != null ? numbers.hashCode() : 0);
+        result = 31 * result + Long.hashCode(bits);
+        result = 31 * result + Arrays.hashCode(overflow);
         return result;
     }
 
@@ -63,7 +213,9 @@ public class DefaultField implements TimeField {
 
     public static class Builder {
 
-        private final NavigableSet<Integer> numbers;
+        private long bits;
+
+        private NavigableSet<Integer> overflow;
 
         private final int min;
 
@@ -74,7 +226,6 @@ public class DefaultField implements TimeField {
         protected Builder(int min, int max) {
             this.min = min;
             this.max = max;
-            numbers = new TreeSet<>();
         }
 
         protected Builder parse(Tokens tokens) {
@@ -93,17 +244,80 @@ public class DefaultField implements TimeField {
             } else if (token == Token.MATCH_ALL) {
                 token = tokens.next();
                 if (token == Token.SKIP) {
-                    rangeSkip(first, last, nextNumber(tokens));
+                    rangeSkip(first, last, nextSkip(tokens));
                 } else if (token == Token.VALUE_SEPARATOR) {
                     range(first, last);
                 } else if (endOfField(token)) {
                     range(first, last);
                     return true;
                 }
+            } else if (token == Token.HASH) {
+                return parseHash(tokens, first, last);
             }
             return false;
         }
 
+        /**
+         * Parses the H tokens "H", "H(a-b)", "H/n", and "H(a-b)/n". H stands for a stable pseudo-random value
+         * of the range, "/n" for every n-th value starting at such a value.
+         * @param tokens tokens
+         * @param first first
+         * @param last last
+         * @return true if end reached
+         */
+        protected boolean parseHash(Tokens tokens, int first, int last) {
+            int f = first;
+            int l = hashLast(last);
+            Token t = tokens.next();
+            if (t == Token.LEFT_PARENTHESIS) {
+                f = nextNumber(tokens);
+                if (tokens.next() != Token.RANGE) {
+                    tokens.error("Expected range in H()");
+                    return true;
+                }
+                l = nextNumber(tokens);
+                if (tokens.next() != Token.RIGHT_PARENTHESIS) {
+                    tokens.error("Expected ) after H(");
+                    return true;
+                }
+                if (f < first || l > last) {
+                    tokens.error("H range " + f + "-" + l + " is not within " + first + "-" + last);
+                    return true;
+                }
+                t = tokens.next();
+            }
+            if (f >= l) {
+                tokens.error("H needs a range, not " + f + "-" + l);
+                return true;
+            }
+            if (t == Token.SKIP) {
+                int skip = nextNumber(tokens);
+                if (skip <= 0) {
+                    tokens.error("H needs a positive skip, not " + skip);
+                    return true;
+                }
+                for (int i = f + tokens.hash(Math.min(skip, l - f + 1)); i <= l; i += skip) {
+                    add(i);
+                }
+                return false;
+            }
+            if (t != Token.VALUE_SEPARATOR && !endOfField(t)) {
+                tokens.error("Expected /, comma or end of field after H, not " + t);
+                return true;
+            }
+            add(f + tokens.hash(l - f + 1));
+            return endOfField(t);
+        }
+
+        /**
+         * Returns the last value an H token without explicit range may take.
+         * @param last last
+         * @return the last value for H
+         */
+        protected int hashLast(int last) {
+            return last;
+        }
+
         /**
          * Returns true if the end of this field has been reached.
          * @param tokens tokens
@@ -116,12 +330,12 @@ public class DefaultField implements TimeField {
             Token t = token;
             int l = last;
             if (t == Token.SKIP) {
-                rangeSkip(first, l, nextNumber(tokens));
+                rangeSkip(first, l, nextSkip(tokens));
             } else if (t == Token.RANGE) {
                 l = nextNumber(tokens);
                 t = tokens.next();
                 if (t == Token.SKIP) {
-                    rangeSkip(first, l, nextNumber(tokens));
+                    rangeSkip(first, l, nextSkip(tokens));
                 } else if (t == Token.VALUE_SEPARATOR) {
                     range(first, l);
                 } else if (endOfField(t)) {
@@ -137,11 +351,35 @@ public class DefaultField implements TimeField {
             return false;
         }
 
+        /**
+         * Returns the next number. If there is none, and the error is recorded in a result, returns 1, so
+         * the parser ends the field without failing again.
+         * @param tokens tokens
+         * @return the number
+         */
         protected int nextNumber(Tokens tokens) {
             if (tokens.next() == Token.NUMBER) {
                 return tokens.number();
             }
-            throw new IllegalStateException("Expected number");
+            if (!tokens.hasResult()) {
+                throw new IllegalStateException("Expected number");
+            }
+            tokens.error("Expected number");
+            return 1;
+        }
+
+        /**
+         * Returns the next number as the skip of a range, which must be positive.
+         * @param tokens tokens
+         * @return the skip
+         */
+        protected int nextSkip(Tokens tokens) {
+            int skip = nextNumber(tokens);
+            if (skip <= 0) {
+                tokens.error("Skip must be positive, not " + skip);
+                return 1;
+            }
+            return skip;
         }
 
         protected boolean endOfField(Token token) {
@@ -167,7 +405,14 @@ public class DefaultField implements TimeField {
         }
 
         protected void add(int value) {
-            numbers.add(value);
+            if (value >= 0 && value < BITS) {
+                bits |= 1L << value;
+            } else {
+                if (overflow == null) {
+                    overflow = new TreeSet<>();
+                }
+                overflow.add(value);
+            }
         }
 
         protected DefaultField build() {
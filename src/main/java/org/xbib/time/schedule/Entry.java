@@ -2,23 +2,68 @@ package org.xbib.time.schedule;
 
 import java.time.ZonedDateTime;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Entry<T> {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Entry, Histogram> RUN_TIME =
+            AtomicReferenceFieldUpdater.newUpdater(Entry.class, Histogram.class, "runTime");
+
     private final String name;
 
     private final CronExpression cronExpression;
 
     private final Callable<T> callable;
 
-    private ZonedDateTime lastCalled;
+    private final MisfirePolicy misfirePolicy;
+
+    private final TransitionPolicy transitionPolicy;
+
+    /**
+     * Written by the tick, read by any thread, e.g. through {@link CronSchedule#getEntries()}, the metrics
+     * and the journal.
+     */
+    private volatile ZonedDateTime lastCalled;
+
+    private volatile ZonedDateTime nextCall;
+
+    private volatile boolean cancelled;
+
+    private volatile Histogram runTime;
+
+    /**
+     * The links of this entry in a {@link TimingWheelEntryQueue}.
+     */
+    TimingWheelEntryQueue.Slot<T> slot;
+
+    Entry<T> previous;
 
-    private ZonedDateTime nextCall;
+    Entry<T> next;
+
+    /**
+     * Whether this node of a cluster calls the entry, as of the version of the partition, only used by the tick.
+     */
+    boolean owned = true;
+
+    int partitionVersion = -1;
 
     public Entry(String name, CronExpression cronExpression, Callable<T> callable) {
+        this(name, cronExpression, callable, MisfirePolicy.SKIP);
+    }
+
+    public Entry(String name, CronExpression cronExpression, Callable<T> callable, MisfirePolicy misfirePolicy) {
+        this(name, cronExpression, callable, misfirePolicy, TransitionPolicy.DEFAULT);
+    }
+
+    public Entry(String name, CronExpression cronExpression, Callable<T> callable, MisfirePolicy misfirePolicy,
+                 TransitionPolicy transitionPolicy) {
         this.name = name;
         this.cronExpression = cronExpression;
         this.callable = callable;
+        this.misfirePolicy = misfirePolicy;
+        this.transitionPolicy = transitionPolicy;
     }
 
     public String getName() {
@@ -33,20 +78,80 @@ public class Entry<T> {
         return callable;
     }
 
+    public MisfirePolicy getMisfirePolicy() {
+        return misfirePolicy;
+    }
+
+    public TransitionPolicy getTransitionPolicy() {
+        return transitionPolicy;
+    }
+
+    /**
+     * Returns true if this entry runs at the given time, with its transition policy.
+     * @param time the time
+     * @return true if this entry runs
+     */
+    public boolean matches(ZonedDateTime time) {
+        return cronExpression.matches(time.toEpochSecond(), time.getZone(), transitionPolicy);
+    }
+
     public void setLastCalled(ZonedDateTime lastCalled) {
         this.lastCalled = lastCalled;
-        // heuristic, limit to 1 year ahead
-        this.nextCall = cronExpression.nextExecution(lastCalled, lastCalled.plusYears(1));
+        this.nextCall = nextExecution(lastCalled);
     }
 
     public ZonedDateTime getLastCalled() {
         return lastCalled;
     }
 
+    public void setNextCall(ZonedDateTime nextCall) {
+        this.nextCall = nextCall;
+    }
+
     public ZonedDateTime getNextCall() {
         return nextCall;
     }
 
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Returns the run times of the callable of this entry, in nanoseconds. The histogram is created
+     * when the callable completes for the first time, with a precision of 3 bits.
+     * @return the run times, or null if the callable has not completed yet
+     */
+    public Histogram getRunTime() {
+        return runTime;
+    }
+
+    void recordRunTime(long nanos) {
+        Histogram h = runTime;
+        if (h == null) {
+            RUN_TIME.compareAndSet(this, null, new Histogram(3, TimeUnit.HOURS.toNanos(1L)));
+            h = runTime;
+        }
+        h.record(nanos);
+    }
+
+    /**
+     * Returns the next execution time of this entry after the given time.
+     * @param from the time to start from, exclusive
+     * @return the next execution time, or null if there is none
+     */
+    public ZonedDateTime nextExecution(ZonedDateTime from) {
+        try {
+            // heuristic, limit to 8 years ahead, the longest gap between two leap days
+            return cronExpression.nextExecution(from, from.plusYears(8), transitionPolicy);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
     @Override
     public String toString() {
         return "Entry[name=" + name + ", expression=" + cronExpression +
@@ -0,0 +1,41 @@
+package org.xbib.time.schedule;
+
+import java.util.function.Consumer;
+
+/**
+ * The entries of a queued {@link CronSchedule}, ordered by their next execution time.
+ *
+ * @param <T> the result type of the callables
+ */
+public interface EntryQueue<T> {
+
+    /**
+     * Adds an entry at the time of {@link Entry#getNextCall()}.
+     * @param entry the entry
+     */
+    void add(Entry<T> entry);
+
+    /**
+     * Removes an entry.
+     * @param entry the entry
+     * @return true if the entry was in this queue
+     */
+    boolean remove(Entry<T> entry);
+
+    /**
+     * Removes all entries which are due at or before the given time and passes them to the consumer,
+     * in the order of their next execution time.
+     * @param epochSecond the time as epoch second
+     * @param consumer the consumer of the due entries
+     */
+    void poll(long epochSecond, Consumer<Entry<T>> consumer);
+
+    /**
+     * Returns the time when this queue should be polled next. This is never later than
+     * the next execution time of the earliest entry.
+     * @return the time as epoch second, or {@link Long#MAX_VALUE} if this queue is empty
+     */
+    long nextTime();
+
+    int size();
+}
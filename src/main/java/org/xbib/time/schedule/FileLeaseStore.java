@@ -0,0 +1,149 @@
+package org.xbib.time.schedule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A lease store in a directory of a shared file system, one file per lease. All operations hold an exclusive
+ * lock on a lock file in the directory, so nodes in several processes on hosts sharing the directory may use
+ * the same store.
+ * <p>
+ * This store is meant for tests and for small clusters with few entries. Every firing of a partitioned schedule
+ * takes a lease, that is, writes a file, and every operation, including the scan of the directory by
+ * {@link #purge(long)}, holds the one lock of the directory, so all nodes sharing the store are serialized.
+ * Large clusters should use a lease store of a database or a coordination service.
+ */
+public class FileLeaseStore implements LeaseStore {
+
+    private static final String LOCK = ".lock";
+
+    private static final String SUFFIX = ".lease";
+
+    /**
+     * File locks are held by the JVM, threads of the same JVM are serialized on a monitor per directory.
+     */
+    private static final ConcurrentMap<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+
+    private final Object monitor;
+
+    public FileLeaseStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory).toRealPath();
+        this.monitor = MONITORS.computeIfAbsent(this.directory, k -> new Object());
+    }
+
+    @Override
+    public boolean tryAcquire(String name, String owner, long nowMillis, long durationMillis) {
+        return locked(() -> {
+            Path path = path(name);
+            String[] lease = read(path);
+            if (lease == null || Long.parseLong(lease[1]) <= nowMillis || lease[0].equals(owner)) {
+                write(path, owner, nowMillis + durationMillis);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void release(String name, String owner) {
+        locked(() -> {
+            Path path = path(name);
+            String[] lease = read(path);
+            if (lease != null && lease[0].equals(owner)) {
+                Files.deleteIfExists(path);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, String> getLeases(String prefix, long nowMillis) {
+        return locked(() -> {
+            Map<String, String> map = new TreeMap<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path path : stream) {
+                    String name = name(path);
+                    if (name.startsWith(prefix)) {
+                        String[] lease = read(path);
+                        if (lease != null && Long.parseLong(lease[1]) > nowMillis) {
+                            map.put(name, lease[0]);
+                        }
+                    }
+                }
+            }
+            return map;
+        });
+    }
+
+    @Override
+    public void purge(long nowMillis) {
+        locked(() -> {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path path : stream) {
+                    String[] lease = read(path);
+                    if (lease == null || Long.parseLong(lease[1]) <= nowMillis) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private <R> R locked(Action<R> action) {
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(LOCK),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return action.run();
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private Path path(String name) {
+        return directory.resolve(URLEncoder.encode(name, StandardCharsets.UTF_8) + SUFFIX);
+    }
+
+    private static String name(Path path) {
+        String fileName = path.getFileName().toString();
+        return URLDecoder.decode(fileName.substring(0, fileName.length() - SUFFIX.length()), StandardCharsets.UTF_8);
+    }
+
+    private static String[] read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        String[] lease = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).split("\n");
+        return lease.length == 2 ? lease : null;
+    }
+
+    private static void write(Path path, String owner, long expiresAtMillis) throws IOException {
+        Files.write(path, (owner + "\n" + expiresAtMillis).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @FunctionalInterface
+    private interface Action<R> {
+        R run() throws IOException;
+    }
+}
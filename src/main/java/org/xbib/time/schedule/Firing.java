@@ -0,0 +1,42 @@
+package org.xbib.time.schedule;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * An upcoming firing of an entry of a {@link CronSchedule}. Instances are immutable.
+ *
+ * @param <T> the result type of the callables
+ */
+public final class Firing<T> {
+
+    private final Entry<T> entry;
+
+    private final long epochSecond;
+
+    private final ZoneId zone;
+
+    Firing(Entry<T> entry, long epochSecond, ZoneId zone) {
+        this.entry = entry;
+        this.epochSecond = epochSecond;
+        this.zone = zone;
+    }
+
+    public Entry<T> getEntry() {
+        return entry;
+    }
+
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    public ZonedDateTime getTime() {
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+    }
+
+    @Override
+    public String toString() {
+        return "Firing[entry=" + entry.getName() + ",time=" + getTime() + "]";
+    }
+}
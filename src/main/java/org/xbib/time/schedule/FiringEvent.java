@@ -0,0 +1,40 @@
+package org.xbib.time.schedule;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * A flight recorder event for the run of the callable of a {@link CronSchedule} entry. The duration of the
+ * event is the run time of the callable.
+ */
+@Name("org.xbib.time.schedule.Firing")
+@Label("Cron Entry Firing")
+@Category({"xbib", "Cron"})
+@Description("The run of the callable of a cron schedule entry")
+@StackTrace(false)
+final class FiringEvent extends Event {
+
+    @Label("Entry")
+    String entry;
+
+    @Label("Expression")
+    String expression;
+
+    @Label("Execution Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long executionTime;
+
+    @Label("Lag")
+    @Description("The time from the execution time to the start of the callable")
+    @Timespan(Timespan.MILLISECONDS)
+    long lag;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,87 @@
+package org.xbib.time.schedule;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+
+/**
+ * The firings of a set of entries in ascending order of time, merged lazily from the execution times of the
+ * entries. A heap holds one cursor per entry, ordered by the next execution time of the entry. The cursor of
+ * a returned firing is only advanced when the next firing is asked for, so reading n firings of k entries
+ * searches n + k execution times, whatever the number of execution times of the entries in the range.
+ * Firings at the same time are ordered by the names of the entries.
+ *
+ * @param <T> the result type of the callables
+ */
+final class FiringIterator<T> implements Iterator<Firing<T>> {
+
+    private final PriorityQueue<Cursor<T>> queue;
+
+    private final ZoneId zone;
+
+    /**
+     * The cursor of the firing returned last, to be advanced and put back.
+     */
+    private Cursor<T> polled;
+
+    FiringIterator(Collection<Entry<T>> entries, ZonedDateTime from, ZonedDateTime to) {
+        this.queue = new PriorityQueue<>(Math.max(1, entries.size()),
+                Comparator.<Cursor<T>>comparingLong(c -> c.next).thenComparing(c -> c.entry.getName()));
+        this.zone = from.getZone();
+        for (Entry<T> entry : entries) {
+            PrimitiveIterator.OfLong executions = entry.getCronExpression()
+                    .executionEpochSeconds(from, to, entry.getTransitionPolicy()).iterator();
+            if (executions.hasNext()) {
+                queue.add(new Cursor<>(entry, executions, executions.nextLong()));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        advance();
+        return !queue.isEmpty();
+    }
+
+    @Override
+    public Firing<T> next() {
+        advance();
+        Cursor<T> cursor = queue.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        polled = cursor;
+        return new Firing<>(cursor.entry, cursor.next, zone);
+    }
+
+    private void advance() {
+        Cursor<T> cursor = polled;
+        if (cursor != null) {
+            polled = null;
+            if (cursor.executions.hasNext()) {
+                cursor.next = cursor.executions.nextLong();
+                queue.add(cursor);
+            }
+        }
+    }
+
+    private static final class Cursor<T> {
+
+        private final Entry<T> entry;
+
+        private final PrimitiveIterator.OfLong executions;
+
+        private long next;
+
+        private Cursor(Entry<T> entry, PrimitiveIterator.OfLong executions, long next) {
+            this.entry = entry;
+            this.executions = executions;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.xbib.time.schedule;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A consistent hash ring which assigns names to nodes. Every node is placed on the ring at a number of
+ * virtual points, a name belongs to the node of the first point at or after the hash of the name.
+ * If a node joins or leaves, only the names of the points it takes or leaves move. Instances are immutable.
+ */
+public class HashRing {
+
+    private final long[] points;
+
+    private final String[] nodes;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtual nodes must be positive: " + virtualNodes);
+        }
+        int n = nodes.size() * virtualNodes;
+        long[][] entries = new long[n][];
+        String[] names = nodes.toArray(new String[0]);
+        int i = 0;
+        for (int node = 0; node < names.length; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                entries[i++] = new long[] { Hashing.hash(names[node] + "#" + v), node };
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ?
+                Long.compare(a[0], b[0]) : names[(int) a[1]].compareTo(names[(int) b[1]]));
+        this.points = new long[n];
+        this.nodes = new String[n];
+        for (i = 0; i < n; i++) {
+            points[i] = entries[i][0];
+            this.nodes[i] = names[(int) entries[i][1]];
+        }
+    }
+
+    /**
+     * Returns the node a name belongs to.
+     * @param name the name
+     * @return the node, or null if the ring is empty
+     */
+    public String getNode(String name) {
+        if (points.length == 0) {
+            return null;
+        }
+        int i = Arrays.binarySearch(points, Hashing.hash(name));
+        if (i < 0) {
+            i = -i - 1;
+            if (i == points.length) {
+                i = 0;
+            }
+        }
+        return nodes[i];
+    }
+}
@@ -0,0 +1,32 @@
+package org.xbib.time.schedule;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A stable hash of strings, which must not change between versions, since it places the names of entries
+ * on a {@link HashRing} and seeds the values of H tokens.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the UTF-8 bytes, followed by the finalizer of MurmurHash3 for a better spread.
+     * @param s the string
+     * @return the hash
+     */
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
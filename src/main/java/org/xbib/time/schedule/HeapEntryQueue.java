@@ -0,0 +1,48 @@
+package org.xbib.time.schedule;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * An entry queue backed by a binary heap. Adding and polling take O(log n) time, removing takes O(n) time.
+ *
+ * @param <T> the result type of the callables
+ */
+public class HeapEntryQueue<T> implements EntryQueue<T> {
+
+    private final PriorityQueue<Entry<T>> queue;
+
+    public HeapEntryQueue() {
+        this.queue = new PriorityQueue<>(Comparator.comparing(Entry::getNextCall));
+    }
+
+    @Override
+    public void add(Entry<T> entry) {
+        queue.add(entry);
+    }
+
+    @Override
+    public boolean remove(Entry<T> entry) {
+        return queue.remove(entry);
+    }
+
+    @Override
+    public void poll(long epochSecond, Consumer<Entry<T>> consumer) {
+        Entry<T> entry;
+        while ((entry = queue.peek()) != null && entry.getNextCall().toEpochSecond() <= epochSecond) {
+            consumer.accept(queue.poll());
+        }
+    }
+
+    @Override
+    public long nextTime() {
+        Entry<T> entry = queue.peek();
+        return entry != null ? entry.getNextCall().toEpochSecond() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+}
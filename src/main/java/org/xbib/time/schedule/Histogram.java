@@ -0,0 +1,194 @@
+package org.xbib.time.schedule;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non-negative long values with buckets of bounded relative width, like HdrHistogram.
+ * Values below 2^precision have a bucket of their own, larger values share a bucket with the values which have
+ * the same highest precision + 1 bits, so a recorded value is off by less than 1 / 2^precision.
+ * <p>
+ * Recording does not lock and does not allocate. Values above the highest trackable value are counted in the
+ * last bucket, the maximum is always exact.
+ */
+public class Histogram {
+
+    private final int precision;
+
+    private final long highestTrackableValue;
+
+    private final AtomicLongArray counts;
+
+    private final LongAdder sum;
+
+    private final AtomicLong min;
+
+    private final AtomicLong max;
+
+    /**
+     * Creates a histogram.
+     * @param precision the number of bits of a value which are kept, between 1 and 10
+     * @param highestTrackableValue the highest value with a bucket of its own
+     */
+    public Histogram(int precision, long highestTrackableValue) {
+        if (precision < 1 || precision > 10) {
+            throw new IllegalArgumentException("precision must be between 1 and 10: " + precision);
+        }
+        if (highestTrackableValue < 1) {
+            throw new IllegalArgumentException("highest trackable value must be positive: " + highestTrackableValue);
+        }
+        this.precision = precision;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(index(highestTrackableValue, precision) + 1);
+        this.sum = new LongAdder();
+        this.min = new AtomicLong(Long.MAX_VALUE);
+        this.max = new AtomicLong(Long.MIN_VALUE);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * @param value the value
+     */
+    public void record(long value) {
+        long v = Math.max(0L, value);
+        counts.incrementAndGet(index(Math.min(v, highestTrackableValue), precision));
+        sum.add(v);
+        long m = max.get();
+        while (v > m && !max.compareAndSet(m, v)) {
+            m = max.get();
+        }
+        m = min.get();
+        while (v < m && !min.compareAndSet(m, v)) {
+            m = min.get();
+        }
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Returns a copy of the recorded values. Values recorded while the copy is taken may be missing
+     * from some of its statistics.
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] c = new long[counts.length()];
+        long count = 0L;
+        for (int i = 0; i < c.length; i++) {
+            c[i] = counts.get(i);
+            count += c[i];
+        }
+        return new Snapshot(precision, c, count, sum.sum(), min.get(), max.get());
+    }
+
+    private static int index(long value, int precision) {
+        if (value < (1L << precision)) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - precision;
+        return ((shift + 1) << precision) + (int) ((value >>> shift) & ((1L << precision) - 1));
+    }
+
+    private static long highestValue(int index, int precision) {
+        int shift = (index >>> precision) - 1;
+        if (shift < 0) {
+            return index;
+        }
+        long sub = (index & ((1L << precision) - 1)) | (1L << precision);
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of a histogram.
+     */
+    public static class Snapshot {
+
+        private final int precision;
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long min;
+
+        private final long max;
+
+        private Snapshot(int precision, long[] counts, long count, long sum, long min, long max) {
+            this.precision = precision;
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the smallest recorded value.
+         * @return the minimum, or 0 if there are no values
+         */
+        public long getMin() {
+            return count > 0L ? min : 0L;
+        }
+
+        /**
+         * Returns the largest recorded value.
+         * @return the maximum, or 0 if there are no values
+         */
+        public long getMax() {
+            return count > 0L ? max : 0L;
+        }
+
+        public double getMean() {
+            return count > 0L ? (double) sum / count : 0.0d;
+        }
+
+        /**
+         * Returns the value below or at which the given percentage of the recorded values are. The value is
+         * the highest value of its bucket, but not more than the maximum.
+         * @param percentile the percentile, between 0 and 100
+         * @return the value, or 0 if there are no values
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile < 0.0d || percentile > 100.0d) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+            }
+            if (count == 0L) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0d * count));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    // the last bucket also holds the values above the highest trackable value
+                    long value = i < counts.length - 1 ? Math.min(highestValue(i, precision), max) : max;
+                    return Math.max(getMin(), value);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ",min=" + getMin() + ",mean=" + (long) getMean() +
+                    ",p50=" + getValueAtPercentile(50.0d) + ",p99=" + getValueAtPercentile(99.0d) +
+                    ",p999=" + getValueAtPercentile(99.9d) + ",max=" + getMax();
+        }
+    }
+}
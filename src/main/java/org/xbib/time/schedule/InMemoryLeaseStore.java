@@ -0,0 +1,59 @@
+package org.xbib.time.schedule;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A lease store in memory, for nodes running in one JVM, for example in tests.
+ */
+public class InMemoryLeaseStore implements LeaseStore {
+
+    private final ConcurrentMap<String, Lease> leases;
+
+    public InMemoryLeaseStore() {
+        this.leases = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public boolean tryAcquire(String name, String owner, long nowMillis, long durationMillis) {
+        Lease lease = leases.compute(name, (k, v) ->
+                v == null || v.expiresAtMillis <= nowMillis || v.owner.equals(owner) ?
+                        new Lease(owner, nowMillis + durationMillis) : v);
+        return lease.owner.equals(owner);
+    }
+
+    @Override
+    public void release(String name, String owner) {
+        leases.computeIfPresent(name, (k, v) -> v.owner.equals(owner) ? null : v);
+    }
+
+    @Override
+    public Map<String, String> getLeases(String prefix, long nowMillis) {
+        Map<String, String> map = new TreeMap<>();
+        leases.forEach((name, lease) -> {
+            if (name.startsWith(prefix) && lease.expiresAtMillis > nowMillis) {
+                map.put(name, lease.owner);
+            }
+        });
+        return map;
+    }
+
+    @Override
+    public void purge(long nowMillis) {
+        leases.values().removeIf(lease -> lease.expiresAtMillis <= nowMillis);
+    }
+
+    private static final class Lease {
+
+        private final String owner;
+
+        private final long expiresAtMillis;
+
+        private Lease(String owner, long expiresAtMillis) {
+            this.owner = owner;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.xbib.time.schedule;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A durable record of when the entries of a {@link CronSchedule} were called, and when they are called next.
+ * <p>
+ * Every call appends a record to a memory-mapped, append-only journal file. A checkpoint writes the state of
+ * all entries to a compact checkpoint file and starts the journal over. On startup, the state is read back
+ * with one sequential scan of the checkpoint and the journal, where the last record of an entry wins.
+ * <p>
+ * A record is the length of the UTF-8 encoded entry name plus one, the name, the last call and the next call
+ * in epoch seconds. A zero marks the end of the records, so the length is shifted by one for an empty name.
+ * The length is written last, so a record torn by a crash is not read back. Records written
+ * to the mapped file survive a crash of the process, {@link #checkpoint(Collection)} also forces them to disk.
+ */
+public class Journal implements Closeable {
+
+    private static final int MAGIC = 0x43524f4e;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER = 8;
+
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    private final Path journalPath;
+
+    private final Path checkpointPath;
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private int position;
+
+    public Journal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.journalPath = directory.resolve("journal");
+        this.checkpointPath = directory.resolve("checkpoint");
+        this.channel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, Math.max(channel.size(), INITIAL_SIZE));
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(HEADER, 0);
+            this.position = HEADER;
+        } else {
+            checkVersion(buffer.getInt(4));
+            this.position = scan(buffer, null);
+        }
+    }
+
+    /**
+     * Appends the state of an entry.
+     * @param entry the entry
+     */
+    public void append(Entry<?> entry) {
+        append(entry.getName(), entry.getLastCalled(), entry.getNextCall());
+    }
+
+    public synchronized void append(String name, ZonedDateTime lastCalled, ZonedDateTime nextCall) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + bytes.length + 16;
+        ensureCapacity(position + length + 4);
+        buffer.position(position + 4);
+        buffer.put(bytes);
+        buffer.putLong(lastCalled != null ? lastCalled.toEpochSecond() : NONE);
+        buffer.putLong(nextCall != null ? nextCall.toEpochSecond() : NONE);
+        buffer.putInt(0);
+        buffer.putInt(position, bytes.length + 1);
+        position += length;
+    }
+
+    /**
+     * Reads the state of all entries from the checkpoint and the journal.
+     * @return a map from entry names to the last call and the next call in epoch seconds,
+     * {@link Long#MIN_VALUE} if there is none
+     * @throws IOException if the checkpoint can not be read
+     */
+    public synchronized Map<String, long[]> read() throws IOException {
+        long records = ((Files.exists(checkpointPath) ? Files.size(checkpointPath) : 0L) + position) / 24L;
+        Map<String, long[]> state = new HashMap<>((int) Math.min(records * 4L / 3L + 1L, 1L << 30));
+        if (Files.exists(checkpointPath)) {
+            try (FileChannel checkpoint = FileChannel.open(checkpointPath, StandardOpenOption.READ)) {
+                ByteBuffer b = checkpoint.map(FileChannel.MapMode.READ_ONLY, 0L, checkpoint.size());
+                if (b.getInt(0) != MAGIC) {
+                    throw new IOException("not a checkpoint: " + checkpointPath);
+                }
+                checkVersion(b.getInt(4));
+                scan(b, state);
+            }
+        }
+        scan(buffer, state);
+        return state;
+    }
+
+    /**
+     * Writes the state of the given entries to the checkpoint and starts the journal over.
+     * @param entries the entries
+     * @throws IOException if the checkpoint can not be written
+     */
+    public synchronized void checkpoint(Collection<? extends Entry<?>> entries) throws IOException {
+        Path tmp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Entry<?> entry : entries) {
+                byte[] bytes = entry.getName().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length + 1);
+                out.write(bytes);
+                out.writeLong(entry.getLastCalled() != null ? entry.getLastCalled().toEpochSecond() : NONE);
+                out.writeLong(entry.getNextCall() != null ? entry.getNextCall().toEpochSecond() : NONE);
+            }
+            out.writeInt(0);
+        }
+        try (FileChannel c = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            c.force(true);
+        }
+        Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        buffer.putInt(HEADER, 0);
+        buffer.force();
+        position = HEADER;
+    }
+
+    public synchronized int size() {
+        return position;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.capacity()) {
+            long size = Math.max((long) buffer.capacity() * 2L, capacity);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("journal full, checkpoint needed: " + journalPath);
+            }
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads records after the header until the end marker or a torn record.
+     * @return the position of the end marker
+     */
+    private static int scan(ByteBuffer b, Map<String, long[]> state) {
+        int p = HEADER;
+        int limit = b.limit();
+        byte[] bytes = new byte[64];
+        while (p + 4 <= limit) {
+            int length = b.getInt(p) - 1;
+            if (length < 0 || p + 20L + length > limit) {
+                break;
+            }
+            if (state != null) {
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                }
+                b.get(p + 4, bytes, 0, length);
+                String name = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                long[] calls = state.get(name);
+                if (calls == null) {
+                    calls = new long[2];
+                    state.put(name, calls);
+                }
+                calls[0] = b.getLong(p + 4 + length);
+                calls[1] = b.getLong(p + 12 + length);
+            }
+            p += 4 + length + 16;
+        }
+        return p;
+    }
+
+    private static void checkVersion(int version) throws IOException {
+        if (version != VERSION) {
+            throw new IOException("unknown journal version: " + version);
+        }
+    }
+}
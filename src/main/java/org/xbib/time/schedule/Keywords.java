@@ -29,6 +29,26 @@ public final class Keywords {
         throw new IllegalArgumentException();
     }
 
+    /**
+     * Looks up a keyword in any case, without throwing.
+     * @param s the characters
+     * @param start the start of the keyword
+     * @param end the end of the keyword, exclusive
+     * @return the value of the keyword, or -1 if there is none
+     */
+    int find(CharSequence s, int start, int end) {
+        if (end - start != 3) {
+            return -1;
+        }
+        int a = Tokens.upperCase(s.charAt(start)) - 'A';
+        int b = Tokens.upperCase(s.charAt(start + 1)) - 'A';
+        int c = Tokens.upperCase(s.charAt(start + 2)) - 'A';
+        if ((a | b | c) < 0 || a >= keywords.length || b >= keywords.length || c >= keywords.length) {
+            return -1;
+        }
+        return keywords[a][b][c];
+    }
+
     private int arrayIndex(String s, int charIndex) {
         int index = letterAt(s, charIndex);
         if (index < 0 || index >= keywords.length) {
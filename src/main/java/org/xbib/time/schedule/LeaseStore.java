@@ -0,0 +1,42 @@
+package org.xbib.time.schedule;
+
+import java.util.Map;
+
+/**
+ * A store of named leases shared by the nodes of a cluster. A lease has an owner and expires at a given time.
+ * Implementations must make {@link #tryAcquire(String, String, long, long)} atomic across all nodes sharing
+ * the store.
+ */
+public interface LeaseStore {
+
+    /**
+     * Acquires a lease if it is free, expired, or already held by the owner, in which case it is renewed.
+     * @param name the name of the lease
+     * @param owner the owner
+     * @param nowMillis the current time in milliseconds
+     * @param durationMillis the duration of the lease in milliseconds
+     * @return true if the owner holds the lease now
+     */
+    boolean tryAcquire(String name, String owner, long nowMillis, long durationMillis);
+
+    /**
+     * Releases a lease if it is held by the owner.
+     * @param name the name of the lease
+     * @param owner the owner
+     */
+    void release(String name, String owner);
+
+    /**
+     * Returns the owners of all leases which are not expired and whose name starts with the given prefix.
+     * @param prefix the prefix of the lease names
+     * @param nowMillis the current time in milliseconds
+     * @return a map of lease names to owners
+     */
+    Map<String, String> getLeases(String prefix, long nowMillis);
+
+    /**
+     * Removes all expired leases.
+     * @param nowMillis the current time in milliseconds
+     */
+    void purge(long nowMillis);
+}
@@ -11,6 +11,16 @@ public enum MatchAllField implements TimeField {
         return true;
     }
 
+    @Override
+    public int next(int number) {
+        return number;
+    }
+
+    @Override
+    public int previous(int number) {
+        return number;
+    }
+
     @Override
     public NavigableSet<Integer> getNumbers() {
         return null;
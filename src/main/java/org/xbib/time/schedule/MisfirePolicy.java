@@ -0,0 +1,20 @@
+package org.xbib.time.schedule;
+
+/**
+ * What a {@link CronSchedule} does with the execution times of an entry it has missed,
+ * for example because the JVM was paused across a minute boundary.
+ */
+public enum MisfirePolicy {
+    /**
+     * Forget the missed execution times and continue with the next one.
+     */
+    SKIP,
+    /**
+     * Call the entry once now for all missed execution times, unless it is called now anyway.
+     */
+    FIRE_ONCE,
+    /**
+     * Call the entry once now for every missed execution time, up to the misfire limit of the schedule.
+     */
+    FIRE_ALL
+}
@@ -1,15 +1,25 @@
 package org.xbib.time.schedule;
 
+import java.nio.ByteBuffer;
+
 public class MonthField extends DefaultField {
 
     private MonthField(Builder b) {
         super(b);
     }
 
+    private MonthField(int flags, ByteBuffer buffer) {
+        super(flags, buffer);
+    }
+
     public static MonthField parse(Tokens s) {
         return new Builder().parse(s).build();
     }
 
+    static MonthField read(ByteBuffer buffer) {
+        return new MonthField(buffer.get(), buffer);
+    }
+
     public static class Builder extends DefaultField.Builder {
 
         protected static final Keywords KEYWORDS = new Keywords();
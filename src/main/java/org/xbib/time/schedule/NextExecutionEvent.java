@@ -0,0 +1,36 @@
+package org.xbib.time.schedule;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * A flight recorder event for the search of the next execution time of a cron expression.
+ */
+@Name("org.xbib.time.schedule.NextExecution")
+@Label("Cron Next Execution")
+@Category({"xbib", "Cron"})
+@Description("Search for the next execution time of a cron expression")
+@StackTrace(false)
+final class NextExecutionEvent extends Event {
+
+    @Label("Expression")
+    String expression;
+
+    @Label("From")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long from;
+
+    @Label("Next Execution")
+    @Description("The execution time found, 0 if there is none in the range")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long next;
+
+    @Label("Iterations")
+    @Description("The number of rounds of the search over the fields of the expression")
+    int iterations;
+}
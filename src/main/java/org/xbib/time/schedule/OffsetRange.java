@@ -0,0 +1,61 @@
+package org.xbib.time.schedule;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * The offset of a zone between two transitions of its zone rules, as a range of epoch seconds.
+ * Converting an epoch second in the range to local time is a single addition. Instances are immutable.
+ */
+final class OffsetRange {
+
+    private final ZoneId zone;
+
+    private final long start;
+
+    private final long end;
+
+    private final int offset;
+
+    private OffsetRange(ZoneId zone, long start, long end, int offset) {
+        this.zone = zone;
+        this.start = start;
+        this.end = end;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the range of the offset which is valid at the given epoch second.
+     * @param zone the zone
+     * @param epochSecond the epoch second
+     * @return the range
+     */
+    static OffsetRange of(ZoneId zone, long epochSecond) {
+        ZoneRules rules = zone.getRules();
+        Instant instant = Instant.ofEpochSecond(epochSecond);
+        int offset = rules.getOffset(instant).getTotalSeconds();
+        if (rules.isFixedOffset()) {
+            return new OffsetRange(zone, Long.MIN_VALUE, Long.MAX_VALUE, offset);
+        }
+        ZoneOffsetTransition previous = rules.previousTransition(instant.plusSeconds(1L));
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        return new OffsetRange(zone,
+                previous == null ? Long.MIN_VALUE : previous.toEpochSecond(),
+                next == null ? Long.MAX_VALUE : next.toEpochSecond(),
+                offset);
+    }
+
+    boolean contains(ZoneId zone, long epochSecond) {
+        return epochSecond >= start && epochSecond < end && (this.zone == zone || this.zone.equals(zone));
+    }
+
+    /**
+     * Returns the offset.
+     * @return the offset in seconds
+     */
+    int getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,29 @@
+package org.xbib.time.schedule;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for parsing a cron expression. Lookups in a {@link CronExpressionCache}
+ * which hit are not recorded.
+ */
+@Name("org.xbib.time.schedule.Parse")
+@Label("Cron Parse")
+@Category({"xbib", "Cron"})
+@Description("Parsing of a cron expression")
+@StackTrace(false)
+final class ParseEvent extends Event {
+
+    @Label("Expression")
+    String expression;
+
+    @Label("Hash Name")
+    String hashName;
+
+    @Label("Valid")
+    boolean valid;
+}
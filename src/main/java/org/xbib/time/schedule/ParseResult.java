@@ -0,0 +1,129 @@
+package org.xbib.time.schedule;
+
+/**
+ * The outcome of validating a cron expression with {@link CronExpression.Parser#isValid(CharSequence, ParseResult)}.
+ * Errors are recorded without creating an exception. The expression is copied when an error is recorded,
+ * since it may be a slice of a buffer which is reused, and the message is only built when it is asked for.
+ * One result can be reused for any number of expressions, for example for all lines of a crontab.
+ */
+public final class ParseResult {
+
+    private CharSequence source;
+
+    private String expression;
+
+    private Error error;
+
+    private int start;
+
+    private int end;
+
+    private String message;
+
+    public ParseResult() {
+        reset(null);
+    }
+
+    /**
+     * Clears this result for the next expression.
+     * @param source the expression
+     */
+    public void reset(CharSequence source) {
+        this.source = source;
+        this.expression = null;
+        this.error = null;
+        this.start = -1;
+        this.end = -1;
+        this.message = null;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    /**
+     * Returns the kind of error.
+     * @return the error, or null if the expression is valid
+     */
+    public Error getError() {
+        return error;
+    }
+
+    /**
+     * Returns the position of the error in the expression.
+     * @return the position, or -1 if the expression is valid or the error has no position
+     */
+    public int getPosition() {
+        return start;
+    }
+
+    /**
+     * Returns the message of the error, the same as the message of the exception the parser would throw.
+     * @return the message, or null if the expression is valid
+     */
+    public String getMessage() {
+        if (message == null && error != null) {
+            message = message(error, expression, start, end);
+        }
+        return message;
+    }
+
+    void fail(Error error, int start, int end) {
+        if (this.error == null) {
+            this.error = error;
+            this.expression = source.toString();
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    void fail(String message) {
+        if (this.error == null) {
+            this.error = Error.INVALID;
+            this.message = message;
+        }
+    }
+
+    static String message(Error error, CharSequence source, int start, int end) {
+        switch (error) {
+            case BAD_CHARACTER:
+                return "Bad character '" + Tokens.upperCase(source.charAt(start)) + "' at position " + start +
+                        " in string: " + source;
+            case BAD_KEYWORD:
+                return "Bad keyword '" + source.subSequence(start, end) + "' at position " + start +
+                        " in string: " + source;
+            case NUMBER_TOO_LARGE:
+                return "Number too large '" + source.subSequence(start, end) + "' at position " + start +
+                        " in string: " + source;
+            default:
+                return "Invalid expression: " + source;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "valid" : getMessage();
+    }
+
+    /**
+     * The kinds of errors.
+     */
+    public enum Error {
+        /**
+         * A character which is not part of the cron syntax.
+         */
+        BAD_CHARACTER,
+        /**
+         * A word which is not a name of a month or a day of week, or not allowed in its field.
+         */
+        BAD_KEYWORD,
+        /**
+         * A number which does not fit into an int.
+         */
+        NUMBER_TOO_LARGE,
+        /**
+         * An expression which is not valid for other reasons, see the message.
+         */
+        INVALID
+    }
+}
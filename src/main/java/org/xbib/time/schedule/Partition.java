@@ -0,0 +1,158 @@
+package org.xbib.time.schedule;
+
+import java.time.Clock;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The part of the entries of a cluster-wide schedule which one node calls. Every node of the cluster runs a
+ * {@link CronSchedule} with the same entries and its own partition. Entries are assigned to the live nodes by
+ * consistent hashing of their names, so every node calls about the same share of the entries.
+ * <p>
+ * Nodes announce themselves with a lease in a shared {@link LeaseStore}, which they renew on every heartbeat.
+ * If a node stops, its lease expires, and the other nodes take over its entries with their next heartbeat.
+ * Until all nodes have seen a change of the cluster, two nodes may assign an entry to themselves, so each
+ * firing also takes a lease of its own, and only the node which gets it calls the entry. The lease of a firing
+ * is kept until well past the time a late node could still fire it, so it is called only once.
+ * <p>
+ * A schedule only matches and fires the entries assigned to its node, it checks the assignment again when the
+ * {@link #getVersion() version} of the partition changes. So the cost of the ticks, and the number of firing
+ * leases taken, is shared by the nodes. The lease store still sees one lease per firing of the cluster and
+ * a renewal per node and heartbeat, it must keep up with the firings of all nodes together.
+ * <p>
+ * A node which has left the cluster stays out of it, it owns no entries and renews no lease.
+ */
+public class Partition {
+
+    private static final String NODE = "node/";
+
+    private static final String FIRING = "firing/";
+
+    private final String nodeId;
+
+    private final LeaseStore leaseStore;
+
+    private final Clock clock;
+
+    private final long leaseMillis;
+
+    private final int virtualNodes;
+
+    private volatile Set<String> nodes;
+
+    private volatile HashRing ring;
+
+    private volatile boolean left;
+
+    private volatile int version;
+
+    public Partition(String nodeId, LeaseStore leaseStore) {
+        this(nodeId, leaseStore, Clock.systemUTC(), 30000L, 128);
+    }
+
+    public Partition(String nodeId, LeaseStore leaseStore, Clock clock, long leaseMillis, int virtualNodes) {
+        if (leaseMillis < 3L) {
+            throw new IllegalArgumentException("lease too short: " + leaseMillis);
+        }
+        this.nodeId = nodeId;
+        this.leaseStore = leaseStore;
+        this.clock = clock;
+        this.leaseMillis = leaseMillis;
+        this.virtualNodes = virtualNodes;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    /**
+     * Returns the version of the assignment of the entries, which changes whenever the live nodes change.
+     * @return the version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the live nodes as seen by the last heartbeat.
+     * @return the nodes
+     */
+    public Set<String> getNodes() {
+        if (ring == null && !left) {
+            heartbeat();
+        }
+        return nodes;
+    }
+
+    /**
+     * Renews the lease of this node and updates the assignment of the entries from the live nodes.
+     * Should be called a few times per lease duration. Does nothing after the node has left.
+     */
+    public synchronized void heartbeat() {
+        if (left) {
+            return;
+        }
+        long now = clock.millis();
+        leaseStore.tryAcquire(NODE + nodeId, nodeId, now, leaseMillis);
+        leaseStore.purge(now);
+        Set<String> live = new TreeSet<>(leaseStore.getLeases(NODE, now).values());
+        if (ring == null || !live.equals(nodes)) {
+            nodes = live;
+            ring = new HashRing(live, virtualNodes);
+            version++;
+        }
+    }
+
+    /**
+     * Releases the lease of this node, so the other nodes take over its entries with their next heartbeat.
+     * The node does not join again.
+     */
+    public synchronized void leave() {
+        left = true;
+        leaseStore.release(NODE + nodeId, nodeId);
+        nodes = Set.of();
+        ring = null;
+        version++;
+    }
+
+    public boolean hasLeft() {
+        return left;
+    }
+
+    /**
+     * Returns true if an entry is assigned to this node.
+     * @param name the name of the entry
+     * @return true if this node calls the entry
+     */
+    public boolean owns(String name) {
+        HashRing r = ring;
+        if (r == null) {
+            heartbeat();
+            r = ring;
+        }
+        return r != null && nodeId.equals(r.getNode(name));
+    }
+
+    /**
+     * Returns true if this node calls an entry at a given time. The entry must be assigned to this node,
+     * and this node must get the lease of the firing. The lease of the firing lasts until a lease duration
+     * after the firing has become a misfire, so no node which ticks late takes it again.
+     * @param name the name of the entry
+     * @param epochSecond the execution time of the firing
+     * @param misfireThresholdMillis the time after which a firing is a misfire, in milliseconds
+     * @return true if this node calls the entry
+     */
+    public boolean acquire(String name, long epochSecond, long misfireThresholdMillis) {
+        if (!owns(name)) {
+            return false;
+        }
+        long now = clock.millis();
+        long expiresAtMillis = (epochSecond + 1L) * 1000L + misfireThresholdMillis + leaseMillis;
+        return leaseStore.tryAcquire(FIRING + name + "/" + epochSecond, nodeId, now,
+                Math.max(leaseMillis, expiresAtMillis - now));
+    }
+}
@@ -2,6 +2,8 @@ package org.xbib.time.schedule;
 
 import java.time.ZonedDateTime;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
  * Matches once only.
@@ -23,4 +25,19 @@ public final class RebootCronExpression extends CronExpression {
     public ZonedDateTime nextExecution(ZonedDateTime from, ZonedDateTime to) {
         return null;
     }
+
+    @Override
+    public ZonedDateTime previousExecution(ZonedDateTime from, ZonedDateTime to) {
+        return null;
+    }
+
+    @Override
+    public Stream<ZonedDateTime> executions(ZonedDateTime from, ZonedDateTime to) {
+        return Stream.empty();
+    }
+
+    @Override
+    public LongStream executionEpochSeconds(ZonedDateTime from, ZonedDateTime to) {
+        return LongStream.empty();
+    }
 }
@@ -0,0 +1,239 @@
+package org.xbib.time.schedule;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a {@link CronSchedule}. The schedule records into lock-free counters and histograms,
+ * readers pull a {@link Snapshot} whenever they like, for example to export it to a metrics library.
+ * <p>
+ * The lag of a firing is the time from its execution time to the start of its callable, in milliseconds
+ * of the clock of the schedule. It includes the delay of the tick and the wait in the job executor.
+ * Run times are in nanoseconds. The run times of each entry are kept with the entry, see
+ * {@link Entry#getRunTime()}.
+ */
+public class ScheduleMetrics {
+
+    private static final long HIGHEST_LAG = TimeUnit.DAYS.toMillis(1L);
+
+    private static final long HIGHEST_RUN_TIME = TimeUnit.HOURS.toNanos(1L);
+
+    private final Histogram lag;
+
+    private final Histogram runTime;
+
+    private final Histogram scanned;
+
+    private final Histogram queueDepth;
+
+    private final LongAdder ticks;
+
+    private final LongAdder submitted;
+
+    private final LongAdder completed;
+
+    private final LongAdder failed;
+
+    private final LongAdder rejected;
+
+    private final LongAdder misfires;
+
+    private final LongAdder skipped;
+
+    private final AtomicLong pending;
+
+    public ScheduleMetrics() {
+        this.lag = new Histogram(5, HIGHEST_LAG);
+        this.runTime = new Histogram(5, HIGHEST_RUN_TIME);
+        this.scanned = new Histogram(5, 1L << 24);
+        this.queueDepth = new Histogram(5, 1L << 24);
+        this.ticks = new LongAdder();
+        this.submitted = new LongAdder();
+        this.completed = new LongAdder();
+        this.failed = new LongAdder();
+        this.rejected = new LongAdder();
+        this.misfires = new LongAdder();
+        this.skipped = new LongAdder();
+        this.pending = new AtomicLong();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    void tick(int entriesScanned) {
+        ticks.increment();
+        scanned.record(entriesScanned);
+    }
+
+    void submitted() {
+        submitted.increment();
+        queueDepth.record(pending.incrementAndGet());
+    }
+
+    void rejected() {
+        rejected.increment();
+        pending.decrementAndGet();
+    }
+
+    void started(long lagMillis) {
+        pending.decrementAndGet();
+        lag.record(lagMillis);
+    }
+
+    void completed(Entry<?> entry, long nanos, boolean success) {
+        if (success) {
+            completed.increment();
+        } else {
+            failed.increment();
+        }
+        runTime.record(nanos);
+        entry.recordRunTime(nanos);
+    }
+
+    void misfired(boolean skip) {
+        misfires.increment();
+        if (skip) {
+            skipped.increment();
+        }
+    }
+
+    /**
+     * A copy of the metrics of a schedule at one point in time.
+     */
+    public static class Snapshot {
+
+        private final Histogram.Snapshot lag;
+
+        private final Histogram.Snapshot runTime;
+
+        private final Histogram.Snapshot scanned;
+
+        private final Histogram.Snapshot queueDepth;
+
+        private final long ticks;
+
+        private final long submitted;
+
+        private final long completed;
+
+        private final long failed;
+
+        private final long rejected;
+
+        private final long misfires;
+
+        private final long skipped;
+
+        private final long pending;
+
+        private Snapshot(ScheduleMetrics metrics) {
+            this.lag = metrics.lag.snapshot();
+            this.runTime = metrics.runTime.snapshot();
+            this.scanned = metrics.scanned.snapshot();
+            this.queueDepth = metrics.queueDepth.snapshot();
+            this.ticks = metrics.ticks.sum();
+            this.submitted = metrics.submitted.sum();
+            this.completed = metrics.completed.sum();
+            this.failed = metrics.failed.sum();
+            this.rejected = metrics.rejected.sum();
+            this.misfires = metrics.misfires.sum();
+            this.skipped = metrics.skipped.sum();
+            this.pending = Math.max(0L, metrics.pending.get());
+        }
+
+        /**
+         * Returns the lag of the firings, from the execution time to the start of the callable.
+         * @return the lag in milliseconds
+         */
+        public Histogram.Snapshot getLag() {
+            return lag;
+        }
+
+        /**
+         * Returns the run times of the callables of all entries.
+         * @return the run times in nanoseconds
+         */
+        public Histogram.Snapshot getRunTime() {
+            return runTime;
+        }
+
+        /**
+         * Returns the number of entries a tick looked at. In periodic mode, this is every entry,
+         * in queued mode, only the entries which were due.
+         * @return the entries scanned per tick
+         */
+        public Histogram.Snapshot getEntriesScanned() {
+            return scanned;
+        }
+
+        /**
+         * Returns the number of callables waiting in the job executor, sampled whenever a callable is submitted.
+         * @return the queue depth
+         */
+        public Histogram.Snapshot getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getTickCount() {
+            return ticks;
+        }
+
+        public long getSubmittedCount() {
+            return submitted;
+        }
+
+        public long getCompletedCount() {
+            return completed;
+        }
+
+        /**
+         * Returns the number of callables which threw an exception.
+         * @return the failed count
+         */
+        public long getFailedCount() {
+            return failed;
+        }
+
+        /**
+         * Returns the number of callables the job executor did not accept.
+         * @return the rejected count
+         */
+        public long getRejectedCount() {
+            return rejected;
+        }
+
+        /**
+         * Returns the number of times an entry was found to have missed its next call.
+         * @return the misfire count
+         */
+        public long getMisfireCount() {
+            return misfires;
+        }
+
+        /**
+         * Returns the number of misfires which were not called, because of the {@link MisfirePolicy} of the entry.
+         * @return the skipped count
+         */
+        public long getSkippedCount() {
+            return skipped;
+        }
+
+        /**
+         * Returns the number of callables which were submitted, but have not started yet.
+         * @return the pending count
+         */
+        public long getPendingCount() {
+            return pending;
+        }
+
+        @Override
+        public String toString() {
+            return "ticks=" + ticks + ",submitted=" + submitted + ",completed=" + completed + ",failed=" + failed +
+                    ",rejected=" + rejected + ",misfires=" + misfires + ",skipped=" + skipped + ",pending=" + pending +
+                    ",lag=[" + lag + "],runTime=[" + runTime + "],scanned=[" + scanned +
+                    "],queueDepth=[" + queueDepth + "]";
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.xbib.time.schedule;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for a tick of a {@link CronSchedule}, which looks for the entries to fire.
+ */
+@Name("org.xbib.time.schedule.Tick")
+@Label("Cron Schedule Tick")
+@Category({"xbib", "Cron"})
+@Description("A tick of a cron schedule")
+@StackTrace(false)
+final class TickEvent extends Event {
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Entries Scanned")
+    int scanned;
+
+    @Label("Entries Fired")
+    int fired;
+}
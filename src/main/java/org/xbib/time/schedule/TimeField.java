@@ -6,6 +6,45 @@ public interface TimeField {
 
     boolean contains(int number);
 
+    /**
+     * Returns the smallest number of this field which is greater than or equal to the given number.
+     * A full range field returns the given number unchanged, it is up to the caller to respect the
+     * bounds of the field.
+     * The default implementation looks the number up in {@link #getNumbers()}.
+     * @param number the number to start from
+     * @return the next number, or -1 if there is no such number
+     */
+    default int next(int number) {
+        NavigableSet<Integer> numbers = getNumbers();
+        if (numbers == null) {
+            return number;
+        }
+        Integer next = numbers.ceiling(number);
+        return next != null ? next : -1;
+    }
+
+    /**
+     * Returns the largest number of this field which is less than or equal to the given number.
+     * A full range field returns the given number unchanged, it is up to the caller to respect the
+     * bounds of the field.
+     * The default implementation looks the number up in {@link #getNumbers()}.
+     * @param number the number to start from
+     * @return the previous number, or -1 if there is no such number
+     */
+    default int previous(int number) {
+        NavigableSet<Integer> numbers = getNumbers();
+        if (numbers == null) {
+            return number;
+        }
+        Integer previous = numbers.floor(number);
+        return previous != null ? previous : -1;
+    }
+
+    /**
+     * Returns the numbers of this field, or null if this field is a full range. Implementations may build
+     * a new set on every call, so this is meant for inspecting a field, not for searching.
+     * @return the numbers
+     */
     NavigableSet<Integer> getNumbers();
 
     boolean isFullRange();
@@ -0,0 +1,264 @@
+package org.xbib.time.schedule;
+
+import java.util.function.Consumer;
+
+/**
+ * An entry queue backed by a hierarchical timing wheel with second, minute, hour and day wheels,
+ * and an overflow list for entries more than a year ahead. Adding, removing and expiring an entry
+ * take O(1) amortised time, independent of the number of entries. An entry moves down to a finer
+ * wheel at most four times before it expires.
+ *
+ * @param <T> the result type of the callables
+ */
+public class TimingWheelEntryQueue<T> implements EntryQueue<T> {
+
+    private static final int DAYS = 366;
+
+    private static final int EXPIRED = 0;
+
+    private static final int SECONDS = 1;
+
+    private static final int MINUTES = 2;
+
+    private static final int HOURS = 3;
+
+    private static final int DAYS_LEVEL = 4;
+
+    private static final int OVERFLOW = 5;
+
+    private static final int PENDING = 6;
+
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final Slot<T>[] seconds;
+
+    private final Slot<T>[] minutes;
+
+    private final Slot<T>[] hours;
+
+    private final Slot<T>[] days;
+
+    private final Slot<T> overflow;
+
+    private final Slot<T> expired;
+
+    private final Slot<T> pending;
+
+    private final int[] counts;
+
+    private long now;
+
+    private int size;
+
+    /**
+     * Creates a timing wheel which takes its current time from the first poll, that is, from the clock of the
+     * schedule. Entries added before the first poll are kept aside until then.
+     */
+    public TimingWheelEntryQueue() {
+        this(UNSET);
+    }
+
+    /**
+     * Creates a timing wheel.
+     * @param epochSecond the current time of the wheel
+     */
+    public TimingWheelEntryQueue(long epochSecond) {
+        this.seconds = slots(60, SECONDS);
+        this.minutes = slots(60, MINUTES);
+        this.hours = slots(24, HOURS);
+        this.days = slots(DAYS, DAYS_LEVEL);
+        this.overflow = new Slot<>(OVERFLOW);
+        this.expired = new Slot<>(EXPIRED);
+        this.pending = new Slot<>(PENDING);
+        this.counts = new int[PENDING + 1];
+        this.now = epochSecond;
+    }
+
+    @Override
+    public void add(Entry<T> entry) {
+        if (now == UNSET) {
+            pending.push(entry);
+            counts[PENDING]++;
+        } else {
+            place(entry, entry.getNextCall().toEpochSecond());
+        }
+        size++;
+    }
+
+    @Override
+    public boolean remove(Entry<T> entry) {
+        Slot<T> slot = entry.slot;
+        if (slot == null) {
+            return false;
+        }
+        slot.unlink(entry);
+        counts[slot.level]--;
+        size--;
+        return true;
+    }
+
+    @Override
+    public void poll(long epochSecond, Consumer<Entry<T>> consumer) {
+        if (now == UNSET) {
+            now = epochSecond;
+            cascade(pending);
+        }
+        drain(expired, consumer);
+        if (size == 0 && epochSecond > now) {
+            now = epochSecond;
+            return;
+        }
+        while (now < epochSecond) {
+            now++;
+            if (Math.floorMod(now, 86400L) == 0L) {
+                cascade(days[Math.floorMod(Math.floorDiv(now, 86400L), DAYS)]);
+                cascade(overflow);
+            }
+            if (Math.floorMod(now, 3600L) == 0L) {
+                cascade(hours[(int) Math.floorMod(Math.floorDiv(now, 3600L), 24L)]);
+            }
+            if (Math.floorMod(now, 60L) == 0L) {
+                cascade(minutes[(int) Math.floorMod(Math.floorDiv(now, 60L), 60L)]);
+            }
+            drain(seconds[(int) Math.floorMod(now, 60L)], consumer);
+            drain(expired, consumer);
+        }
+    }
+
+    @Override
+    public long nextTime() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        if (counts[PENDING] > 0) {
+            long next = Long.MAX_VALUE;
+            for (Entry<T> entry = pending.head; entry != null; entry = entry.next) {
+                next = Math.min(next, entry.getNextCall().toEpochSecond());
+            }
+            return next;
+        }
+        if (counts[EXPIRED] > 0) {
+            return now;
+        }
+        // the next minute, when the coarser wheels cascade
+        long minute = now - Math.floorMod(now, 60L) + 60L;
+        if (counts[SECONDS] > 0) {
+            boolean coarser = counts[MINUTES] > 0 || counts[HOURS] > 0 || counts[DAYS_LEVEL] > 0 ||
+                    counts[OVERFLOW] > 0;
+            for (int i = 1; i <= 60; i++) {
+                if (seconds[(int) Math.floorMod(now + i, 60L)].head != null) {
+                    return coarser ? Math.min(now + i, minute) : now + i;
+                }
+            }
+        }
+        return minute;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry, long time) {
+        Slot<T> slot;
+        if (time <= now) {
+            slot = expired;
+        } else if (time - now < 60L) {
+            slot = seconds[(int) Math.floorMod(time, 60L)];
+        } else if (Math.floorDiv(time, 60L) - Math.floorDiv(now, 60L) <= 60L) {
+            slot = minutes[(int) Math.floorMod(Math.floorDiv(time, 60L), 60L)];
+        } else if (Math.floorDiv(time, 3600L) - Math.floorDiv(now, 3600L) <= 24L) {
+            slot = hours[(int) Math.floorMod(Math.floorDiv(time, 3600L), 24L)];
+        } else if (Math.floorDiv(time, 86400L) - Math.floorDiv(now, 86400L) <= DAYS) {
+            slot = days[Math.floorMod(Math.floorDiv(time, 86400L), DAYS)];
+        } else {
+            slot = overflow;
+        }
+        slot.push(entry);
+        counts[slot.level]++;
+    }
+
+    private void cascade(Slot<T> slot) {
+        Entry<T> entry = slot.head;
+        slot.head = null;
+        counts[slot.level] = counts[slot.level] - slot.count;
+        slot.count = 0;
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.slot = null;
+            entry.previous = null;
+            entry.next = null;
+            place(entry, entry.getNextCall().toEpochSecond());
+            entry = next;
+        }
+    }
+
+    private void drain(Slot<T> slot, Consumer<Entry<T>> consumer) {
+        Entry<T> entry = slot.head;
+        slot.head = null;
+        counts[slot.level] = counts[slot.level] - slot.count;
+        size = size - slot.count;
+        slot.count = 0;
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.slot = null;
+            entry.previous = null;
+            entry.next = null;
+            consumer.accept(entry);
+            entry = next;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Slot<T>[] slots(int length, int level) {
+        Slot<T>[] slots = (Slot<T>[]) new Slot<?>[length];
+        for (int i = 0; i < length; i++) {
+            slots[i] = new Slot<>(level);
+        }
+        return slots;
+    }
+
+    /**
+     * A doubly linked list of entries, linked through the entries themselves.
+     *
+     * @param <T> the result type of the callables
+     */
+    static final class Slot<T> {
+
+        private final int level;
+
+        private Entry<T> head;
+
+        private int count;
+
+        private Slot(int level) {
+            this.level = level;
+        }
+
+        private void push(Entry<T> entry) {
+            entry.slot = this;
+            entry.previous = null;
+            entry.next = head;
+            if (head != null) {
+                head.previous = entry;
+            }
+            head = entry;
+            count++;
+        }
+
+        private void unlink(Entry<T> entry) {
+            if (entry.previous != null) {
+                entry.previous.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.previous = entry.previous;
+            }
+            entry.slot = null;
+            entry.previous = null;
+            entry.next = null;
+            count--;
+        }
+    }
+}
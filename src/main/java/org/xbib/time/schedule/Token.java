@@ -3,12 +3,15 @@ package org.xbib.time.schedule;
 public enum Token {
     END_OF_INPUT,
     FIELD_SEPARATOR,
+    HASH,
     LAST,
+    LEFT_PARENTHESIS,
     MATCH_ALL,
     MATCH_ONE,
     NTH,
     NUMBER,
     RANGE,
+    RIGHT_PARENTHESIS,
     SKIP,
     VALUE_SEPARATOR,
     WEEKDAY
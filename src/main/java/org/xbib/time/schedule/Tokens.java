@@ -1,8 +1,17 @@
 package org.xbib.time.schedule;
 
+/**
+ * The tokenizer of cron expressions. It reads any {@link CharSequence}, for example a {@link java.nio.CharBuffer}
+ * over a line of a mapped file, folds lower case letters to upper case while reading, and parses numbers
+ * without creating strings. Errors of tokens, and errors of the structure of fields reported by the parsers of
+ * the fields, are thrown as {@link IllegalArgumentException}, or, if the tokens were created with
+ * a {@link ParseResult}, recorded there, and the tokens end.
+ */
 public final class Tokens {
 
-    private final String source;
+    private final CharSequence source;
+
+    private final ParseResult result;
 
     private final int length;
 
@@ -14,10 +23,55 @@ public final class Tokens {
 
     private int position;
 
-    public Tokens(String s) {
+    private String hashName;
+
+    private long hash;
+
+    private int draws;
+
+    public Tokens(CharSequence s) {
+        this(s, null);
+    }
+
+    /**
+     * Creates tokens which report errors to a result instead of throwing. After an error,
+     * the only token is {@link Token#END_OF_INPUT}.
+     * @param s the expression
+     * @param result the result, or null to throw on errors
+     */
+    public Tokens(CharSequence s, ParseResult result) {
         source = s;
         length = s.length();
         position = 0;
+        this.result = result;
+    }
+
+    /**
+     * Sets the name which seeds the values of H tokens, usually the name of the schedule entry.
+     * @param name the name
+     */
+    public void hashName(String name) {
+        this.hashName = name;
+        this.hash = name != null ? Hashing.hash(name) : 0L;
+        this.draws = 0;
+    }
+
+    /**
+     * Returns the next value of an H token, a stable pseudo-random number from 0 to bound, exclusive,
+     * derived from the hash name and the number of H tokens before.
+     * @param bound the bound
+     * @return the value
+     */
+    public int hash(int bound) {
+        if (hashName == null) {
+            error("H requires a name to hash in string: " + source);
+            return 0;
+        }
+        long h = hash + ++draws * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) bound);
     }
 
     public int number() {
@@ -47,6 +101,7 @@ public final class Tokens {
         }
         int start = position;
         char c = currentChar();
+        int n;
         switch (c) {
             case ' ':
             case '\t':
@@ -68,14 +123,18 @@ public final class Tokens {
             case '7':
             case '8':
             case '9':
-                do {
-                    if (!hasNextChar()) {
+                n = c - '0';
+                while (hasNextChar() && isDigit(c = nextChar())) {
+                    if (n > (Integer.MAX_VALUE - (c - '0')) / 10) {
                         position++;
-                        break;
+                        return error(ParseResult.Error.NUMBER_TOO_LARGE, start);
                     }
-                    c = nextChar();
-                } while (isDigit(c));
-                number = Integer.parseInt(substringFrom(start)) - offset;
+                    n = n * 10 + c - '0';
+                }
+                if (isDigit(c)) {
+                    position++;
+                }
+                number = n - offset;
                 return Token.NUMBER;
             case ',':
                 position++;
@@ -115,6 +174,32 @@ public final class Tokens {
             case 'X':
             case 'Y':
             case 'Z':
+            case 'a':
+            case 'b':
+            case 'c':
+            case 'd':
+            case 'e':
+            case 'f':
+            case 'g':
+            case 'h':
+            case 'i':
+            case 'j':
+            case 'k':
+            case 'l':
+            case 'm':
+            case 'n':
+            case 'o':
+            case 'p':
+            case 'q':
+            case 'r':
+            case 's':
+            case 't':
+            case 'u':
+            case 'v':
+            case 'w':
+            case 'x':
+            case 'y':
+            case 'z':
                 do {
                     if (!hasNextChar()) {
                         position++;
@@ -123,25 +208,24 @@ public final class Tokens {
                     c = nextChar();
                 } while (isLetter(c));
                 if (position - start == 1) {
-                    c = source.charAt(start);
+                    c = upperCase(source.charAt(start));
                     if (c == 'L') {
                         return Token.LAST;
                     } else if (c == 'W') {
                         return Token.WEEKDAY;
+                    } else if (c == 'H') {
+                        return Token.HASH;
                     }
-                    throw new IllegalArgumentException(badCharacter(c, start));
+                    return error(ParseResult.Error.BAD_CHARACTER, start);
                 } else {
                     if (keywords != null) {
-                        try {
-                            int mapped = keywords.get(source, start, position);
-                            if (mapped != -1) {
-                                number = mapped;
-                                return Token.NUMBER;
-                            }
-                        } catch (IllegalArgumentException ignore) {
+                        n = keywords.find(source, start, position);
+                        if (n != -1) {
+                            number = n;
+                            return Token.NUMBER;
                         }
                     }
-                    throw new IllegalArgumentException(badKeyword(start));
+                    return error(ParseResult.Error.BAD_KEYWORD, start);
                 }
             case '?':
                 position++;
@@ -149,20 +233,49 @@ public final class Tokens {
             case '#':
                 position++;
                 return Token.NTH;
+            case '(':
+                position++;
+                return Token.LEFT_PARENTHESIS;
+            case ')':
+                position++;
+                return Token.RIGHT_PARENTHESIS;
         }
-        throw new IllegalArgumentException(badCharacter(c, position));
+        position++;
+        return error(ParseResult.Error.BAD_CHARACTER, start);
     }
 
-    private String badCharacter(char c, int index) {
-        return "Bad character '" + c + "' at position " + index + " in string: " + source;
+    /**
+     * Returns true if errors are recorded in a result instead of thrown.
+     * @return true if there is a result
+     */
+    public boolean hasResult() {
+        return result != null;
     }
 
-    private String badKeyword(int start) {
-        return "Bad keyword '" + substringFrom(start) + "' at position " + start + " in string: " + source;
+    /**
+     * Reports an error of the structure of a field, for example a missing number. After an error recorded
+     * in a result, the only token is {@link Token#END_OF_INPUT}.
+     * @param message the message
+     * @throws IllegalArgumentException if there is no result
+     */
+    public void error(String message) {
+        if (result == null) {
+            throw new IllegalArgumentException(message);
+        }
+        result.fail(message);
+        position = length;
     }
 
-    private String substringFrom(int start) {
-        return source.substring(start, position);
+    /**
+     * Reports an error for the characters from start to the current position.
+     */
+    private Token error(ParseResult.Error error, int start) {
+        if (result == null) {
+            throw new IllegalArgumentException(ParseResult.message(error, source, start, position));
+        }
+        result.fail(error, start, position);
+        position = length;
+        return Token.END_OF_INPUT;
     }
 
     private boolean hasNextChar() {
@@ -178,7 +291,11 @@ public final class Tokens {
     }
 
     private static boolean isLetter(char c) {
-        return 'A' <= c && c <= 'Z';
+        return ('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z');
+    }
+
+    static char upperCase(char c) {
+        return 'a' <= c && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
     }
 
     private static boolean isDigit(char c) {
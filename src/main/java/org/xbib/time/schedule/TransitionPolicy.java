@@ -0,0 +1,79 @@
+package org.xbib.time.schedule;
+
+/**
+ * What happens to the local times of an expression at a transition of the zone rules, usually a change
+ * to or from daylight saving time. Local times in a gap, like 02:30 when the clocks jump from 02:00 to 03:00,
+ * do not exist, local times in an overlap, like 02:30 when the clocks go back from 03:00 to 02:00, exist twice.
+ * <p>
+ * The default policy shifts local times in a gap forward by the length of the gap, and runs local times in
+ * an overlap once, at the earlier offset. Instances are immutable.
+ */
+public final class TransitionPolicy {
+
+    /**
+     * Shift local times in a gap forward, run local times in an overlap once.
+     */
+    public static final TransitionPolicy DEFAULT = new TransitionPolicy(Gap.SHIFT_FORWARD, Overlap.ONCE);
+
+    private static final TransitionPolicy[] POLICIES = {
+            new TransitionPolicy(Gap.SKIP, Overlap.ONCE),
+            new TransitionPolicy(Gap.SKIP, Overlap.BOTH),
+            DEFAULT,
+            new TransitionPolicy(Gap.SHIFT_FORWARD, Overlap.BOTH)
+    };
+
+    private final Gap gap;
+
+    private final Overlap overlap;
+
+    private TransitionPolicy(Gap gap, Overlap overlap) {
+        this.gap = gap;
+        this.overlap = overlap;
+    }
+
+    public static TransitionPolicy of(Gap gap, Overlap overlap) {
+        return POLICIES[gap.ordinal() * 2 + overlap.ordinal()];
+    }
+
+    public Gap getGap() {
+        return gap;
+    }
+
+    public Overlap getOverlap() {
+        return overlap;
+    }
+
+    @Override
+    public String toString() {
+        return "TransitionPolicy[gap=" + gap + ",overlap=" + overlap + "]";
+    }
+
+    /**
+     * What happens to local times which do not exist.
+     */
+    public enum Gap {
+        /**
+         * Local times in the gap do not run.
+         */
+        SKIP,
+        /**
+         * Local times in the gap run shifted forward by the length of the gap, 02:30 runs at 03:30.
+         * A shifted time which is also an execution time after the gap runs once.
+         */
+        SHIFT_FORWARD
+    }
+
+    /**
+     * What happens to local times which exist twice.
+     */
+    public enum Overlap {
+        /**
+         * Local times in the overlap run once, at the earlier offset.
+         */
+        ONCE,
+        /**
+         * Local times in the overlap run twice, at the earlier and at the later offset.
+         */
+        BOTH
+    }
+}
@@ -0,0 +1,211 @@
+package org.xbib.time.schedule;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The transitions of the zone rules of a zone over a range of years, as sorted arrays of epoch seconds and
+ * offsets, so that searches resolve local times without querying the zone rules. Local times are given as
+ * seconds since 1970-01-01T00:00 local time.
+ * <p>
+ * Tables are cached per zone. A table which does not cover a local time is replaced by a table covering
+ * both its own years and the years around the local time, so a table obtained later covers all the years
+ * of the tables obtained before. Instances are immutable.
+ */
+final class ZoneTransitions {
+
+    private static final ConcurrentMap<ZoneId, ZoneTransitions> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The largest offset allowed by {@link java.time.ZoneOffset}.
+     */
+    private static final long MAX_OFFSET = 18L * 3600L;
+
+    private final ZoneRules rules;
+
+    private final boolean fixed;
+
+    private final long start;
+
+    private final long end;
+
+    private final int initialOffset;
+
+    private final long[] epochSeconds;
+
+    private final int[] offsetsBefore;
+
+    private final int[] offsetsAfter;
+
+    private ZoneTransitions(ZoneRules rules, long start, long end) {
+        this.rules = rules;
+        this.fixed = rules.isFixedOffset();
+        this.start = start;
+        this.end = end;
+        List<ZoneOffsetTransition> list = new ArrayList<>();
+        if (fixed) {
+            this.initialOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+        } else {
+            this.initialOffset = rules.getOffset(Instant.ofEpochSecond(start - 1L)).getTotalSeconds();
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochSecond(start - 1L));
+            while (transition != null && transition.toEpochSecond() < end) {
+                list.add(transition);
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+        this.epochSeconds = new long[list.size()];
+        this.offsetsBefore = new int[list.size()];
+        this.offsetsAfter = new int[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            epochSeconds[i] = list.get(i).toEpochSecond();
+            offsetsBefore[i] = list.get(i).getOffsetBefore().getTotalSeconds();
+            offsetsAfter[i] = list.get(i).getOffsetAfter().getTotalSeconds();
+        }
+    }
+
+    /**
+     * Returns the cached table of a zone covering the given local time, or the epoch second, as the
+     * local time and the epoch second are less than a day apart.
+     * @param zone the zone
+     * @param localSecond the local time
+     * @return the table
+     */
+    static ZoneTransitions of(ZoneId zone, long localSecond) {
+        ZoneTransitions transitions = CACHE.get(zone);
+        if (transitions != null && transitions.covers(localSecond)) {
+            return transitions;
+        }
+        return CACHE.compute(zone, (z, old) -> {
+            if (old != null && old.covers(localSecond)) {
+                return old;
+            }
+            ZoneRules rules = z.getRules();
+            if (rules.isFixedOffset()) {
+                return new ZoneTransitions(rules, Long.MIN_VALUE, Long.MAX_VALUE);
+            }
+            int year = Dates.year(Dates.ofEpochDay(Math.floorDiv(localSecond, 86400L)));
+            long start = Dates.epochDay(year - 1, 1, 1) * 86400L;
+            long end = Dates.epochDay(year + 2, 1, 1) * 86400L;
+            return old != null ? new ZoneTransitions(rules, Math.min(start, old.start), Math.max(end, old.end)) :
+                    new ZoneTransitions(rules, start, end);
+        });
+    }
+
+    /**
+     * Returns true if this is the table of the rules of a zone and covers a local time, without a lookup
+     * in the cache.
+     */
+    boolean covers(ZoneId zone, long localSecond) {
+        return rules == zone.getRules() && covers(localSecond);
+    }
+
+    boolean covers(long localSecond) {
+        return fixed || (localSecond - MAX_OFFSET >= start && localSecond + MAX_OFFSET < end);
+    }
+
+    /**
+     * Returns the epoch second up to which the table has all transitions, exclusive.
+     */
+    long end() {
+        return end;
+    }
+
+    int size() {
+        return epochSeconds.length;
+    }
+
+    long epochSecond(int i) {
+        return epochSeconds[i];
+    }
+
+    int offsetBefore(int i) {
+        return offsetsBefore[i];
+    }
+
+    int offsetAfter(int i) {
+        return offsetsAfter[i];
+    }
+
+    /**
+     * Returns the offset after a transition.
+     * @param i the index of the transition, or -1 for the offset before the first transition
+     * @return the offset in seconds
+     */
+    int offset(int i) {
+        return i < 0 ? initialOffset : offsetsAfter[i];
+    }
+
+    boolean isGap(int i) {
+        return offsetsAfter[i] > offsetsBefore[i];
+    }
+
+    /**
+     * Returns the first local time of the gap or overlap of a transition.
+     */
+    long localStart(int i) {
+        return epochSeconds[i] + Math.min(offsetsBefore[i], offsetsAfter[i]);
+    }
+
+    /**
+     * Returns the first local time after the gap or overlap of a transition.
+     */
+    long localEnd(int i) {
+        return epochSeconds[i] + Math.max(offsetsBefore[i], offsetsAfter[i]);
+    }
+
+    /**
+     * Returns the last transition whose gap or overlap starts at or before a local time. The local time is
+     * in the gap or overlap of the transition if it is before its {@link #localEnd(int)}, otherwise it has
+     * the offset after the transition.
+     * @param localSecond the local time
+     * @return the index of the transition, or -1 if there is none
+     */
+    int find(long localSecond) {
+        int low = 0;
+        int high = epochSeconds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (localStart(mid) <= localSecond) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns the last transition at or before an epoch second.
+     * @param epochSecond the epoch second
+     * @return the index of the transition, or -1 if there is none
+     */
+    int previous(long epochSecond) {
+        int i = Arrays.binarySearch(epochSeconds, epochSecond);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Returns the first transition with an overlap after an epoch second.
+     * @param epochSecond the epoch second
+     * @return the index of the transition, or {@link #size()} if there is none
+     */
+    int nextOverlap(long epochSecond) {
+        int i = previous(epochSecond) + 1;
+        while (i < epochSeconds.length && isGap(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return "ZoneTransitions[" + rules + ",transitions=" + epochSeconds.length + "]";
+    }
+}
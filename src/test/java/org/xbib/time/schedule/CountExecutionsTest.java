@@ -0,0 +1,103 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+public class CountExecutionsTest {
+
+    private static final ZoneId[] ZONES = {
+            ZoneOffset.UTC, ZoneOffset.ofHoursMinutes(5, 45), ZoneId.of("Europe/Berlin"),
+            ZoneId.of("America/New_York"), ZoneId.of("Australia/Lord_Howe")
+    };
+
+    @Test
+    public void equalsEnumeration() {
+        String[] strings = {
+                "* * * * *", "*/15 * * * *", "30 2 * * *", "10,35 1-3 * * *", "0 0 29 2 *", "0 12 L * *",
+                "0 9 15W * *", "0 0 ? * 5#3,2#2", "0 0 ? * 6L", "*/20 0-4 * 3,10 0", "45 23 31 12 *", "0 9-17 * * 1-5"
+        };
+        Random random = new Random(42L);
+        for (String string : strings) {
+            CronExpression expression = CronExpression.parse(string);
+            for (ZoneId zone : ZONES) {
+                for (int i = 0; i < 20; i++) {
+                    ZonedDateTime from = ZonedDateTime.of(2022, 1, 1, 0, 0, 0, 0, zone)
+                            .plusSeconds(random.nextInt(3 * 365 * 86400))
+                            .plusNanos(random.nextBoolean() ? 0 : random.nextInt(1000000000));
+                    ZonedDateTime to = from.plusSeconds(random.nextInt(i < 10 ? 3 * 86400 : 400 * 86400));
+                    for (TransitionPolicy policy : policies()) {
+                        assertEquals(expression.executionEpochSeconds(from, to, policy).count(),
+                                expression.countExecutions(from, to, policy), string + " " + from + " " + to + " " + policy);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void aroundTransitions() {
+        String[] strings = {"* * * * *", "*/15 2 * * *", "30 2 * * *", "0,30 * * * *"};
+        ZoneId[] zones = {ZoneId.of("Europe/Berlin"), ZoneId.of("Australia/Lord_Howe")};
+        for (String string : strings) {
+            CronExpression expression = CronExpression.parse(string);
+            for (ZoneId zone : zones) {
+                ZonedDateTime t = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, zone);
+                for (int i = 0; i < 2; i++) {
+                    t = ZonedDateTime.ofInstant(zone.getRules().nextTransition(t.toInstant()).getInstant(), zone);
+                    // ranges starting and ending anywhere in the two hours around the transition
+                    for (int a = -120; a <= 120; a += 7) {
+                        for (int b = a; b <= 180; b += 11) {
+                            ZonedDateTime from = t.plusMinutes(a);
+                            ZonedDateTime to = t.plusMinutes(b);
+                            for (TransitionPolicy policy : policies()) {
+                                assertEquals(expression.executionEpochSeconds(from, to, policy).count(),
+                                        expression.countExecutions(from, to, policy),
+                                        string + " " + from + " " + to + " " + policy);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void seconds() {
+        CronExpression expression = CronExpression.parser().withSecondsField(true).parse("*/20 * 2 * * ?");
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        ZonedDateTime from = ZonedDateTime.of(2023, 3, 20, 0, 0, 0, 0, zone);
+        ZonedDateTime to = from.plusDays(14);
+        assertEquals(expression.executionEpochSeconds(from, to).count(), expression.countExecutions(from, to));
+        // 14 days of 180 times, the gap is shifted
+        assertEquals(14 * 180, expression.countExecutions(from, to));
+    }
+
+    @Test
+    public void year() {
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        ZonedDateTime from = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, zone).minusNanos(1);
+        ZonedDateTime to = ZonedDateTime.of(2025, 1, 1, 0, 0, 0, 0, zone).minusNanos(1);
+        // a leap year, the shifted hour in spring falls on the hour after the gap, the repeated hour in autumn
+        // runs once, or twice
+        assertEquals(366L * 1440L - 60L, CronExpression.parse("* * * * *").countExecutions(from, to));
+        assertEquals(366L * 1440L, CronExpression.parse("* * * * *").countExecutions(from, to,
+                TransitionPolicy.of(TransitionPolicy.Gap.SHIFT_FORWARD, TransitionPolicy.Overlap.BOTH)));
+        assertEquals(262L, CronExpression.parse("0 9 * * 1-5").countExecutions(from, to));
+        assertEquals(0L, CronExpression.parse("@reboot").countExecutions(from, to));
+        assertEquals(0L, CronExpression.parse("* * * * *").countExecutions(to, from));
+    }
+
+    private static TransitionPolicy[] policies() {
+        TransitionPolicy[] policies = new TransitionPolicy[4];
+        for (TransitionPolicy.Gap gap : TransitionPolicy.Gap.values()) {
+            for (TransitionPolicy.Overlap overlap : TransitionPolicy.Overlap.values()) {
+                policies[gap.ordinal() * 2 + overlap.ordinal()] = TransitionPolicy.of(gap, overlap);
+            }
+        }
+        return policies;
+    }
+}
@@ -0,0 +1,91 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CronExpressionBufferTest {
+
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    private static final String[] STRINGS = {
+            "* * * * *", "*/15 9-17 * * 1-5", "0 12 L * *", "0 9 15W * *", "0 0 ? * 5#3,2#2", "0 0 ? * 6L",
+            "H H(0-7) * * *", "0 75 40 14 9", "45 23 31 12 * 2024,2026-2030", "0 0 1 1 * 1970-2099",
+            "0 0 * * SUN", "0 0 1W,L * ?", "0 0 * * 9#9,0L"
+    };
+
+    @Test
+    public void writeAndRead() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        List<DefaultCronExpression> expressions = expressions();
+        for (DefaultCronExpression expression : expressions) {
+            expression.write(buffer);
+        }
+        buffer.flip();
+        ZonedDateTime from = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, BERLIN);
+        for (DefaultCronExpression expression : expressions) {
+            DefaultCronExpression read = DefaultCronExpression.read(buffer);
+            assertEquals(expression, read);
+            assertEquals(expression.hashCode(), read.hashCode());
+            assertEquals(expression.toString(), read.toString());
+            assertArrayEquals(expression.executionEpochSeconds(from, from.plusDays(40)).toArray(),
+                    read.executionEpochSeconds(from, from.plusDays(40)).toArray());
+            assertEquals(expression.countExecutions(from, from.plusYears(1)), read.countExecutions(from, from.plusYears(1)));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void mappedFile() throws Exception {
+        Path file = Files.createTempFile("expressions", ".bin");
+        List<DefaultCronExpression> expressions = expressions();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, 1 << 16);
+            for (DefaultCronExpression expression : expressions) {
+                expression.write(buffer);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CronExpressionBuffer view = new CronExpressionBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+            assertEquals(expressions.size(), view.size());
+            for (int i = expressions.size() - 1; i >= 0; i--) {
+                assertEquals(expressions.get(i), view.get(i));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> view.get(expressions.size()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void corrupt() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        ((DefaultCronExpression) CronExpression.parse("0 12 L * *")).write(buffer);
+        int length = buffer.position();
+        buffer.putInt(0, length - 1);
+        buffer.flip();
+        assertThrows(IllegalArgumentException.class, () -> DefaultCronExpression.read(buffer.duplicate()));
+        buffer.putInt(0, length + 1);
+        assertThrows(IllegalArgumentException.class, () -> new CronExpressionBuffer(buffer));
+    }
+
+    private static List<DefaultCronExpression> expressions() {
+        List<DefaultCronExpression> expressions = new ArrayList<>();
+        for (String string : STRINGS) {
+            expressions.add((DefaultCronExpression) CronExpression.parser().withHashName("entry").parse(string));
+            expressions.add((DefaultCronExpression) CronExpression.parser().withSecondsField(true)
+                    .withOneBasedDayOfWeek(true).withHashName("entry").parse("30 " + string));
+        }
+        return expressions;
+    }
+}
@@ -0,0 +1,132 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CronExpressionCacheTest {
+
+    @Test
+    public void hitsAndMisses() {
+        CronExpressionCache cache = new CronExpressionCache(10);
+        CronExpression.Parser parser = CronExpression.parser().withCache(cache);
+        CronExpression expression = parser.parse("*/15 * * * *");
+        assertSame(expression, parser.parse("*/15 * * * *"));
+        assertSame(expression, parser.parse("*/15 * * * *"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void canonical() {
+        CronExpressionCache cache = new CronExpressionCache(10);
+        CronExpression.Parser parser = CronExpression.parser().withCache(cache);
+        DefaultCronExpression expression = (DefaultCronExpression) parser.parse("*/15 * * * *");
+        // an equal expression from a parser with other flags is the same instance
+        assertSame(expression, CronExpression.parser().withCache(cache).withOneBasedDayOfWeek(true)
+                .parse("*/15 * * * *"));
+        // the same times written in another way keep their string, but share the fields
+        DefaultCronExpression other = (DefaultCronExpression) parser.parse("0,15,30,45 * * * *");
+        assertNotSame(expression, other);
+        assertEquals("0,15,30,45 * * * *", other.getString());
+        assertEquals(CronExpression.parse("0,15,30,45 * * * *"), other);
+        assertSame(expression.getMinute(), other.getMinute());
+        assertSame(expression.getHour(), other.getHour());
+        assertNotSame(expression.getMinute(), ((DefaultCronExpression) parser.parse("*/20 * * * *")).getMinute());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void canonicalSurvivesEviction() {
+        CronExpressionCache cache = new CronExpressionCache(2);
+        CronExpression.Parser parser = CronExpression.parser().withCache(cache);
+        DefaultCronExpression expression = (DefaultCronExpression) parser.parse("*/15 * * * *");
+        DefaultCronExpression other = (DefaultCronExpression) parser.parse("0,15,30,45 * * * *");
+        // evicts "*/15 * * * *", "0,15,30,45 * * * *" still holds the shared instance
+        parser.parse("0 0 * * *");
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(expression, parser.parse("*/15 * * * *"));
+        assertSame(expression, cache.intern(CronExpression.parse("*/15 * * * *")));
+        assertSame(other.getMinute(), ((DefaultCronExpression) parser.parse("0-59/15 * * * *")).getMinute());
+    }
+
+    @Test
+    public void internDoesNotGrow() {
+        CronExpressionCache cache = new CronExpressionCache(10);
+        CronExpression expression = CronExpression.parse("*/15 * * * *");
+        assertSame(expression, cache.intern(expression));
+        CronExpression cached = CronExpression.parser().withCache(cache).parse("*/15 * * * *");
+        assertNotSame(expression, cached);
+        assertSame(cached, cache.intern(expression));
+        CronExpression other = CronExpression.parse("0,15,30,45 * * * *");
+        assertSame(other, cache.intern(other));
+    }
+
+    @Test
+    public void flags() {
+        CronExpressionCache cache = new CronExpressionCache(10);
+        CronExpression minutes = CronExpression.parser().withCache(cache).parse("1 2 3 4 5");
+        CronExpression seconds = CronExpression.parser().withCache(cache).withSecondsField(true).parse("1 2 3 4 5");
+        assertNotSame(minutes, seconds);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void invalidIsNotCached() {
+        CronExpressionCache cache = new CronExpressionCache(10);
+        CronExpression.Parser parser = CronExpression.parser().withCache(cache);
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("1-x * * * *"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void bounded() {
+        CronExpressionCache cache = new CronExpressionCache(100);
+        CronExpression.Parser parser = CronExpression.parser().withCache(cache);
+        CronExpression hot = parser.parse("0 0 * * *");
+        for (int i = 0; i < 10000; i++) {
+            parser.parse((i % 60) + " " + (i / 60 % 24) + " " + (i / 1440 + 1) + " * *");
+            // a frequently used entry survives
+            assertSame(hot, parser.parse("0 0 * * *"));
+        }
+        assertEquals(100, cache.size());
+        assertEquals(10001 - 100, cache.getEvictionCount());
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        CronExpressionCache cache = new CronExpressionCache(50);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                CronExpression.Parser parser = CronExpression.parser().withCache(cache);
+                for (int i = 0; i < 20000; i++) {
+                    int n = i % 200;
+                    CronExpression expression = parser.parse(n % 60 + " " + n / 60 + " * * *");
+                    assertTrue(expression.matches(ZonedDateTime.of(2020, 1, 1, n / 60, n % 60, 0, 0,
+                            ZoneOffset.UTC)));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(cache.size() <= 50 + 4);
+        assertEquals(80000, cache.getHitCount() + cache.getMissCount());
+    }
+}
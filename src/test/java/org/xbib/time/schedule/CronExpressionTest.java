@@ -2,6 +2,7 @@ package org.xbib.time.schedule;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.xbib.time.schedule.util.DateTimes.midnight;
@@ -11,6 +12,7 @@ import static org.xbib.time.schedule.util.DateTimes.nthOfMonth;
 import static org.xbib.time.schedule.util.DateTimes.startOfHour;
 import org.junit.jupiter.api.Test;
 import org.xbib.time.schedule.util.DateTimes;
+import java.nio.CharBuffer;
 import java.time.DayOfWeek;
 import java.time.Month;
 import java.time.ZonedDateTime;
@@ -296,6 +298,67 @@ public class CronExpressionTest {
         assertFalse(CronExpression.parser().allowBothDayFields(false).isValid("0 0 1 * 1"));
     }
 
+    @Test
+    public void validateWithoutExceptions() {
+        CronExpression.Parser parser = CronExpression.parser();
+        ParseResult result = new ParseResult();
+        assertTrue(parser.isValid("*/5 9-17 * jan-mar mon-fri", result));
+        assertTrue(result.isValid());
+        assertEquals(null, result.getMessage());
+        assertFalse(parser.isValid("0 0 4X * *", result));
+        assertEquals(ParseResult.Error.BAD_CHARACTER, result.getError());
+        assertEquals("Bad character 'X' at position 5 in string: 0 0 4X * *", result.getMessage());
+        assertFalse(parser.isValid(CharBuffer.wrap("0 0 1 foo *"), result));
+        assertEquals(ParseResult.Error.BAD_KEYWORD, result.getError());
+        assertEquals(6, result.getPosition());
+        assertFalse(parser.allowBothDayFields(false).isValid("0 0 1 * 1", result));
+        assertEquals("Day of month and day of week may not both be specified", result.getMessage());
+        assertFalse(parser.isValid("", result));
+        assertFalse(parser.isValid("@foo", result));
+        assertTrue(parser.isValid("@daily", result));
+        assertTrue(parser.isValid("0 0 1 * ?", result));
+    }
+
+    @Test
+    public void structuralErrorsWithoutExceptions() {
+        CronExpression.Parser parser = CronExpression.parser();
+        ParseResult result = new ParseResult();
+        assertFalse(parser.isValid("*/ * * * *", result));
+        assertEquals(ParseResult.Error.INVALID, result.getError());
+        assertEquals("Expected number", result.getMessage());
+        assertFalse(parser.isValid("*/0 * * * *", result));
+        assertEquals("Skip must be positive, not 0", result.getMessage());
+        assertFalse(parser.isValid("0-10/0 * * * *", result));
+        assertEquals("Skip must be positive, not 0", result.getMessage());
+        assertFalse(parser.isValid("H * * * *", result));
+        assertEquals("H requires a name to hash in string: H * * * *", result.getMessage());
+        parser.withHashName("a");
+        assertFalse(parser.isValid("H(5 * * * *", result));
+        assertEquals("Expected range in H()", result.getMessage());
+        assertFalse(parser.isValid("H(5-9 * * * *", result));
+        assertEquals("Expected ) after H(", result.getMessage());
+        assertFalse(parser.isValid("H(9-5) * * * *", result));
+        assertEquals("H needs a range, not 9-5", result.getMessage());
+        assertFalse(parser.isValid("H/0 * * * *", result));
+        assertEquals("H needs a positive skip, not 0", result.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("*/0 * * * *"));
+    }
+
+    @Test
+    public void messageOfReusedBuffer() {
+        char[] chars = "0 0 4X * *".toCharArray();
+        ParseResult result = new ParseResult();
+        assertFalse(CronExpression.parser().isValid(CharBuffer.wrap(chars), result));
+        "0 0 1 * *".getChars(0, 9, chars, 0);
+        assertEquals("Bad character 'X' at position 5 in string: 0 0 4X * *", result.getMessage());
+    }
+
+    @Test
+    public void lowerCaseEqualsUpperCase() {
+        assertTrue(((DefaultCronExpression) CronExpression.parse("0 0 ? jan,mar 5l"))
+                .hasSameFields((DefaultCronExpression) CronExpression.parse("0 0 ? JAN,MAR 5L")));
+    }
+
     private void assertWeekly() {
         for (int week = 1; week <= 52; week++) {
             assertMatches(midnight().withDayOfYear(7 * week).with(DayOfWeek.SUNDAY));
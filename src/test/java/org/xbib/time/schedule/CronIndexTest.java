@@ -0,0 +1,92 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CronIndexTest {
+
+    private static final String[] EXPRESSIONS = {
+            "* * * * *", "*/5 * * * *", "0 * * * *", "0 0 * * *", "30 9-17 * * MON-FRI", "0 12 L * *",
+            "15 10 15W * *", "0 0 * * 5L", "0 8 * * 1#2", "0 0 1 1 *", "0 0 29 2 *", "1-10/3 4,6 * JAN,JUL *",
+            "0 0 * * * 2021", "0 0 * * * 2020-2022", "@hourly"
+    };
+
+    @Test
+    public void sameAsBruteForce() {
+        CronIndex index = new CronIndex();
+        List<CronExpression> expressions = new ArrayList<>();
+        for (String s : EXPRESSIONS) {
+            CronExpression expression = CronExpression.parse(s);
+            assertEquals(expressions.size(), index.add(expression));
+            expressions.add(expression);
+        }
+        ZonedDateTime time = ZonedDateTime.of(2019, 12, 25, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < 3 * 366 * 24; i++) {
+            assertArrayEquals(bruteForce(expressions, time), index.matches(time), time.toString());
+            time = time.plusMinutes(i % 2 == 0 ? 60 : 30);
+        }
+    }
+
+    @Test
+    public void addAndRemove() {
+        CronIndex index = new CronIndex();
+        CronExpression everyMinute = CronExpression.parse("* * * * *");
+        CronExpression hourly = CronExpression.hourly();
+        ZonedDateTime time = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        int a = index.add(everyMinute);
+        int b = index.add(hourly);
+        assertArrayEquals(new int[] { a, b }, index.matches(time));
+        assertSame(everyMinute, index.remove(a));
+        assertNull(index.remove(a));
+        assertArrayEquals(new int[] { b }, index.matches(time));
+        // the id is reused and the cached day bitmap is updated
+        assertEquals(a, index.add(hourly));
+        assertArrayEquals(new int[] { a, b }, index.matches(time));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void randomAddAndRemove() {
+        Random random = new Random(42L);
+        CronIndex index = new CronIndex();
+        List<CronExpression> expressions = new ArrayList<>();
+        ZonedDateTime time = ZonedDateTime.of(2020, 2, 29, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < 2000; i++) {
+            if (random.nextInt(3) == 0 && index.size() > 0) {
+                int id = random.nextInt(expressions.size());
+                if (index.remove(id) != null) {
+                    expressions.set(id, null);
+                }
+            } else {
+                CronExpression expression = CronExpression.parse(EXPRESSIONS[random.nextInt(EXPRESSIONS.length)]);
+                int id = index.add(expression);
+                if (id == expressions.size()) {
+                    expressions.add(expression);
+                } else {
+                    expressions.set(id, expression);
+                }
+            }
+            time = time.plusMinutes(random.nextInt(120));
+            assertArrayEquals(bruteForce(expressions, time), index.matches(time), time.toString());
+        }
+    }
+
+    private static int[] bruteForce(List<CronExpression> expressions, ZonedDateTime time) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < expressions.size(); id++) {
+            CronExpression expression = expressions.get(id);
+            if (expression != null && expression.matches(time)) {
+                ids.add(id);
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
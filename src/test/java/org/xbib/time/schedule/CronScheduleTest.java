@@ -2,21 +2,40 @@ package org.xbib.time.schedule;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xbib.time.schedule.util.ManualScheduledExecutor;
+import org.xbib.time.schedule.util.MutableClock;
 import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CronScheduleTest {
 
+    private static final ZonedDateTime TIME = ZonedDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+
+    private static final int CHANGES = 10000;
+
+    private static final int NAMES = 100;
+
     private CronSchedule<Void> schedule;
 
     private ScheduledExecutorService executor;
@@ -107,11 +126,422 @@ public class CronScheduleTest {
         assertEquals(1, counts.count("b"));
     }
 
+    @Test
+    public void runSecondsQueued() throws Exception {
+        MutableClock clock = new MutableClock(TIME.plusNanos(500000000L));
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.QUEUED, clock);
+        final AtomicInteger count = new AtomicInteger();
+        schedule.add("test", CronExpression.parser()
+                        .withSecondsField(true).parse("* * * * * *"),
+                () -> {
+                    count.incrementAndGet();
+                    return null;
+                });
+        schedule.start();
+        assertEquals(0, count.get());
+        for (int i = 1; i <= 3; i++) {
+            clock.set(TIME.plusSeconds(i));
+            assertEquals(1, manual.runScheduled());
+            assertEquals(i, count.get());
+            Entry<Void> entry = schedule.getEntry("test");
+            assertEquals(TIME.plusSeconds(i).toEpochSecond(), entry.getLastCalled().toEpochSecond());
+            assertEquals(entry.getLastCalled().plusSeconds(1), entry.getNextCall());
+        }
+    }
+
+    @Test
+    public void runSecondsTimingWheel() throws Exception {
+        // the clock of the schedule is years behind the wall clock
+        MutableClock clock = new MutableClock(TIME.plusNanos(500000000L));
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.QUEUED, clock, new TimingWheelEntryQueue<>());
+        final AtomicInteger count = new AtomicInteger();
+        schedule.add("test", CronExpression.parser()
+                        .withSecondsField(true).parse("*/2 * * * * *"),
+                () -> {
+                    count.incrementAndGet();
+                    return null;
+                });
+        schedule.start();
+        assertEquals(0, count.get());
+        for (int i = 1; i <= 4; i++) {
+            clock.set(TIME.plusSeconds(i));
+            manual.runScheduled();
+            assertEquals(i / 2, count.get());
+        }
+        assertEquals(TIME.plusSeconds(6).toEpochSecond(), schedule.getEntry("test").getNextCall().toEpochSecond());
+    }
+
+    @Test
+    public void removeQueued() throws Exception {
+        MutableClock clock = new MutableClock(TIME.plusNanos(500000000L));
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        HeapEntryQueue<Void> queue = new HeapEntryQueue<>();
+        schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.QUEUED, clock, queue);
+        final AtomicInteger count = new AtomicInteger();
+        schedule.start();
+        schedule.add("test", CronExpression.parser()
+                        .withSecondsField(true).parse("* * * * * *"),
+                () -> {
+                    count.incrementAndGet();
+                    return null;
+                });
+        clock.set(TIME.plusSeconds(1));
+        manual.runScheduled();
+        assertEquals(1, count.get());
+        schedule.remove("test");
+        assertEquals(0, queue.size());
+        clock.set(TIME.plusSeconds(2));
+        assertEquals(0, manual.runScheduled());
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void rebootQueued() throws Exception {
+        schedule = new CronSchedule<>(new ManualScheduledExecutor(), CronSchedule.Mode.QUEUED);
+        final AtomicInteger count = new AtomicInteger();
+        schedule.add("test", CronExpression.parse("@reboot"),
+                () -> {
+                    count.incrementAndGet();
+                    return null;
+                });
+        assertEquals(0, count.get());
+        schedule.start();
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void concurrentAddRemove() throws Exception {
+        schedule = new CronSchedule<>(executor, 1000);
+        CronExpression expression = CronExpression.parse("* * * * *");
+        Callable<Void> callable = () -> null;
+        int threads = 4;
+        ExecutorService writers = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch latch = new CountDownLatch(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(writers.submit(() -> {
+                addAndRemove(expression, callable);
+                latch.countDown();
+                return null;
+            }));
+        }
+        futures.add(writers.submit(() -> {
+            while (latch.getCount() > 0) {
+                schedule.run(TIME);
+            }
+            return null;
+        }));
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        writers.shutdown();
+        assertRegistry();
+    }
+
+    @Test
+    public void concurrentAddRemoveQueued() throws Exception {
+        // the changes are applied by whichever writer thread finds the queue idle, the clock stands still
+        // before the first execution time, so nothing fires
+        MutableClock clock = new MutableClock(TIME.plusNanos(500000000L));
+        HeapEntryQueue<Void> queue = new HeapEntryQueue<>();
+        schedule = new CronSchedule<>(new ManualScheduledExecutor(), 60000, CronSchedule.Mode.QUEUED, clock, queue);
+        schedule.start();
+        CronExpression expression = CronExpression.parser()
+                .withSecondsField(true).parse("* * * * * *");
+        Callable<Void> callable = () -> null;
+        int threads = 4;
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(writers.submit(() -> {
+                addAndRemove(expression, callable);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        writers.shutdown();
+        assertRegistry();
+        assertEquals(schedule.getEntries().size(), queue.size());
+    }
+
+    @Test
+    public void blockingJobsOnVirtualThreads() throws Exception {
+        schedule = new CronSchedule<>(executor, Executors.newVirtualThreadPerTaskExecutor());
+        int jobs = 5000;
+        CountDownLatch inFlight = new CountDownLatch(jobs);
+        CountDownLatch release = new CountDownLatch(1);
+        CronExpression expression = CronExpression.parse("0 * * * *");
+        for (int i = 0; i < jobs; i++) {
+            schedule.add(Integer.toString(i), expression, () -> {
+                inFlight.countDown();
+                release.await();
+                return null;
+            });
+        }
+        schedule.run(ZonedDateTime.now().withMinute(0));
+        // all jobs block at the same time, without a platform thread each
+        assertTrue(inFlight.await(10, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void blockingJobDoesNotDelayTick() throws Exception {
+        MutableClock clock = new MutableClock(TIME.plusNanos(500000000L));
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.QUEUED, clock,
+                new HeapEntryQueue<>(), Executors.newVirtualThreadPerTaskExecutor());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch calls = new CountDownLatch(2);
+        AtomicInteger timeouts = new AtomicInteger();
+        CronExpression expression = CronExpression.parser()
+                .withSecondsField(true).parse("* * * * * *");
+        schedule.add("blocking", expression, () -> {
+            if (!release.await(10, TimeUnit.SECONDS)) {
+                timeouts.incrementAndGet();
+            }
+            return null;
+        });
+        schedule.add("test", expression, () -> {
+            calls.countDown();
+            return null;
+        });
+        schedule.start();
+        // the ticks run on this thread, they would wait for the blocking job if it ran on the tick thread
+        for (int i = 1; i <= 2; i++) {
+            clock.set(TIME.plusSeconds(i));
+            manual.runScheduled();
+        }
+        assertTrue(calls.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals(0, timeouts.get());
+    }
+
+    @Test
+    public void misfirePolicies() throws Exception {
+        ZonedDateTime time = ZonedDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+        assertEquals(0, misfires(MisfirePolicy.SKIP, "*/2 * * * *", time, time.plusMinutes(5)));
+        assertEquals(1, misfires(MisfirePolicy.FIRE_ONCE, "*/2 * * * *", time, time.plusMinutes(5)));
+        assertEquals(2, misfires(MisfirePolicy.FIRE_ALL, "*/2 * * * *", time, time.plusMinutes(5)));
+        // the call at the current time is not a misfire
+        assertEquals(1, misfires(MisfirePolicy.SKIP, "* * * * *", time, time.plusMinutes(5)));
+        assertEquals(1, misfires(MisfirePolicy.FIRE_ONCE, "* * * * *", time, time.plusMinutes(5)));
+        assertEquals(5, misfires(MisfirePolicy.FIRE_ALL, "* * * * *", time, time.plusMinutes(5)));
+        assertEquals(1, misfires(MisfirePolicy.FIRE_ALL, "* * * * *", time, time.plusMinutes(1)));
+        assertEquals(1, misfires(MisfirePolicy.FIRE_ALL, "* * * * *", time, time.plusSeconds(90)));
+        // bounded by the misfire limit
+        assertEquals(101, misfires(MisfirePolicy.FIRE_ALL, "* * * * *", time, time.plusDays(1)));
+    }
+
+    @Test
+    public void misfireQueued() throws Exception {
+        ZonedDateTime time = TIME.plusNanos(500000000L);
+        MutableClock clock = new MutableClock(time);
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.QUEUED, clock);
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger fired = new AtomicInteger();
+        CronExpression expression = CronExpression.parse("* * * * *");
+        schedule.add("skip", expression, () -> {
+            skipped.incrementAndGet();
+            return null;
+        });
+        schedule.add("fire", expression, () -> {
+            fired.incrementAndGet();
+            return null;
+        }, MisfirePolicy.FIRE_ALL);
+        schedule.start();
+        assertEquals(0, fired.get());
+        // the JVM sleeps from 12:00:30 to 12:05:30, the tick is late
+        clock.set(time.plusMinutes(5).plusSeconds(30));
+        manual.runScheduled();
+        assertEquals(1, skipped.get());
+        assertEquals(5, fired.get());
+        assertEquals(time.plusMinutes(6).withNano(0), schedule.getEntry("fire").getNextCall());
+        ScheduleMetrics.Snapshot snapshot = schedule.getMetrics().snapshot();
+        // both entries are called at 12:05, nothing is skipped
+        assertEquals(2L, snapshot.getMisfireCount());
+        assertEquals(0L, snapshot.getSkippedCount());
+        // four caught up calls and two calls at 12:05:30, which are not reported late
+        assertEquals(6L, snapshot.getLag().getCount());
+        assertTrue(snapshot.getLag().getMin() < 1000L);
+    }
+
+    @Test
+    public void lateTickWithinMisfireThreshold() throws Exception {
+        MutableClock clock = new MutableClock(TIME.plusNanos(500000000L));
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.QUEUED, clock);
+        final AtomicInteger count = new AtomicInteger();
+        schedule.add("test", CronExpression.parser().withSecondsField(true).parse("0 * * * * *"), () -> {
+            count.incrementAndGet();
+            return null;
+        });
+        schedule.start();
+        // the tick for 12:01:00 comes a second late, it no longer matches, but is called as usual
+        clock.set(TIME.plusMinutes(1).plusSeconds(1));
+        manual.runScheduled();
+        assertEquals(1, count.get());
+        assertEquals(TIME.plusMinutes(1).toEpochSecond(), schedule.getEntry("test").getLastCalled().toEpochSecond());
+        assertEquals(0L, schedule.getMetrics().snapshot().getMisfireCount());
+        // without a threshold, the same tick misfires and is skipped
+        schedule.setMisfireThreshold(0L);
+        clock.set(TIME.plusMinutes(2).plusSeconds(1));
+        manual.runScheduled();
+        assertEquals(1, count.get());
+        assertEquals(1L, schedule.getMetrics().snapshot().getSkippedCount());
+        assertEquals(TIME.plusMinutes(3).toEpochSecond(), schedule.getEntry("test").getNextCall().toEpochSecond());
+    }
+
+    @Test
+    public void lateTickWithinMisfireThresholdPeriodic() throws Exception {
+        schedule = new CronSchedule<>(new ManualScheduledExecutor(), 60000);
+        final AtomicInteger count = new AtomicInteger();
+        schedule.add("test", CronExpression.parser().withSecondsField(true).parse("0 * * * * *"), () -> {
+            count.incrementAndGet();
+            return null;
+        });
+        schedule.add("minutes", CronExpression.parse("* * * * *"), () -> {
+            count.incrementAndGet();
+            return null;
+        });
+        schedule.run(TIME);
+        assertEquals(2, count.get());
+        // a second late, both entries are called once
+        schedule.run(TIME.plusMinutes(1).plusSeconds(1));
+        assertEquals(4, count.get());
+        assertEquals(TIME.plusMinutes(1).toEpochSecond(), schedule.getEntry("test").getLastCalled().toEpochSecond());
+        // the tick at 12:02 is missed, both entries are called for 12:02 and again at 12:03
+        schedule.run(TIME.plusMinutes(3));
+        assertEquals(8, count.get());
+        ScheduleMetrics.Snapshot snapshot = schedule.getMetrics().snapshot();
+        assertEquals(0L, snapshot.getMisfireCount());
+    }
+
+    @Test
+    public void metrics() throws Exception {
+        ZonedDateTime time = ZonedDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+        MutableClock clock = new MutableClock(time.plusSeconds(2));
+        ExecutorService jobExecutor = Executors.newSingleThreadExecutor();
+        schedule = new CronSchedule<>(executor, 60000, CronSchedule.Mode.PERIODIC, clock,
+                new HeapEntryQueue<>(), jobExecutor);
+        schedule.add("ok", CronExpression.parse("* * * * *"), () -> {
+            Thread.sleep(10);
+            return null;
+        });
+        schedule.add("fail", CronExpression.parse("* * * * *"), () -> {
+            throw new IllegalStateException();
+        });
+        schedule.add("never", CronExpression.parse("0 0 1 1 *"), () -> null);
+        schedule.run(time);
+        schedule.run(time.plusMinutes(1));
+        jobExecutor.shutdown();
+        assertTrue(jobExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        schedule.run(time.plusMinutes(2));
+        ScheduleMetrics.Snapshot snapshot = schedule.getMetrics().snapshot();
+        assertEquals(3L, snapshot.getTickCount());
+        assertEquals(3L, snapshot.getEntriesScanned().getMax());
+        assertEquals(6L, snapshot.getSubmittedCount());
+        assertEquals(2L, snapshot.getCompletedCount());
+        assertEquals(2L, snapshot.getFailedCount());
+        assertEquals(2L, snapshot.getRejectedCount());
+        assertEquals(0L, snapshot.getPendingCount());
+        assertEquals(4L, snapshot.getLag().getCount());
+        // the clock stands at 12:00:02, the firing at 12:00 started 2 seconds late
+        assertEquals(2000L, snapshot.getLag().getMax());
+        assertEquals(4L, snapshot.getRunTime().getCount());
+        Histogram.Snapshot runTime = schedule.getEntry("ok").getRunTime().snapshot();
+        assertEquals(2L, runTime.getCount());
+        assertTrue(runTime.getMin() >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(null, schedule.getEntry("never").getRunTime());
+    }
+
+    @Test
+    public void misfireMetrics() throws Exception {
+        ZonedDateTime time = ZonedDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+        schedule = new CronSchedule<>(executor);
+        schedule.add("skip", CronExpression.parse("*/2 * * * *"), () -> null);
+        schedule.add("fire", CronExpression.parse("*/2 * * * *"), () -> null, MisfirePolicy.FIRE_ONCE);
+        schedule.run(time);
+        schedule.run(time.plusMinutes(5));
+        ScheduleMetrics.Snapshot snapshot = schedule.getMetrics().snapshot();
+        assertEquals(2L, snapshot.getMisfireCount());
+        assertEquals(1L, snapshot.getSkippedCount());
+        assertEquals(3L, snapshot.getSubmittedCount());
+    }
+
+    @Test
+    public void misfireCalledNowIsNotSkipped() throws Exception {
+        schedule = new CronSchedule<>(new ManualScheduledExecutor());
+        schedule.add("skip", CronExpression.parse("* * * * *"), () -> null);
+        schedule.run(TIME);
+        schedule.run(TIME.plusMinutes(5));
+        ScheduleMetrics.Snapshot snapshot = schedule.getMetrics().snapshot();
+        assertEquals(1L, snapshot.getMisfireCount());
+        assertEquals(0L, snapshot.getSkippedCount());
+        assertEquals(2L, snapshot.getSubmittedCount());
+    }
+
     @AfterEach
     public void after() throws IOException {
         if (schedule != null) {
             schedule.close();
         }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Adds and removes entries. All threads run the same sequence of changes, so the last change of every name
+     * is the same, whichever thread makes it.
+     */
+    private void addAndRemove(CronExpression expression, Callable<Void> callable) {
+        for (int i = 0; i < CHANGES; i++) {
+            String name = Integer.toString(i * 7 % NAMES);
+            if (i % 3 == 0) {
+                schedule.remove(name);
+            } else {
+                schedule.add(name, expression, callable);
+            }
+        }
+    }
+
+    private void assertRegistry() {
+        Set<String> expected = new TreeSet<>();
+        for (int i = 0; i < CHANGES; i++) {
+            String name = Integer.toString(i * 7 % NAMES);
+            if (i % 3 == 0) {
+                expected.remove(name);
+            } else {
+                expected.add(name);
+            }
+        }
+        Set<String> names = new TreeSet<>();
+        for (Entry<Void> entry : schedule.getEntries()) {
+            assertFalse(entry.isCancelled());
+            assertSame(entry, schedule.getEntry(entry.getName()));
+            names.add(entry.getName());
+        }
+        assertEquals(expected, names);
+    }
+
+    private int misfires(MisfirePolicy misfirePolicy, String expression,
+                         ZonedDateTime first, ZonedDateTime second) throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final AtomicInteger count = new AtomicInteger();
+        try (CronSchedule<Void> schedule = new CronSchedule<>(executor)) {
+            schedule.add("test", CronExpression.parse(expression), () -> {
+                count.incrementAndGet();
+                return null;
+            }, misfirePolicy);
+            schedule.run(first);
+            schedule.run(second);
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        return count.get() - 1;
     }
 
     private void runAndWait() throws InterruptedException {
@@ -0,0 +1,121 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+public class CrontabLoaderTest {
+
+    private static final String CRONTAB = String.join("\n",
+            "# m h dom mon dow command",
+            "",
+            "SHELL=/bin/sh",
+            "*/5 * * * * /usr/bin/check",
+            "MAILTO = \"ops@example.com\"",
+            "  0 2 * * mon-fri   /usr/bin/backup --full  ",
+            "@daily /usr/bin/rotate",
+            "@reboot /usr/bin/start\r",
+            "H H * * * /usr/bin/report",
+            "0 0 4X * * /usr/bin/bad",
+            "0 0 * *",
+            "0 0 * * *   ",
+            "@fortnightly /usr/bin/never",
+            "30 4 1,15 * 5 /usr/bin/grüße",
+            "");
+
+    @Test
+    public void load() {
+        check(new CrontabLoader().load("crontab", CRONTAB));
+    }
+
+    @Test
+    public void smallChunks() {
+        for (int chunkSize = 1; chunkSize < 64; chunkSize++) {
+            check(new CrontabLoader().withChunkSize(chunkSize).load("crontab", CRONTAB));
+        }
+    }
+
+    @Test
+    public void loadFile() throws Exception {
+        Path directory = Files.createTempDirectory("crontab");
+        Path path = directory.resolve("crontab");
+        try {
+            Files.writeString(path, CRONTAB, StandardCharsets.UTF_8);
+            for (int chunkSize : new int[] {7, 1 << 22}) {
+                check(new CrontabLoader().withChunkSize(chunkSize).load(path));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void addToSchedule() throws Exception {
+        Crontab crontab = new CrontabLoader().load("crontab", CRONTAB);
+        try (CronSchedule<String> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            crontab.addTo(schedule, line -> line::getCommand);
+            assertEquals(crontab.getLines().size(), schedule.getEntries().size());
+            assertEquals("/usr/bin/check", schedule.getEntry("crontab:4").getCallable().call());
+        }
+    }
+
+    @Test
+    public void sharedExpressions() {
+        Crontab crontab = new CrontabLoader().load("crontab", "0 * * * * a\n0 * * * * b\n@reboot c\n@reboot d\n");
+        List<Crontab.Line> lines = crontab.getLines();
+        assertSame(lines.get(0).getExpression(), lines.get(1).getExpression());
+        // @reboot matches once, every line needs its own
+        assertFalse(lines.get(2).getExpression() == lines.get(3).getExpression());
+    }
+
+    @Test
+    public void secondsField() {
+        Crontab crontab = new CrontabLoader(CronExpression.parser().withSecondsField(true))
+                .load("crontab", "0 */5 * * * * a\n*/5 * * * * b\n");
+        assertEquals(1, crontab.getLines().size());
+        assertEquals("crontab:2:14: Missing command", crontab.getDiagnostics().get(0).toString());
+    }
+
+    private static void check(Crontab crontab) {
+        assertEquals(14, crontab.getLineCount());
+        List<Crontab.Line> lines = crontab.getLines();
+        assertEquals(6, lines.size());
+        assertLine(lines.get(0), 4, "*/5 * * * *", "/usr/bin/check");
+        assertEquals(Map.of("SHELL", "/bin/sh"), lines.get(0).getEnvironment());
+        assertLine(lines.get(1), 6, "0 2 * * mon-fri", "/usr/bin/backup --full");
+        assertEquals(Map.of("SHELL", "/bin/sh", "MAILTO", "ops@example.com"), lines.get(1).getEnvironment());
+        assertEquals(CronExpression.daily(), lines.get(2).getExpression());
+        assertEquals("/usr/bin/rotate", lines.get(2).getCommand());
+        assertTrue(lines.get(3).getExpression() instanceof RebootCronExpression);
+        assertEquals("/usr/bin/start", lines.get(3).getCommand());
+        assertEquals(9, lines.get(4).getNumber());
+        assertTrue(((DefaultCronExpression) lines.get(4).getExpression()).hasSameFields((DefaultCronExpression)
+                CronExpression.parser().withHashName("/usr/bin/report").parse("H H * * *")));
+        assertLine(lines.get(5), 14, "30 4 1,15 * 5", "/usr/bin/grüße");
+        assertEquals("crontab:14", lines.get(5).getName());
+        List<Crontab.Diagnostic> diagnostics = crontab.getDiagnostics();
+        assertEquals(4, diagnostics.size());
+        assertEquals("crontab:10:6: Bad character 'X' at position 5 in string: 0 0 4X * *",
+                diagnostics.get(0).toString());
+        assertEquals("crontab:11:8: Expected 5 fields and a command", diagnostics.get(1).toString());
+        assertEquals("crontab:12:13: Missing command", diagnostics.get(2).toString());
+        assertEquals(13, diagnostics.get(3).getNumber());
+        assertEquals(1, diagnostics.get(3).getColumn());
+    }
+
+    private static void assertLine(Crontab.Line line, int number, String expression, String command) {
+        assertEquals(number, line.getNumber());
+        assertTrue(((DefaultCronExpression) line.getExpression())
+                .hasSameFields((DefaultCronExpression) CronExpression.parse(expression)), line.toString());
+        assertEquals(command, line.getCommand());
+    }
+}
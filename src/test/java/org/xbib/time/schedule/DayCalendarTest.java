@@ -0,0 +1,67 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class DayCalendarTest {
+
+    private static final String[][] DAYS = {
+            {"*", "*"}, {"L", "*"}, {"15W", "*"}, {"1W", "*"}, {"31", "*"}, {"29", "*"},
+            {"*", "5L"}, {"*", "6#3"}, {"*", "1#1,5#5"}, {"1-7", "MON"}, {"?", "SAT,SUN"}
+    };
+
+    @Test
+    public void sameAsFields() {
+        for (String[] days : DAYS) {
+            DayOfMonthField dayOfMonth = DayOfMonthField.parse(new Tokens(days[0]));
+            DayOfWeekField dayOfWeek = DayOfWeekField.parse(new Tokens(days[1]), false);
+            for (int year = 1999; year <= 2029; year++) {
+                DayCalendar calendar = new DayCalendar(year, dayOfMonth, dayOfWeek);
+                for (int month = 1; month <= 12; month++) {
+                    int length = Dates.lengthOfMonth(year, month);
+                    for (int day = 1; day <= length; day++) {
+                        String message = days[0] + " " + days[1] + " " + year + "-" + month + "-" + day;
+                        assertEquals(matches(dayOfMonth, dayOfWeek, year, month, day),
+                                calendar.contains(month, day), message);
+                        assertEquals(next(dayOfMonth, dayOfWeek, year, month, day),
+                                calendar.next(month, day), message);
+                        assertEquals(previous(dayOfMonth, dayOfWeek, year, month, day),
+                                calendar.previous(month, day), message);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dayOfYear() {
+        assertEquals(1, Dates.dayOfYear(2020, 1, 1));
+        assertEquals(60, Dates.dayOfYear(2020, 2, 29));
+        assertEquals(366, Dates.dayOfYear(2020, 12, 31));
+        assertEquals(365, Dates.dayOfYear(2021, 12, 31));
+        assertEquals(60, Dates.dayOfYear(2021, 3, 1));
+    }
+
+    private static boolean matches(DayOfMonthField dayOfMonth, DayOfWeekField dayOfWeek,
+                                   int year, int month, int day) {
+        return dayOfMonth.matches(year, month, day) && dayOfWeek.matches(year, month, day);
+    }
+
+    private static int next(DayOfMonthField dayOfMonth, DayOfWeekField dayOfWeek, int year, int month, int day) {
+        for (int d = day; d <= Dates.lengthOfMonth(year, month); d++) {
+            if (matches(dayOfMonth, dayOfWeek, year, month, d)) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    private static int previous(DayOfMonthField dayOfMonth, DayOfWeekField dayOfWeek, int year, int month, int day) {
+        for (int d = day; d >= 1; d--) {
+            if (matches(dayOfMonth, dayOfWeek, year, month, d)) {
+                return d;
+            }
+        }
+        return -1;
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.Test;
+import java.util.NavigableSet;
 
 public class DefaultFieldTest {
 
@@ -107,6 +108,75 @@ public class DefaultFieldTest {
         assertContains(0, 5, 10, 15, 20);
     }
 
+    @Test
+    public void next() {
+        parse("3,17-19,59", 0, 59);
+        assertEquals(3, field.next(0));
+        assertEquals(3, field.next(3));
+        assertEquals(17, field.next(4));
+        assertEquals(19, field.next(19));
+        assertEquals(59, field.next(20));
+        assertEquals(-1, field.next(60));
+    }
+
+    @Test
+    public void nextFullRange() {
+        parse("*", 0, 59);
+        assertEquals(42, field.next(42));
+    }
+
+    @Test
+    public void nextLastDayOfMonth() {
+        parse("31", 1, 31);
+        assertTrue(field.contains(31));
+        assertEquals(31, field.next(1));
+        assertEquals(-1, field.next(32));
+    }
+
+    @Test
+    public void years() {
+        parse("2002-2005,2010", 0, 0);
+        assertFalse(field.contains(2001));
+        assertContainsRange(2002, 2005);
+        assertTrue(field.contains(2010));
+        assertEquals(2002, field.next(1970));
+        assertEquals(2004, field.next(2004));
+        assertEquals(2010, field.next(2006));
+        assertEquals(-1, field.next(2011));
+    }
+
+    @Test
+    public void numbers() {
+        parse("2,4,2010", 0, 0);
+        assertEquals("[2, 4, 2010]", field.getNumbers().toString());
+    }
+
+    @Test
+    public void defaultNextAndPrevious() {
+        parse("2,4,2010", 0, 0);
+        // a field implemented outside of this package, which only knows its numbers
+        TimeField numbers = new TimeField() {
+            @Override
+            public boolean contains(int number) {
+                return field.contains(number);
+            }
+
+            @Override
+            public NavigableSet<Integer> getNumbers() {
+                return field.getNumbers();
+            }
+
+            @Override
+            public boolean isFullRange() {
+                return false;
+            }
+        };
+        for (int number = -1; number <= 2012; number++) {
+            assertEquals(field.next(number), numbers.next(number));
+            assertEquals(field.previous(number), numbers.previous(number));
+        }
+    }
+
     private void assertContains(int... numbers) {
         for (int number : numbers) {
             assertTrue(field.contains(number));
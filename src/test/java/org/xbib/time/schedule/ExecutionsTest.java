@@ -0,0 +1,112 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ExecutionsTest {
+
+    @Test
+    public void executionsEqualNextExecution() {
+        String[] strings = {
+                "* * * * *", "*/15 * * * *", "30 2 * * *", "0 0 29 2 *", "0 0 31 * *",
+                "0 12 L * *", "0 9 15W * *", "0 0 ? * 5#3,2#2", "0 0 ? * 6L"
+        };
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        for (String string : strings) {
+            CronExpression expression = CronExpression.parse(string);
+            ZonedDateTime from = ZonedDateTime.of(2023, 3, 20, 0, 0, 0, 0, zone);
+            ZonedDateTime to = from.plusYears(1);
+            List<ZonedDateTime> expected = new ArrayList<>();
+            ZonedDateTime next = from;
+            while (expected.size() < 1000) {
+                try {
+                    next = expression.nextExecution(next, to);
+                } catch (IllegalStateException e) {
+                    break;
+                }
+                expected.add(next);
+            }
+            List<ZonedDateTime> actual = expression.executions(from, to).limit(1000).collect(Collectors.toList());
+            assertEquals(expected, actual, string);
+            List<Long> epochSeconds = expression.executionEpochSeconds(from, to).limit(1000)
+                    .boxed().collect(Collectors.toList());
+            assertEquals(expected.stream().map(ZonedDateTime::toEpochSecond).collect(Collectors.toList()),
+                    epochSeconds, string);
+        }
+    }
+
+    @Test
+    public void executionsAcrossOverlap() {
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        CronExpression expression = CronExpression.parse("*/30 * * * *");
+        ZonedDateTime from = ZonedDateTime.of(2023, 10, 29, 1, 0, 0, 0, zone);
+        List<ZonedDateTime> list = expression.executions(from, from.plusHours(4)).collect(Collectors.toList());
+        assertEquals(ZonedDateTime.of(2023, 10, 29, 1, 30, 0, 0, zone), list.get(0));
+        for (int i = 1; i < list.size(); i++) {
+            assertTrue(list.get(i).isAfter(list.get(i - 1)));
+        }
+        assertEquals(from.plusHours(4), list.get(list.size() - 1));
+    }
+
+    @Test
+    public void executionsWithSeconds() {
+        CronExpression expression = CronExpression.parser().withSecondsField(true).parse("*/20 * * * * ?");
+        ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        long[] epochSeconds = expression.executionEpochSeconds(from, from.plusMinutes(1)).toArray();
+        assertEquals(3, epochSeconds.length);
+        assertEquals(from.toEpochSecond() + 20, epochSeconds[0]);
+        assertEquals(from.toEpochSecond() + 40, epochSeconds[1]);
+        assertEquals(from.toEpochSecond() + 60, epochSeconds[2]);
+    }
+
+    @Test
+    public void executionsIterator() {
+        CronExpression expression = CronExpression.daily();
+        ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        Iterator<ZonedDateTime> iterator = expression.executions(from, from.plusYears(100)).iterator();
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(from.plusDays(i), iterator.next());
+        }
+    }
+
+    @Test
+    public void executionsEmpty() {
+        CronExpression expression = CronExpression.parse("0 0 29 2 *");
+        ZonedDateTime from = ZonedDateTime.of(2021, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertEquals(0, expression.executions(from, from.plusYears(2)).count());
+        assertEquals(1, expression.executionEpochSeconds(from, from.plusYears(4)).count());
+    }
+
+    @Test
+    public void defaultExecutionsOfSubclass() {
+        CronExpression daily = CronExpression.daily();
+        CronExpression expression = new CronExpression() {
+            @Override
+            public boolean matches(ZonedDateTime t) {
+                return daily.matches(t);
+            }
+
+            @Override
+            public ZonedDateTime nextExecution(ZonedDateTime from, ZonedDateTime to) {
+                return daily.nextExecution(from, to);
+            }
+        };
+        ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertEquals(daily.executions(from, from.plusDays(10)).collect(Collectors.toList()),
+                expression.executions(from, from.plusDays(10)).collect(Collectors.toList()));
+        assertArrayEquals(daily.executionEpochSeconds(from, from.plusDays(10).minusSeconds(1)).toArray(),
+                expression.executionEpochSeconds(from, from.plusDays(10).minusSeconds(1)).toArray());
+        assertEquals(3L, expression.countExecutions(from, from.plusDays(3)));
+        assertThrows(UnsupportedOperationException.class, () -> expression.previousExecution(from, from.minusDays(1)));
+    }
+}
@@ -0,0 +1,129 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+public class FiringIteratorTest {
+
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    @Test
+    public void mergedInOrderOfTime() throws Exception {
+        String[] strings = {"*/7 * * * *", "0 * * * *", "30 2 * * *", "*/15 9-17 * * 1-5", "@reboot", "0 0 1 1 *"};
+        ZonedDateTime from = ZonedDateTime.of(2023, 3, 25, 0, 0, 0, 0, BERLIN);
+        ZonedDateTime to = from.plusDays(3);
+        try (CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            List<long[]> expected = new ArrayList<>();
+            for (int i = 0; i < strings.length; i++) {
+                CronExpression expression = CronExpression.parse(strings[i]);
+                schedule.add("e" + i, expression, () -> null);
+                int index = i;
+                expression.executionEpochSeconds(from, to).forEach(e -> expected.add(new long[] {e, index}));
+            }
+            expected.sort(Comparator.<long[]>comparingLong(a -> a[0]).thenComparingLong(a -> a[1]));
+            List<long[]> actual = new ArrayList<>();
+            Iterator<Firing<Void>> it = schedule.upcoming(from, to);
+            while (it.hasNext()) {
+                Firing<Void> firing = it.next();
+                assertEquals(BERLIN, firing.getTime().getZone());
+                actual.add(new long[] {firing.getEpochSecond(), Long.parseLong(firing.getEntry().getName().substring(1))});
+            }
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i)[0], actual.get(i)[0]);
+                assertEquals(expected.get(i)[1], actual.get(i)[1]);
+            }
+        }
+    }
+
+    @Test
+    public void entriesAreSearchedOnlyAsFarAsRead() throws Exception {
+        ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, BERLIN);
+        AtomicInteger minutes = new AtomicInteger();
+        AtomicInteger hours = new AtomicInteger();
+        try (CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            schedule.add("minutes", new Counting(CronExpression.parse("* * * * *"), minutes), () -> null);
+            schedule.add("hours", new Counting(CronExpression.parse("0 * * * *"), hours), () -> null);
+            Iterator<Firing<Void>> it = schedule.upcoming(from, from.plusYears(1));
+            for (int i = 0; i < 500; i++) {
+                assertTrue(it.hasNext());
+                it.next();
+            }
+            // 500 firings, 8 of them hourly, and the first execution time of every entry
+            assertEquals(492, minutes.get());
+            assertEquals(9, hours.get());
+            assertTrue(it.hasNext());
+            assertEquals(493, minutes.get());
+        }
+    }
+
+    @Test
+    public void empty() throws Exception {
+        ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, BERLIN);
+        try (CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            schedule.add("reboot", CronExpression.parse("@reboot"), () -> null);
+            Iterator<Firing<Void>> it = schedule.upcoming(from, from.plusYears(1));
+            assertFalse(it.hasNext());
+            assertThrows(NoSuchElementException.class, it::next);
+        }
+    }
+
+    /**
+     * Counts the execution times searched.
+     */
+    private static class Counting extends CronExpression {
+
+        private final CronExpression expression;
+
+        private final AtomicInteger count;
+
+        Counting(CronExpression expression, AtomicInteger count) {
+            this.expression = expression;
+            this.count = count;
+        }
+
+        @Override
+        public boolean matches(ZonedDateTime t) {
+            return expression.matches(t);
+        }
+
+        @Override
+        public ZonedDateTime nextExecution(ZonedDateTime from, ZonedDateTime to) {
+            return expression.nextExecution(from, to);
+        }
+
+        @Override
+        public ZonedDateTime previousExecution(ZonedDateTime from, ZonedDateTime to) {
+            return expression.previousExecution(from, to);
+        }
+
+        @Override
+        public Stream<ZonedDateTime> executions(ZonedDateTime from, ZonedDateTime to) {
+            return expression.executions(from, to);
+        }
+
+        @Override
+        public LongStream executionEpochSeconds(ZonedDateTime from, ZonedDateTime to) {
+            return expression.executionEpochSeconds(from, to).peek(e -> count.incrementAndGet());
+        }
+
+        @Override
+        public LongStream executionEpochSeconds(ZonedDateTime from, ZonedDateTime to, TransitionPolicy policy) {
+            return expression.executionEpochSeconds(from, to, policy).peek(e -> count.incrementAndGet());
+        }
+    }
+}
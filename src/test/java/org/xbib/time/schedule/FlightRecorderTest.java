@@ -0,0 +1,76 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class FlightRecorderTest {
+
+    @Test
+    public void events() throws Exception {
+        ZonedDateTime time = ZonedDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneId.of("UTC"));
+        Path file = Files.createTempFile("cron", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("Parse", "NextExecution", "Tick", "Firing")) {
+                recording.enable("org.xbib.time.schedule." + name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            CronExpression expression = CronExpression.parse("0 0 29 2 *");
+            assertFalse(CronExpression.isValid("0 0 4X * *"));
+            expression.nextExecution(time.plusYears(1), time.plusYears(8));
+            ExecutorService jobExecutor = Executors.newSingleThreadExecutor();
+            try (CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor(),
+                    jobExecutor)) {
+                schedule.add("test", CronExpression.parse("* * * * *"), () -> null);
+                schedule.run(time);
+                jobExecutor.shutdown();
+                assertTrue(jobExecutor.awaitTermination(10, TimeUnit.SECONDS));
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("org.xbib.time.schedule."))
+                .collect(Collectors.toList());
+        Files.delete(file);
+        List<RecordedEvent> parses = events(events, "Parse");
+        assertEquals(3, parses.size());
+        assertEquals("0 0 29 2 *", parses.get(0).getString("expression"));
+        assertTrue(parses.get(0).getBoolean("valid"));
+        assertFalse(parses.get(1).getBoolean("valid"));
+        RecordedEvent next = events(events, "NextExecution").get(0);
+        assertEquals("0 0 29 2 *", next.getString("expression"));
+        assertEquals(ZonedDateTime.of(2024, 2, 29, 0, 0, 0, 0, ZoneId.of("UTC")).toInstant(),
+                next.getInstant("next"));
+        assertTrue(next.getInt("iterations") > 1);
+        RecordedEvent tick = events(events, "Tick").get(0);
+        assertEquals("PERIODIC", tick.getString("mode"));
+        assertEquals(1, tick.getInt("scanned"));
+        assertEquals(1, tick.getInt("fired"));
+        RecordedEvent firing = events(events, "Firing").get(0);
+        assertEquals("test", firing.getString("entry"));
+        assertEquals("* * * * *", firing.getString("expression"));
+        assertEquals(time.toInstant(), firing.getInstant("executionTime"));
+        assertTrue(firing.getBoolean("success"));
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals("org.xbib.time.schedule." + name))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,143 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.NavigableSet;
+
+public class HashTokenTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    public void stable() {
+        assertEquals(parse("H * * * *", "a"), parse("H * * * *", "a"));
+        assertTrue(parse("H H * * *", "a").hasSameFields(parse("h h * * *", "a")));
+        int differences = 0;
+        for (int i = 0; i < 100; i++) {
+            if (!minutes("H * * * *", "a" + i).equals(minutes("H * * * *", "b" + i))) {
+                differences++;
+            }
+        }
+        assertTrue(differences > 90);
+    }
+
+    @Test
+    public void fieldsAreIndependent() {
+        int same = 0;
+        for (int i = 0; i < 100; i++) {
+            DefaultCronExpression expression = parse("H H * * *", "entry" + i);
+            if (expression.getMinute().getNumbers().first().equals(expression.getHour().getNumbers().first())) {
+                same++;
+            }
+        }
+        assertTrue(same < 20);
+    }
+
+    @Test
+    public void ranges() {
+        for (int i = 0; i < 1000; i++) {
+            String name = "entry" + i;
+            int minute = minutes("H(10-19) * * * *", name).first();
+            assertTrue(minute >= 10 && minute <= 19);
+            NavigableSet<Integer> every15 = minutes("H/15 * * * *", name);
+            assertEquals(4, every15.size());
+            assertTrue(every15.first() < 15);
+            assertEquals(every15.first() + 45, (int) every15.last());
+            NavigableSet<Integer> every5 = minutes("H(30-44)/5 * * * *", name);
+            assertEquals(3, every5.size());
+            assertTrue(every5.first() >= 30 && every5.last() <= 44);
+            assertTrue(parse("0 0 H * *", name).nextExecution(START, START.plusYears(1)).getDayOfMonth() <= 28);
+        }
+        assertEquals(Integer.valueOf(5), minutes("H,5 * * * *", "a").ceiling(5));
+    }
+
+    @Test
+    public void even() {
+        int[] counts = new int[60];
+        for (int i = 0; i < 60000; i++) {
+            counts[minutes("H * * * *", "entry" + i).first()]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, Integer.toString(count));
+        }
+    }
+
+    @Test
+    public void errors() {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("H * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> parse("H(5-x) * * * *", "a"));
+        assertThrows(IllegalArgumentException.class, () -> parse("H(5-5) * * * *", "a"));
+    }
+
+    @Test
+    public void rangeOutOfField() {
+        assertThrows(IllegalArgumentException.class, () -> parse("H(50-70) * * * *", "a"));
+        assertThrows(IllegalArgumentException.class, () -> parse("0 H(12-24) * * *", "a"));
+        assertThrows(IllegalArgumentException.class, () -> parse("0 0 H(0-10) * *", "a"));
+        assertThrows(IllegalArgumentException.class, () -> parse("0 0 * H(6-13) *", "a"));
+        assertTrue(minutes("H(50-59) * * * *", "a").first() >= 50);
+        assertTrue(parse("0 0 H(29-31) * *", "a").nextExecution(START, START.plusYears(1)).getDayOfMonth() >= 29);
+        assertFalse(CronExpression.parser().withHashName("a").isValid("H(50-70) * * * *", new ParseResult()));
+    }
+
+    @Test
+    public void unexpectedTokenAfterHash() {
+        assertThrows(IllegalArgumentException.class, () -> parse("H5 * * * *", "a"));
+        assertThrows(IllegalArgumentException.class, () -> parse("H(10-19)5 * * * *", "a"));
+        assertThrows(IllegalArgumentException.class, () -> parse("H-5 * * * *", "a"));
+        assertFalse(CronExpression.parser().withHashName("a").isValid("H5 * * * *", new ParseResult()));
+    }
+
+    @Test
+    public void cacheKeyedByHashName() {
+        CronExpressionCache cache = new CronExpressionCache(10);
+        CronExpression a = CronExpression.parser().withCache(cache).withHashName("a").parse("H * * * *");
+        CronExpression b = CronExpression.parser().withCache(cache).withHashName("b").parse("H * * * *");
+        assertEquals(2, cache.getMissCount());
+        assertNotEquals(minutes(a), minutes(b));
+    }
+
+    @Test
+    public void spreadOverSeconds() {
+        int entries = 36000;
+        for (String s : new String[] { "H H * * * *", "H H/15 * * * *" }) {
+            int[] perSecond = new int[3600];
+            for (int i = 0; i < entries; i++) {
+                CronExpression expression = CronExpression.parser().withSecondsField(true)
+                        .withHashName("tenant-" + i).parse(s);
+                expression.executionEpochSeconds(START.minusSeconds(1), START.plusHours(1).minusSeconds(1))
+                        .forEach(t -> perSecond[(int) (t - START.toEpochSecond())]++);
+            }
+            long total = 0L;
+            int max = 0;
+            int min = Integer.MAX_VALUE;
+            for (int count : perSecond) {
+                total += count;
+                max = Math.max(max, count);
+                min = Math.min(min, count);
+            }
+            // every second of the hour fires, and no second more than three times the mean
+            long mean = total / perSecond.length;
+            assertTrue(min > 0, s);
+            assertTrue(max <= 3 * mean, s + ": " + max + " firings in one second, mean " + mean);
+        }
+    }
+
+    private static DefaultCronExpression parse(String s, String name) {
+        return (DefaultCronExpression) CronExpression.parser().withHashName(name).parse(s);
+    }
+
+    private static NavigableSet<Integer> minutes(String s, String name) {
+        return parse(s, name).getMinute().getNumbers();
+    }
+
+    private static NavigableSet<Integer> minutes(CronExpression expression) {
+        return ((DefaultCronExpression) expression).getMinute().getNumbers();
+    }
+}
@@ -0,0 +1,87 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class HistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        Histogram histogram = new Histogram(5, 1000L);
+        for (int i = 1; i <= 32; i++) {
+            histogram.record(i - 1);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(32L, snapshot.getCount());
+        assertEquals(0L, snapshot.getMin());
+        assertEquals(31L, snapshot.getMax());
+        assertEquals(15L, snapshot.getValueAtPercentile(50.0d));
+        assertEquals(31L, snapshot.getValueAtPercentile(100.0d));
+        assertEquals(15.5d, snapshot.getMean(), 0.0d);
+    }
+
+    @Test
+    public void relativeError() {
+        Random random = new Random(42L);
+        Histogram histogram = new Histogram(5, 1L << 40);
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 25.0d);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        for (double percentile : new double[] {1.0d, 10.0d, 50.0d, 90.0d, 99.0d, 99.9d, 100.0d}) {
+            long expected = values[(int) Math.ceil(percentile / 100.0d * values.length) - 1];
+            long actual = snapshot.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 32L,
+                    percentile + ": " + expected + " " + actual);
+        }
+    }
+
+    @Test
+    public void beyondHighestTrackableValue() {
+        Histogram histogram = new Histogram(3, 100L);
+        histogram.record(-1L);
+        histogram.record(1000000L);
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2L, snapshot.getCount());
+        assertEquals(0L, snapshot.getMin());
+        assertEquals(1000000L, snapshot.getMax());
+        assertEquals(1000000L, snapshot.getValueAtPercentile(100.0d));
+    }
+
+    @Test
+    public void empty() {
+        Histogram.Snapshot snapshot = new Histogram(5, 1000L).snapshot();
+        assertEquals(0L, snapshot.getCount());
+        assertEquals(0L, snapshot.getMin());
+        assertEquals(0L, snapshot.getMax());
+        assertEquals(0L, snapshot.getValueAtPercentile(99.0d));
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception {
+        Histogram histogram = new Histogram(5, 1L << 20);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(400000L, snapshot.getCount());
+        assertEquals(4L * 99999L * 100000L / 2L, snapshot.getSum());
+        assertEquals(99999L, snapshot.getMax());
+    }
+}
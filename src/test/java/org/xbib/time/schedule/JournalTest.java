@@ -0,0 +1,186 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+public class JournalTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    public void appendAndRead() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try (Journal journal = new Journal(directory)) {
+            journal.append("a", START, START.plusMinutes(1));
+            journal.append("b", null, START.plusMinutes(2));
+            journal.append("a", START.plusMinutes(1), START.plusMinutes(2));
+            Map<String, long[]> state = journal.read();
+            assertEquals(2, state.size());
+            assertArrayEquals(new long[] { START.plusMinutes(1).toEpochSecond(), START.plusMinutes(2).toEpochSecond() },
+                    state.get("a"));
+            assertEquals(Long.MIN_VALUE, state.get("b")[0]);
+        }
+        try (Journal journal = new Journal(directory)) {
+            journal.append("c", START, null);
+            Map<String, long[]> state = journal.read();
+            assertEquals(3, state.size());
+            assertEquals(START.plusMinutes(1).toEpochSecond(), state.get("a")[0]);
+        }
+    }
+
+    @Test
+    public void checkpoint() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try (Journal journal = new Journal(directory)) {
+            List<Entry<Void>> entries = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Entry<Void> entry = new Entry<>("e" + i, CronExpression.hourly(), () -> null);
+                entry.setLastCalled(START);
+                entries.add(entry);
+                journal.append(entry);
+                journal.append(entry);
+            }
+            journal.checkpoint(entries);
+            assertEquals(8, journal.size());
+            journal.append("e0", START.plusHours(1), START.plusHours(2));
+        }
+        try (Journal journal = new Journal(directory)) {
+            Map<String, long[]> state = journal.read();
+            assertEquals(10, state.size());
+            assertEquals(START.plusHours(1).toEpochSecond(), state.get("e0")[0]);
+            assertEquals(START.plusHours(1).toEpochSecond(), state.get("e1")[1]);
+        }
+    }
+
+    @Test
+    public void tornRecord() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        int end;
+        try (Journal journal = new Journal(directory)) {
+            journal.append("a", START, START.plusMinutes(1));
+            end = journal.size();
+        }
+        // a crash left the length of a record, but not the record itself
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal"), StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE);
+            channel.write(length, end);
+        }
+        try (Journal journal = new Journal(directory)) {
+            assertEquals(1, journal.read().size());
+            journal.append("b", START, START.plusMinutes(1));
+            assertEquals(2, journal.read().size());
+        }
+    }
+
+    @Test
+    public void emptyName() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try (Journal journal = new Journal(directory)) {
+            journal.append("a", START, START.plusMinutes(1));
+            journal.append("", START, START.plusMinutes(1));
+            journal.append("b", START, START.plusMinutes(1));
+        }
+        try (Journal journal = new Journal(directory)) {
+            assertEquals(3, journal.read().size());
+            journal.append("c", START, START.plusMinutes(1));
+            List<Entry<Void>> entries = new ArrayList<>();
+            entries.add(new Entry<>("", CronExpression.hourly(), () -> null));
+            entries.add(new Entry<>("d", CronExpression.hourly(), () -> null));
+            journal.checkpoint(entries);
+            journal.append("e", START, START.plusMinutes(1));
+        }
+        try (Journal journal = new Journal(directory)) {
+            assertEquals(Set.of("", "d", "e"), journal.read().keySet());
+        }
+    }
+
+    @Test
+    public void restoreSchedule() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        CronExpression expression = CronExpression.parse("* * * * *");
+        try (Journal journal = new Journal(directory);
+             CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            schedule.setJournal(journal);
+            schedule.add("a", expression, () -> null);
+            schedule.add("b", expression, () -> null);
+            schedule.run(START);
+            assertNull(schedule.getEntry("a").getCallable().call());
+        }
+        try (Journal journal = new Journal(directory);
+             CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            schedule.setJournal(journal);
+            schedule.add("a", expression, () -> null, MisfirePolicy.FIRE_ALL);
+            schedule.add("c", expression, () -> null);
+            schedule.restore();
+            Entry<Void> a = schedule.getEntry("a");
+            assertEquals(START.toInstant(), a.getLastCalled().toInstant());
+            assertEquals(START.plusMinutes(1).toInstant(), a.getNextCall().toInstant());
+            assertNull(schedule.getEntry("c").getLastCalled());
+            // two calls were missed while the schedule was down
+            schedule.run(START.plusMinutes(3));
+            assertEquals(START.plusMinutes(4).toInstant(), a.getNextCall().toInstant());
+            Map<String, long[]> state = journal.read();
+            assertEquals(START.plusMinutes(3).toEpochSecond(), state.get("a")[0]);
+        }
+    }
+
+    @Test
+    public void restoreNeverCalled() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        CronExpression expression = CronExpression.yearly();
+        try (Journal journal = new Journal(directory);
+             CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            schedule.setJournal(journal);
+            schedule.add("a", expression, () -> null);
+            schedule.getEntry("a").setNextCall(START.plusYears(1));
+            schedule.checkpoint();
+        }
+        try (Journal journal = new Journal(directory);
+             CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            schedule.setJournal(journal);
+            schedule.add("a", expression, () -> null);
+            schedule.restore();
+            Entry<Void> a = schedule.getEntry("a");
+            assertNull(a.getLastCalled());
+            assertEquals(START.plusYears(1).toInstant(), a.getNextCall().toInstant());
+        }
+    }
+
+    @Test
+    public void restoreAfterCatchUp() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        CronExpression expression = CronExpression.hourly();
+        try (Journal journal = new Journal(directory);
+             CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            journal.append("a", START, START.plusHours(1));
+            schedule.setJournal(journal);
+            schedule.add("a", expression, () -> null, MisfirePolicy.FIRE_ONCE);
+            schedule.restore();
+            // the calls since one o'clock are caught up at half past three, which is no execution time
+            schedule.run(START.plusHours(3).plusMinutes(30));
+        }
+        try (Journal journal = new Journal(directory);
+             CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            schedule.setJournal(journal);
+            schedule.add("a", expression, () -> null, MisfirePolicy.FIRE_ONCE);
+            schedule.restore();
+            Entry<Void> a = schedule.getEntry("a");
+            assertEquals(START.plusHours(3).plusMinutes(30).toInstant(), a.getLastCalled().toInstant());
+            assertEquals(START.plusHours(4).toInstant(), a.getNextCall().toInstant());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+public class MatchesTest {
+
+    private static final ZoneId[] ZONES = {
+            ZoneOffset.UTC, ZoneOffset.ofHoursMinutes(5, 30), ZoneId.of("Europe/Berlin"),
+            ZoneId.of("America/New_York"), ZoneId.of("Australia/Lord_Howe"), ZoneId.of("Asia/Kathmandu")
+    };
+
+    @Test
+    public void epochSecondEqualsZonedDateTime() {
+        String[] strings = {
+                "* * * * *", "*/15 * * * *", "30 2 * * *", "0 0 29 2 *", "0 12 L * *", "0 9 15W * *",
+                "0 0 ? * 5#3,2#2", "0 0 ? * 6L", "0-5 1-3 * 3,10 0", "45 23 31 12 *"
+        };
+        Random random = new Random(42L);
+        for (String string : strings) {
+            CronExpression expression = CronExpression.parse(string);
+            for (ZoneId zone : ZONES) {
+                long epochSecond = ZonedDateTime.of(2023, 3, 1, 0, 0, 0, 0, zone).toEpochSecond();
+                for (int i = 0; i < 20000; i++) {
+                    // mostly whole minutes, walking across the transitions of the year
+                    epochSecond += random.nextInt(4) == 0 ? random.nextInt(120) : 60L * random.nextInt(90);
+                    ZonedDateTime t = ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+                    assertEquals(expression.matches(t), expression.matches(epochSecond, zone), string + " " + t);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void epochSecondWithSeconds() {
+        CronExpression expression = CronExpression.parser().withSecondsField(true).parse("*/20 30 2 * * ?");
+        ZoneId zone = ZoneId.of("America/New_York");
+        long epochSecond = ZonedDateTime.of(2023, 1, 1, 2, 30, 0, 0, zone).toEpochSecond();
+        assertTrue(expression.matches(epochSecond, zone));
+        assertFalse(expression.matches(epochSecond + 1L, zone));
+        assertTrue(expression.matches(epochSecond + 40L, zone));
+        assertFalse(expression.matches(epochSecond + 60L, zone));
+    }
+
+    @Test
+    public void switchingZones() {
+        CronExpression expression = CronExpression.parse("0 12 * * *");
+        long epochSecond = ZonedDateTime.of(2023, 6, 1, 12, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(expression.matches(epochSecond, ZoneOffset.UTC));
+            assertFalse(expression.matches(epochSecond, ZoneId.of("Europe/Berlin")));
+            assertTrue(expression.matches(epochSecond - 7200L, ZoneId.of("Europe/Berlin")));
+        }
+    }
+
+    @Test
+    public void reboot() {
+        CronExpression expression = CronExpression.parse("@reboot");
+        assertTrue(expression.matches(0L, ZoneOffset.UTC));
+        assertFalse(expression.matches(0L, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void ofEpochDay() {
+        Random random = new Random(42L);
+        for (int i = 0; i < 100000; i++) {
+            long epochDay = i < 1000 ? i - 500L : random.nextInt(2 * 3660000) - 3660000L;
+            LocalDate expected = LocalDate.ofEpochDay(epochDay);
+            int date = Dates.ofEpochDay(epochDay);
+            assertEquals(expected.getYear(), Dates.year(date), expected.toString());
+            assertEquals(expected.getMonthValue(), Dates.month(date), expected.toString());
+            assertEquals(expected.getDayOfMonth(), Dates.day(date), expected.toString());
+        }
+    }
+}
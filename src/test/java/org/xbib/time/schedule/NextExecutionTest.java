@@ -1,8 +1,12 @@
 package org.xbib.time.schedule;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.Test;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,4 +80,59 @@ public class NextExecutionTest {
         ZonedDateTime next = expression.nextExecution(begin, begin.plusYears(1));
         logger.log(Level.INFO, next.toString());
     }
+
+    @Test
+    public void nextLeapDay() {
+        CronExpression expression = CronExpression.parse("0 0 29 2 *");
+        ZonedDateTime begin = ZonedDateTime.of(2021, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertEquals(ZonedDateTime.of(2024, 2, 29, 0, 0, 0, 0, ZoneOffset.UTC),
+                expression.nextExecution(begin, begin.plusYears(4)));
+    }
+
+    @Test
+    public void nextDayOfMonthAfterShortMonth() {
+        CronExpression expression = CronExpression.parse("0 0 31 * *");
+        ZonedDateTime begin = ZonedDateTime.of(2023, 2, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertEquals(ZonedDateTime.of(2023, 3, 31, 0, 0, 0, 0, ZoneOffset.UTC),
+                expression.nextExecution(begin, begin.plusYears(1)));
+    }
+
+    @Test
+    public void nextInGap() {
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        CronExpression expression = CronExpression.parse("30 2 * * *");
+        ZonedDateTime begin = ZonedDateTime.of(2023, 3, 26, 1, 0, 0, 0, zone);
+        ZonedDateTime next = expression.nextExecution(begin, begin.plusDays(1));
+        assertEquals(ZonedDateTime.of(2023, 3, 26, 3, 30, 0, 0, zone), next);
+        assertEquals(ZonedDateTime.of(2023, 3, 27, 2, 30, 0, 0, zone), expression.nextExecution(next, next.plusDays(2)));
+    }
+
+    @Test
+    public void nextOutOfRange() {
+        CronExpression expression = CronExpression.parse("0 0 29 2 *");
+        ZonedDateTime begin = ZonedDateTime.of(2021, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertThrows(IllegalStateException.class, () -> expression.nextExecution(begin, begin.plusYears(2)));
+    }
+
+    @Test
+    public void nextEqualsBruteForce() {
+        String[] strings = {
+                "* * * * *", "0 0 29 2 *", "0 0 31 * *", "30 10 * * 3", "*/7 3-5 * * MON-FRI",
+                "0 12 L * *", "0 9 15W * *", "0 9 1W * *", "0 0 ? * 5#3,2#2", "0 0 ? * 6L",
+                "15 */4 1-10 JAN,JUL *", "0 0 13 * 5", "59 23 31 12 *"
+        };
+        for (String string : strings) {
+            CronExpression expression = CronExpression.parse(string);
+            ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+            for (int i = 0; i < 10; i++) {
+                ZonedDateTime next = expression.nextExecution(from, from.plusYears(5));
+                ZonedDateTime expected = from.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+                while (!expression.matches(expected)) {
+                    expected = expected.plusMinutes(1);
+                }
+                assertEquals(expected, next, string + " from " + from);
+                from = next.plusSeconds(i * 7919L);
+            }
+        }
+    }
 }
@@ -0,0 +1,310 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.xbib.time.schedule.util.ManualScheduledExecutor;
+import org.xbib.time.schedule.util.MutableClock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PartitionTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    public void ringBalance() {
+        HashRing ring = new HashRing(List.of("a", "b", "c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 30000; i++) {
+            counts.merge(ring.getNode("entry" + i), 1, Integer::sum);
+        }
+        for (int count : counts.values()) {
+            assertTrue(count > 8000 && count < 12000, counts.toString());
+        }
+    }
+
+    @Test
+    public void ringMovesOnlyNamesOfLeavingNode() {
+        HashRing three = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing two = new HashRing(List.of("a", "b"), 128);
+        for (int i = 0; i < 10000; i++) {
+            String node = three.getNode("entry" + i);
+            if (!node.equals("c")) {
+                assertEquals(node, two.getNode("entry" + i));
+            }
+        }
+    }
+
+    @Test
+    public void inMemoryLeases() {
+        leases(new InMemoryLeaseStore());
+    }
+
+    @Test
+    public void fileLeases() throws Exception {
+        Path directory = Files.createTempDirectory("leases");
+        leases(new FileLeaseStore(directory));
+        // a second store on the same directory sees the same leases
+        LeaseStore other = new FileLeaseStore(directory);
+        assertFalse(other.tryAcquire("x", "b", 0L, 100L));
+        assertTrue(other.tryAcquire("x", "b", 100L, 100L));
+    }
+
+    @Test
+    public void simulatedNodes() throws Exception {
+        MutableClock clock = new MutableClock(START);
+        LeaseStore leaseStore = new InMemoryLeaseStore();
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        List<CronSchedule<Void>> nodes = new ArrayList<>();
+        for (int n = 0; n < 3; n++) {
+            Partition partition = new Partition("node" + n, leaseStore, clock, 30000L, 128);
+            CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor(), 60000,
+                    CronSchedule.Mode.PERIODIC, clock, new HeapEntryQueue<>(), Executors.newSingleThreadExecutor(),
+                    partition);
+            for (int i = 0; i < 300; i++) {
+                String name = "entry" + i;
+                schedule.add(name, CronExpression.parse("* * * * *"), () -> {
+                    calls.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+                    return null;
+                });
+            }
+            nodes.add(schedule);
+        }
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.getPartition().heartbeat();
+        }
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.getPartition().heartbeat();
+            assertEquals(3, schedule.getPartition().getNodes().size());
+        }
+        runAll(nodes, START);
+        assertCalls(calls, 1);
+        // every node calls about a third of the entries
+        for (CronSchedule<Void> schedule : nodes) {
+            long owned = schedule.getEntries().stream()
+                    .filter(e -> schedule.getPartition().owns(e.getName())).count();
+            assertTrue(owned > 60 && owned < 140, Long.toString(owned));
+        }
+        // node 2 dies and stops renewing its lease, the others take over after the lease expired
+        CronSchedule<Void> dead = nodes.remove(2);
+        clock.set(START.plusSeconds(20));
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.getPartition().heartbeat();
+        }
+        clock.set(START.plusSeconds(40));
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.getPartition().heartbeat();
+            assertEquals(2, schedule.getPartition().getNodes().size());
+        }
+        runAll(nodes, START.plusMinutes(1));
+        assertCalls(calls, 2);
+        dead.close();
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.close();
+        }
+    }
+
+    @Test
+    public void onlyOwnedEntriesAreMatched() throws Exception {
+        MutableClock clock = new MutableClock(START);
+        LeaseStore leaseStore = new InMemoryLeaseStore();
+        AtomicInteger matches = new AtomicInteger();
+        CronExpression everyMinute = CronExpression.parse("* * * * *");
+        CronExpression counting = new CronExpression() {
+            @Override
+            public boolean matches(ZonedDateTime t) {
+                matches.incrementAndGet();
+                return everyMinute.matches(t);
+            }
+
+            @Override
+            public ZonedDateTime nextExecution(ZonedDateTime from, ZonedDateTime to) {
+                return everyMinute.nextExecution(from, to);
+            }
+        };
+        List<CronSchedule<Void>> nodes = new ArrayList<>();
+        for (int n = 0; n < 2; n++) {
+            Partition partition = new Partition("node" + n, leaseStore, clock, 30000L, 128);
+            CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor(), 60000,
+                    CronSchedule.Mode.PERIODIC, clock, new HeapEntryQueue<>(), Executors.newSingleThreadExecutor(),
+                    partition);
+            for (int i = 0; i < 100; i++) {
+                schedule.add("entry" + i, counting, () -> null);
+            }
+            nodes.add(schedule);
+        }
+        for (int i = 0; i < 2; i++) {
+            for (CronSchedule<Void> schedule : nodes) {
+                schedule.getPartition().heartbeat();
+            }
+        }
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.run(START);
+        }
+        // every entry is matched by one node only
+        assertEquals(100, matches.get());
+        long scanned = 0L;
+        for (CronSchedule<Void> schedule : nodes) {
+            scanned += schedule.getMetrics().snapshot().getEntriesScanned().getSum();
+        }
+        assertEquals(100L, scanned);
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.close();
+        }
+    }
+
+    @Test
+    public void takeoverDoesNotCatchUp() throws Exception {
+        MutableClock clock = new MutableClock(START);
+        LeaseStore leaseStore = new InMemoryLeaseStore();
+        Partition a = new Partition("a", leaseStore, clock, 30000L, 128);
+        Partition b = new Partition("b", leaseStore, clock, 30000L, 128);
+        a.heartbeat();
+        b.heartbeat();
+        a.heartbeat();
+        String name = "entry0";
+        while (!b.owns(name)) {
+            name = name + "0";
+        }
+        AtomicInteger calls = new AtomicInteger();
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        CronSchedule<Void> schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.PERIODIC, clock,
+                new HeapEntryQueue<>(), manual, a);
+        schedule.add(name, CronExpression.parse("* * * * *"), () -> {
+            calls.incrementAndGet();
+            return null;
+        }, MisfirePolicy.FIRE_ALL);
+        schedule.run(START);
+        assertEquals(0, calls.get());
+        // b leaves, a takes over the entry ten minutes later, b has called it until then
+        b.leave();
+        clock.set(START.plusMinutes(10));
+        a.heartbeat();
+        schedule.run(START.plusMinutes(10));
+        assertEquals(1, calls.get());
+        assertEquals(START.plusMinutes(11), schedule.getEntry(name).getNextCall());
+        schedule.close();
+    }
+
+    @Test
+    public void queueHoldsOwnedEntries() throws Exception {
+        MutableClock clock = new MutableClock(START);
+        LeaseStore leaseStore = new InMemoryLeaseStore();
+        Partition a = new Partition("a", leaseStore, clock, 30000L, 128);
+        Partition b = new Partition("b", leaseStore, clock, 30000L, 128);
+        b.heartbeat();
+        ManualScheduledExecutor manual = new ManualScheduledExecutor();
+        EntryQueue<Void> queue = new HeapEntryQueue<>();
+        CronSchedule<Void> schedule = new CronSchedule<>(manual, 60000, CronSchedule.Mode.QUEUED, clock,
+                queue, manual, a);
+        for (int i = 0; i < 100; i++) {
+            schedule.add("entry" + i, CronExpression.parse("* * * * *"), () -> null);
+        }
+        schedule.start();
+        long owned = schedule.getEntries().stream().filter(e -> a.owns(e.getName())).count();
+        assertTrue(owned > 20 && owned < 80, Long.toString(owned));
+        assertEquals(owned, queue.size());
+        // b leaves, the next heartbeat of a puts all entries into the queue
+        b.leave();
+        manual.runScheduled();
+        assertEquals(100, queue.size());
+        schedule.close();
+    }
+
+    @Test
+    public void firingLease() {
+        MutableClock clock = new MutableClock(START);
+        LeaseStore leaseStore = new InMemoryLeaseStore();
+        Partition a = new Partition("a", leaseStore, clock, 30000L, 128);
+        Partition b = new Partition("b", leaseStore, clock, 30000L, 128);
+        a.heartbeat();
+        // b has not seen a yet and owns every entry, a owns some of them
+        b.heartbeat();
+        String name = "entry0";
+        while (!a.owns(name)) {
+            name = name + "0";
+        }
+        assertTrue(a.acquire(name, 60L, 60000L));
+        assertFalse(b.acquire(name, 60L, 60000L));
+    }
+
+    @Test
+    public void firingLeaseOutlivesMisfireThreshold() {
+        MutableClock clock = new MutableClock(START);
+        LeaseStore leaseStore = new InMemoryLeaseStore();
+        Partition a = new Partition("a", leaseStore, clock, 30000L, 128);
+        Partition b = new Partition("b", leaseStore, clock, 30000L, 128);
+        a.heartbeat();
+        long firing = START.toEpochSecond();
+        assertTrue(a.acquire("entry", firing, 60000L));
+        // a leaves, b ticks late but within the misfire threshold, long after the lease of a node expired
+        a.leave();
+        clock.set(START.plusSeconds(59));
+        b.heartbeat();
+        assertTrue(b.owns("entry"));
+        assertFalse(b.acquire("entry", firing, 60000L));
+        clock.set(START.plusSeconds(100));
+        assertTrue(b.acquire("entry", firing + 60L, 60000L));
+    }
+
+    @Test
+    public void leftNodeStaysOut() {
+        MutableClock clock = new MutableClock(START);
+        LeaseStore leaseStore = new InMemoryLeaseStore();
+        Partition a = new Partition("a", leaseStore, clock, 30000L, 128);
+        Partition b = new Partition("b", leaseStore, clock, 30000L, 128);
+        a.heartbeat();
+        b.heartbeat();
+        a.leave();
+        assertTrue(a.hasLeft());
+        assertFalse(a.owns("entry"));
+        assertFalse(a.acquire("entry", 60L, 60000L));
+        a.heartbeat();
+        assertEquals(Set.of(), a.getNodes());
+        b.heartbeat();
+        assertEquals(Set.of("b"), b.getNodes());
+        assertEquals(Map.of("node/b", "b"), leaseStore.getLeases("node/", clock.millis()));
+    }
+
+    private static void leases(LeaseStore leaseStore) {
+        assertTrue(leaseStore.tryAcquire("x", "a", 0L, 100L));
+        assertTrue(leaseStore.tryAcquire("x", "a", 50L, 100L));
+        assertFalse(leaseStore.tryAcquire("x", "b", 100L, 100L));
+        assertEquals(Map.of("x", "a"), leaseStore.getLeases("x", 100L));
+        assertEquals(Map.of(), leaseStore.getLeases("y", 100L));
+        leaseStore.release("x", "b");
+        assertFalse(leaseStore.tryAcquire("x", "b", 100L, 100L));
+        leaseStore.release("x", "a");
+        assertTrue(leaseStore.tryAcquire("x", "b", 100L, 100L));
+        leaseStore.purge(200L);
+        assertEquals(Map.of(), leaseStore.getLeases("", 0L));
+        assertTrue(leaseStore.tryAcquire("x", "a", 0L, 100L));
+    }
+
+    private static void runAll(List<CronSchedule<Void>> nodes, ZonedDateTime time) throws Exception {
+        for (CronSchedule<Void> schedule : nodes) {
+            schedule.run(time);
+        }
+        TimeUnit.MILLISECONDS.sleep(200);
+    }
+
+    private static void assertCalls(Map<String, AtomicInteger> calls, int expected) {
+        assertEquals(300, calls.size());
+        for (Map.Entry<String, AtomicInteger> entry : calls.entrySet()) {
+            assertEquals(expected, entry.getValue().get(), entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+public class PreviousExecutionTest {
+
+    private static final String[] STRINGS = {
+            "* * * * *",
+            "0 0 29 2 *",
+            "0 0 31 * *",
+            "30 10 * * 3",
+            "*/7 3-5 * * MON-FRI",
+            "0 12 L * *",
+            "0 9 15W * *",
+            "0 9 1W * *",
+            "0 0 ? * 5#3,2#2",
+            "0 0 ? * 6L",
+            "15 */4 1-10 JAN,JUL *",
+            "0 0 13 * 5",
+            "59 23 31 12 *",
+            "0 0 1 1 *"
+    };
+
+    @Test
+    public void previousMinute() {
+        CronExpression expression = CronExpression.parse("* * * * *");
+        ZonedDateTime from = ZonedDateTime.of(2023, 5, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+        assertEquals(from.minusMinutes(1), expression.previousExecution(from, from.minusHours(1)));
+        assertEquals(from, expression.previousExecution(from.plusSeconds(30), from.minusHours(1)));
+    }
+
+    @Test
+    public void previousLeapDay() {
+        CronExpression expression = CronExpression.parse("0 0 29 2 *");
+        ZonedDateTime from = ZonedDateTime.of(2027, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertEquals(ZonedDateTime.of(2024, 2, 29, 0, 0, 0, 0, ZoneOffset.UTC),
+                expression.previousExecution(from, from.minusYears(4)));
+    }
+
+    @Test
+    public void previousYears() {
+        CronExpression expression = CronExpression.parser().withSecondsField(true)
+                .parse("0 15 10 ? * 6L 2002-2005");
+        ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertEquals(ZonedDateTime.of(2005, 12, 31, 10, 15, 0, 0, ZoneOffset.UTC),
+                expression.previousExecution(from, from.minusYears(30)));
+    }
+
+    @Test
+    public void previousInGap() {
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        CronExpression expression = CronExpression.parse("30 2 * * *");
+        ZonedDateTime from = ZonedDateTime.of(2023, 3, 26, 3, 10, 0, 0, zone);
+        assertEquals(ZonedDateTime.of(2023, 3, 25, 2, 30, 0, 0, zone),
+                expression.previousExecution(from, from.minusDays(2)));
+        from = ZonedDateTime.of(2023, 3, 26, 4, 0, 0, 0, zone);
+        assertEquals(ZonedDateTime.of(2023, 3, 26, 3, 30, 0, 0, zone),
+                expression.previousExecution(from, from.minusDays(2)));
+    }
+
+    @Test
+    public void previousOutOfRange() {
+        CronExpression expression = CronExpression.parse("0 0 29 2 *");
+        ZonedDateTime from = ZonedDateTime.of(2027, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        assertThrows(IllegalStateException.class, () -> expression.previousExecution(from, from.minusYears(2)));
+    }
+
+    @Test
+    public void previousEqualsBruteForce() {
+        for (String string : STRINGS) {
+            CronExpression expression = CronExpression.parse(string);
+            ZonedDateTime from = ZonedDateTime.of(2028, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+            for (int i = 0; i < 10; i++) {
+                ZonedDateTime previous = expression.previousExecution(from, from.minusYears(5));
+                ZonedDateTime expected = from.truncatedTo(ChronoUnit.MINUTES);
+                if (expected.equals(from)) {
+                    expected = expected.minusMinutes(1);
+                }
+                while (!expression.matches(expected)) {
+                    expected = expected.minusMinutes(1);
+                }
+                assertEquals(expected, previous, string + " from " + from);
+                from = previous.minusSeconds(i * 7919L);
+            }
+        }
+    }
+
+    @Test
+    public void previousSecondsEqualsBruteForce() {
+        CronExpression expression = CronExpression.parser().withSecondsField(true).parse("*/13 5 */2 * * ?");
+        ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < 100; i++) {
+            ZonedDateTime previous = expression.previousExecution(from, from.minusDays(1));
+            ZonedDateTime expected = from.minusSeconds(1);
+            while (!expression.matches(expected)) {
+                expected = expected.minusSeconds(1);
+            }
+            assertEquals(expected, previous, "from " + from);
+            from = previous;
+        }
+    }
+
+    @Test
+    public void previousReversesNext() {
+        for (String string : STRINGS) {
+            CronExpression expression = CronExpression.parse(string);
+            ZonedDateTime from = ZonedDateTime.of(2023, 6, 15, 12, 0, 0, 0, ZoneId.of("Europe/Berlin"));
+            ZonedDateTime next = expression.nextExecution(from, from.plusYears(5));
+            ZonedDateTime afterNext = expression.nextExecution(next, next.plusYears(5));
+            assertEquals(next, expression.previousExecution(afterNext, from), string);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class TimingWheelEntryQueueTest {
+
+    private static final long START = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+
+    @Test
+    public void pollInOrder() {
+        TimingWheelEntryQueue<Void> queue = new TimingWheelEntryQueue<>(START);
+        Entry<Void> a = entry("a", START + 5);
+        Entry<Void> b = entry("b", START + 3600 * 5);
+        Entry<Void> c = entry("c", START + 86400 * 400);
+        queue.add(c);
+        queue.add(b);
+        queue.add(a);
+        assertEquals(3, queue.size());
+        assertEquals(START + 5, queue.nextTime());
+        List<Entry<Void>> polled = new ArrayList<>();
+        queue.poll(START + 4, polled::add);
+        assertTrue(polled.isEmpty());
+        queue.poll(START + 5, polled::add);
+        assertEquals(List.of(a), polled);
+        assertEquals(START + 60, queue.nextTime());
+        queue.poll(START + 3600 * 5 - 1, polled::add);
+        assertEquals(List.of(a), polled);
+        queue.poll(START + 86400 * 401, polled::add);
+        assertEquals(List.of(a, b, c), polled);
+        assertEquals(0, queue.size());
+        assertEquals(Long.MAX_VALUE, queue.nextTime());
+    }
+
+    @Test
+    public void nextTimeWithEntriesInCoarserWheel() {
+        TimingWheelEntryQueue<Void> queue = new TimingWheelEntryQueue<>(START);
+        // b is in the minute wheel, a is added later into the seconds wheel, after b is due
+        Entry<Void> b = entry("b", START + 65);
+        queue.add(b);
+        List<Entry<Void>> polled = new ArrayList<>();
+        queue.poll(START + 50, polled::add);
+        Entry<Void> a = entry("a", START + 100);
+        queue.add(a);
+        assertEquals(START + 60, queue.nextTime());
+        queue.poll(START + 60, polled::add);
+        assertEquals(START + 65, queue.nextTime());
+        queue.poll(START + 65, polled::add);
+        assertEquals(List.of(b), polled);
+        assertEquals(START + 100, queue.nextTime());
+    }
+
+    @Test
+    public void remove() {
+        TimingWheelEntryQueue<Void> queue = new TimingWheelEntryQueue<>(START);
+        Entry<Void> a = entry("a", START + 10);
+        Entry<Void> b = entry("b", START + 10);
+        queue.add(a);
+        queue.add(b);
+        assertTrue(queue.remove(a));
+        assertFalse(queue.remove(a));
+        List<Entry<Void>> polled = new ArrayList<>();
+        queue.poll(START + 10, polled::add);
+        assertEquals(List.of(b), polled);
+    }
+
+    @Test
+    public void addExpired() {
+        TimingWheelEntryQueue<Void> queue = new TimingWheelEntryQueue<>(START);
+        Entry<Void> a = entry("a", START - 10);
+        queue.add(a);
+        assertEquals(START, queue.nextTime());
+        List<Entry<Void>> polled = new ArrayList<>();
+        queue.poll(START, polled::add);
+        assertEquals(List.of(a), polled);
+    }
+
+    @Test
+    public void sameAsHeap() {
+        Random random = new Random(42L);
+        TimingWheelEntryQueue<Void> wheel = new TimingWheelEntryQueue<>(START);
+        HeapEntryQueue<Void> heap = new HeapEntryQueue<>();
+        for (int i = 0; i < 10000; i++) {
+            Entry<Void> entry = entry(Integer.toString(i), START + 1 + random.nextInt(86400 * 800));
+            wheel.add(entry);
+            heap.add(entry);
+        }
+        long time = START;
+        while (heap.size() > 0) {
+            time += 1 + random.nextInt(20000);
+            Set<Entry<Void>> fromWheel = new HashSet<>();
+            Set<Entry<Void>> fromHeap = new HashSet<>();
+            wheel.poll(time, fromWheel::add);
+            heap.poll(time, fromHeap::add);
+            assertEquals(fromHeap, fromWheel, "at " + time);
+            assertEquals(heap.size(), wheel.size());
+            assertTrue(wheel.nextTime() <= heap.nextTime());
+        }
+    }
+
+    @Test
+    public void timeFromFirstPoll() {
+        // a wheel without a time waits for the clock of the schedule, here long before the wall clock
+        TimingWheelEntryQueue<Void> queue = new TimingWheelEntryQueue<>();
+        Entry<Void> a = entry("a", START + 5);
+        Entry<Void> b = entry("b", START + 3600);
+        Entry<Void> c = entry("c", START + 10);
+        queue.add(a);
+        queue.add(b);
+        queue.add(c);
+        assertTrue(queue.remove(c));
+        assertEquals(2, queue.size());
+        assertEquals(START + 5, queue.nextTime());
+        List<Entry<Void>> polled = new ArrayList<>();
+        queue.poll(START, polled::add);
+        assertTrue(polled.isEmpty());
+        assertEquals(START + 5, queue.nextTime());
+        queue.poll(START + 5, polled::add);
+        assertEquals(List.of(a), polled);
+        queue.poll(START + 3600, polled::add);
+        assertEquals(List.of(a, b), polled);
+        assertEquals(0, queue.size());
+    }
+
+    private static Entry<Void> entry(String name, long epochSecond) {
+        Entry<Void> entry = new Entry<>(name, CronExpression.daily(), () -> null);
+        entry.setNextCall(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC));
+        return entry;
+    }
+}
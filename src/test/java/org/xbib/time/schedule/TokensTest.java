@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.Test;
+import java.nio.CharBuffer;
 
 public class TokensTest {
     private Tokens tokens;
@@ -185,6 +186,62 @@ public class TokensTest {
         }
     }
 
+    @Test
+    public void lowerCase() {
+        tokenize("mon-Fri,l,w,h");
+        tokens.keywords(DayOfWeekField.Builder.KEYWORDS);
+        assertNextIsNumber(1);
+        assertNextIs(Token.RANGE);
+        assertNextIsNumber(5);
+        assertNextIs(Token.VALUE_SEPARATOR);
+        assertNextIs(Token.LAST);
+        assertNextIs(Token.VALUE_SEPARATOR);
+        assertNextIs(Token.WEEKDAY);
+        assertNextIs(Token.VALUE_SEPARATOR);
+        assertNextIs(Token.HASH);
+        assertEndOfInput();
+    }
+
+    @Test
+    public void charBuffer() {
+        CharBuffer buffer = CharBuffer.wrap("# 12 */5 #");
+        tokens = new Tokens(buffer.subSequence(2, 8));
+        assertNextIsNumber(12);
+        assertNextIs(Token.FIELD_SEPARATOR);
+        assertNextIs(Token.MATCH_ALL);
+        assertNextIs(Token.SKIP);
+        assertNextIsNumber(5);
+        assertEndOfInput();
+    }
+
+    @Test
+    public void largeNumbers() {
+        tokenize("2147483647");
+        assertNextIsNumber(Integer.MAX_VALUE);
+        tokenize("2147483648");
+        try {
+            tokens.next();
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Number too large '2147483648' at position 0 in string: 2147483648", e.getMessage());
+        }
+    }
+
+    @Test
+    public void errorsToResult() {
+        ParseResult result = new ParseResult();
+        result.reset("1,5%,7");
+        tokens = new Tokens("1,5%,7", result);
+        assertNextIsNumber(1);
+        assertNextIs(Token.VALUE_SEPARATOR);
+        assertNextIsNumber(5);
+        assertEndOfInput();
+        assertFalse(tokens.hasNext());
+        assertEquals(ParseResult.Error.BAD_CHARACTER, result.getError());
+        assertEquals(3, result.getPosition());
+        assertEquals("Bad character '%' at position 3 in string: 1,5%,7", result.getMessage());
+    }
+
     private void assertEndOfInput() {
         assertNextIs(Token.END_OF_INPUT);
     }
@@ -0,0 +1,165 @@
+package org.xbib.time.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+public class TransitionPolicyTest {
+
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    private static final TransitionPolicy SKIP_ONCE =
+            TransitionPolicy.of(TransitionPolicy.Gap.SKIP, TransitionPolicy.Overlap.ONCE);
+
+    private static final TransitionPolicy SHIFT_BOTH =
+            TransitionPolicy.of(TransitionPolicy.Gap.SHIFT_FORWARD, TransitionPolicy.Overlap.BOTH);
+
+    @Test
+    public void policies() {
+        assertSame(TransitionPolicy.DEFAULT,
+                TransitionPolicy.of(TransitionPolicy.Gap.SHIFT_FORWARD, TransitionPolicy.Overlap.ONCE));
+        assertEquals(TransitionPolicy.Gap.SKIP, SKIP_ONCE.getGap());
+        assertEquals(TransitionPolicy.Overlap.BOTH, SHIFT_BOTH.getOverlap());
+    }
+
+    @Test
+    public void gap() {
+        CronExpression expression = CronExpression.parse("30 2 * * *");
+        ZonedDateTime from = ZonedDateTime.of(2023, 3, 26, 1, 0, 0, 0, BERLIN);
+        assertEquals(ZonedDateTime.of(2023, 3, 26, 3, 30, 0, 0, BERLIN),
+                expression.nextExecution(from, from.plusDays(2), TransitionPolicy.DEFAULT));
+        assertEquals(ZonedDateTime.of(2023, 3, 27, 2, 30, 0, 0, BERLIN),
+                expression.nextExecution(from, from.plusDays(2), SKIP_ONCE));
+        ZonedDateTime to = ZonedDateTime.of(2023, 3, 26, 4, 0, 0, 0, BERLIN);
+        assertEquals(ZonedDateTime.of(2023, 3, 25, 2, 30, 0, 0, BERLIN),
+                expression.previousExecution(to, to.minusDays(2), SKIP_ONCE));
+    }
+
+    @Test
+    public void everyTimeOfTheGapIsShifted() {
+        CronExpression expression = CronExpression.parse("*/15 2 * * *");
+        ZonedDateTime from = ZonedDateTime.of(2023, 3, 26, 1, 0, 0, 0, BERLIN);
+        List<ZonedDateTime> list = expression.executionEpochSeconds(from, from.plusHours(4), TransitionPolicy.DEFAULT)
+                .mapToObj(e -> ZonedDateTime.ofInstant(Instant.ofEpochSecond(e), BERLIN))
+                .collect(Collectors.toList());
+        assertEquals(List.of(ZonedDateTime.of(2023, 3, 26, 3, 0, 0, 0, BERLIN),
+                ZonedDateTime.of(2023, 3, 26, 3, 15, 0, 0, BERLIN),
+                ZonedDateTime.of(2023, 3, 26, 3, 30, 0, 0, BERLIN),
+                ZonedDateTime.of(2023, 3, 26, 3, 45, 0, 0, BERLIN)), list);
+    }
+
+    @Test
+    public void overlap() {
+        CronExpression expression = CronExpression.parse("30 2 * * *");
+        ZonedDateTime earlier = ZonedDateTime.of(2023, 10, 29, 2, 30, 0, 0, BERLIN).withEarlierOffsetAtOverlap();
+        ZonedDateTime later = earlier.withLaterOffsetAtOverlap();
+        ZonedDateTime from = ZonedDateTime.of(2023, 10, 29, 1, 0, 0, 0, BERLIN);
+        assertEquals(List.of(earlier.toEpochSecond()),
+                expression.executionEpochSeconds(from, from.plusHours(6), TransitionPolicy.DEFAULT)
+                        .boxed().collect(Collectors.toList()));
+        assertEquals(List.of(earlier.toEpochSecond(), later.toEpochSecond()),
+                expression.executionEpochSeconds(from, from.plusHours(6), SHIFT_BOTH)
+                        .boxed().collect(Collectors.toList()));
+        // in the second pass, 02:30 ran already in the first pass
+        ZonedDateTime secondPass = ZonedDateTime.of(2023, 10, 29, 2, 10, 0, 0, BERLIN).withLaterOffsetAtOverlap();
+        assertEquals(earlier.plusDays(1), expression.nextExecution(secondPass, secondPass.plusDays(2)));
+        assertEquals(later, expression.nextExecution(secondPass, secondPass.plusDays(2), SHIFT_BOTH));
+        assertEquals(earlier, expression.previousExecution(secondPass, secondPass.minusDays(2)));
+        assertFalse(expression.matches(later.toEpochSecond(), BERLIN, TransitionPolicy.DEFAULT));
+        assertTrue(expression.matches(later.toEpochSecond(), BERLIN, SHIFT_BOTH));
+    }
+
+    @Test
+    public void equalsBruteForce() {
+        String[] strings = {
+                "* * * * *", "*/15 * * * *", "30 2 * * *", "10,35 1-3 * * *", "45 1 * * *", "0 3 * * *",
+                "*/20 0-4 * * 0"
+        };
+        ZoneId[] zones = {BERLIN, ZoneId.of("America/New_York"), ZoneId.of("Australia/Lord_Howe"), ZoneOffset.UTC};
+        TransitionPolicy[] policies = new TransitionPolicy[4];
+        for (TransitionPolicy.Gap gap : TransitionPolicy.Gap.values()) {
+            for (TransitionPolicy.Overlap overlap : TransitionPolicy.Overlap.values()) {
+                policies[gap.ordinal() * 2 + overlap.ordinal()] = TransitionPolicy.of(gap, overlap);
+            }
+        }
+        for (ZoneId zone : zones) {
+            List<Long> windows = new ArrayList<>();
+            ZoneOffsetTransition transition = zone.getRules().nextTransition(Instant.parse("2023-01-01T00:00:00Z"));
+            while (transition != null && transition.toEpochSecond() < Instant.parse("2024-01-01T00:00:00Z")
+                    .getEpochSecond()) {
+                windows.add(transition.toEpochSecond());
+                transition = zone.getRules().nextTransition(transition.getInstant());
+            }
+            windows.add(Instant.parse("2023-06-01T00:00:00Z").getEpochSecond());
+            for (String string : strings) {
+                CronExpression expression = CronExpression.parse(string);
+                for (TransitionPolicy policy : policies) {
+                    for (long center : windows) {
+                        check(expression, zone, policy, center - 4L * 3600L, center + 4L * 3600L);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void schedule() throws Exception {
+        try (CronSchedule<Void> schedule = new CronSchedule<>(Executors.newSingleThreadScheduledExecutor())) {
+            assertSame(TransitionPolicy.DEFAULT, schedule.getTransitionPolicy());
+            schedule.setTransitionPolicy(SHIFT_BOTH);
+            schedule.add("a", CronExpression.parse("30 2 * * *"), () -> null);
+            Entry<Void> entry = schedule.getEntry("a");
+            assertSame(SHIFT_BOTH, entry.getTransitionPolicy());
+            ZonedDateTime later = ZonedDateTime.of(2023, 10, 29, 2, 30, 0, 0, BERLIN).withLaterOffsetAtOverlap();
+            assertTrue(entry.matches(later));
+            assertEquals(later, entry.nextExecution(later.minusMinutes(30)));
+        }
+    }
+
+    /**
+     * Compares the searches with the epoch seconds of a range which match with the policy, minute by minute.
+     */
+    private static void check(CronExpression expression, ZoneId zone, TransitionPolicy policy, long start, long end) {
+        List<Long> expected = new ArrayList<>();
+        for (long e = start + 60L; e <= end; e += 60L) {
+            if (expression.matches(e, zone, policy)) {
+                expected.add(e);
+            }
+        }
+        String message = expression + " " + zone + " " + policy + " " + Instant.ofEpochSecond(start);
+        ZonedDateTime from = ZonedDateTime.ofInstant(Instant.ofEpochSecond(start), zone);
+        ZonedDateTime to = ZonedDateTime.ofInstant(Instant.ofEpochSecond(end), zone);
+        assertEquals(expected, expression.executionEpochSeconds(from, to, policy).boxed().collect(Collectors.toList()),
+                message);
+        for (int i = 0; i < expected.size(); i++) {
+            ZonedDateTime t = ZonedDateTime.ofInstant(Instant.ofEpochSecond(expected.get(i)), zone);
+            if (i + 1 < expected.size()) {
+                assertEquals(expected.get(i + 1).longValue(),
+                        expression.nextExecution(t, to, policy).toEpochSecond(), message + " next " + t);
+            }
+            if (i > 0) {
+                assertEquals(expected.get(i - 1).longValue(),
+                        expression.previousExecution(t, from, policy).toEpochSecond(), message + " previous " + t);
+            }
+        }
+        // from every minute, also inside the gaps and overlaps
+        for (long e = start; e < end - 3600L; e += 60L) {
+            ZonedDateTime t = ZonedDateTime.ofInstant(Instant.ofEpochSecond(e), zone);
+            long next = expected.stream().filter(x -> x > t.toEpochSecond()).findFirst().orElse(Long.MIN_VALUE);
+            if (next != Long.MIN_VALUE) {
+                assertEquals(next, expression.nextExecution(t, to, policy).toEpochSecond(), message + " next " + t);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.xbib.time.schedule.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scheduled executor service which runs tasks on the calling thread. Tasks to be executed now run at once,
+ * delayed and periodic tasks wait until {@link #runScheduled()} is called. Together with a {@link MutableClock},
+ * a test drives the ticks of a schedule by hand instead of sleeping.
+ */
+public class ManualScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final List<Task<?>> scheduled = new ArrayList<>();
+
+    private volatile boolean shutdown;
+
+    /**
+     * Runs the delayed and periodic tasks scheduled so far, regardless of their delay. Tasks scheduled
+     * while running wait for the next call. Periodic tasks stay scheduled.
+     * @return the number of tasks run
+     */
+    public int runScheduled() {
+        List<Task<?>> tasks;
+        synchronized (scheduled) {
+            tasks = new ArrayList<>(scheduled);
+            scheduled.removeIf(task -> !task.periodic || task.isCancelled());
+        }
+        int n = 0;
+        for (Task<?> task : tasks) {
+            if (!task.isCancelled()) {
+                task.run();
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException();
+        }
+        command.run();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return add(new Task<>(Executors.callable(command), false));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return add(new Task<>(callable, false));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return add(new Task<>(Executors.callable(command), true));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return add(new Task<>(Executors.callable(command), true));
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        synchronized (scheduled) {
+            scheduled.clear();
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return true;
+    }
+
+    private <V> Task<V> add(Task<V> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException();
+        }
+        synchronized (scheduled) {
+            scheduled.add(task);
+        }
+        return task;
+    }
+
+    private static final class Task<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+        private final boolean periodic;
+
+        private Task(Callable<V> callable, boolean periodic) {
+            super(callable);
+            this.periodic = periodic;
+        }
+
+        @Override
+        public void run() {
+            if (periodic) {
+                runAndReset();
+            } else {
+                super.run();
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return 0L;
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
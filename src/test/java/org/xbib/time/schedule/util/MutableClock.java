@@ -0,0 +1,37 @@
+package org.xbib.time.schedule.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+public class MutableClock extends Clock {
+
+    private volatile Instant instant;
+
+    private final ZoneId zone;
+
+    public MutableClock(ZonedDateTime time) {
+        this.instant = time.toInstant();
+        this.zone = time.getZone();
+    }
+
+    public void set(ZonedDateTime time) {
+        this.instant = time.toInstant();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}